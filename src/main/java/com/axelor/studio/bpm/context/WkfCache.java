@@ -19,54 +19,501 @@ package com.axelor.studio.bpm.context;
 
 import com.axelor.db.JPA;
 import com.axelor.studio.baml.tools.BpmTools;
+import com.axelor.studio.db.CustomVariable;
+import com.axelor.studio.db.WkfModel;
 import com.axelor.studio.db.WkfProcessConfig;
 import com.axelor.studio.db.WkfTaskConfig;
+import com.axelor.studio.db.repo.CustomVariableRepository;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
-import org.apache.commons.collections.MultiMap;
-import org.apache.commons.collections.map.MultiValueMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.transaction.Synchronization;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
 
 public class WkfCache {
 
-  public static Map<String, Map<Long, String>> WKF_MODEL_CACHE =
-      new ConcurrentHashMap<String, Map<Long, String>>();
-  public static Map<String, MultiMap> WKF_BUTTON_CACHE = new ConcurrentHashMap<String, MultiMap>();
+  protected static final long ACTIVITY_CACHE_DURATION = 5;
+
+  protected static final long DASHBOARD_CACHE_DURATION = 60;
+
+  /** Process config ids per model name, by tenant. */
+  public static Map<String, Index> WKF_MODEL_CACHE = new ConcurrentHashMap<>();
+
+  /** Task config ids per button name, by tenant. */
+  public static Map<String, Index> WKF_BUTTON_CACHE = new ConcurrentHashMap<>();
+
+  /** Candidate process configs per model name and status, by tenant. */
+  public static Map<String, Map<String, List<ProcessConfigEntry>>> WKF_PROCESS_CONFIG_CACHE =
+      new ConcurrentHashMap<>();
+
+  /** Task config ids per task definition key and model id, by tenant. */
+  public static Map<String, Map<Long, Map<String, Long>>> WKF_TASK_CONFIG_CACHE =
+      new ConcurrentHashMap<>();
+
+  /** Status display settings of the task configs per model id and version, by tenant. */
+  public static Map<String, Map<String, TaskDisplayIndex>> WKF_TASK_DISPLAY_CACHE =
+      new ConcurrentHashMap<>();
+
+  /** Nodes of the task configs having menus per process key, by tenant. */
+  public static Map<String, Map<String, Set<String>>> WKF_MENU_NODE_CACHE =
+      new ConcurrentHashMap<>();
+
+  /** Expressions of the valid custom variables per name, by tenant. */
+  public static Map<String, Map<String, String>> WKF_CUSTOM_VARIABLE_CACHE =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Active and visited activity ids per tenant and process instance, kept a few seconds so that the
+   * attribute conditions of a form are served by a single history query.
+   */
+  public static Cache<String, ActivitySnapshot> WKF_ACTIVITY_CACHE =
+      CacheBuilder.newBuilder()
+          .maximumSize(10000)
+          .expireAfterWrite(ACTIVITY_CACHE_DURATION, TimeUnit.SECONDS)
+          .build();
+
+  /** Process instance id per tenant, model class and record id, kept as long as the activities. */
+  public static Cache<String, String> WKF_RECORD_INSTANCE_CACHE =
+      CacheBuilder.newBuilder()
+          .maximumSize(10000)
+          .expireAfterWrite(ACTIVITY_CACHE_DURATION, TimeUnit.SECONDS)
+          .build();
+
+  /** Chart data per tenant, chart, BPM model and unit, kept a minute for dashboard refreshes. */
+  public static Cache<String, List<Map<String, Object>>> WKF_DASHBOARD_CACHE =
+      CacheBuilder.newBuilder()
+          .maximumSize(1000)
+          .expireAfterWrite(DASHBOARD_CACHE_DURATION, TimeUnit.SECONDS)
+          .build();
 
   public static void initWkfModelCache() {
 
     List<WkfProcessConfig> wkfProcessConfigs = JPA.all(WkfProcessConfig.class).fetch();
 
-    Map<Long, String> modelMap = new HashMap<Long, String>();
-    modelMap.put(0L, "");
+    Map<Long, Set<String>> modelMap = new HashMap<>();
     wkfProcessConfigs.forEach(
         config -> {
-          String model = config.getModel();
-          if (config.getMetaJsonModel() != null) {
-            model = config.getMetaJsonModel().getName();
-          }
-          modelMap.put(config.getId(), model);
+          String model = getModel(config);
+          modelMap.put(config.getId(), model == null ? Set.of() : Set.of(model));
         });
-    WKF_MODEL_CACHE.put(BpmTools.getCurentTenant(), modelMap);
+    WKF_MODEL_CACHE.put(BpmTools.getCurentTenant(), new Index(modelMap));
   }
 
   public static void initWkfButttonCache() {
 
     List<WkfTaskConfig> wkfTaskConfigs = JPA.all(WkfTaskConfig.class).fetch();
 
-    MultiMap multiMap = new MultiValueMap();
-    multiMap.put(0L, null);
+    Map<Long, Set<String>> buttonMap = new HashMap<>();
     wkfTaskConfigs.stream()
         .filter(config -> config.getButton() != null)
-        .collect(Collectors.toMap(WkfTaskConfig::getId, WkfTaskConfig::getButton))
-        .forEach(
-            (configId, button) ->
-                Arrays.asList(button.split(","))
-                    .forEach(btnName -> multiMap.put(configId, btnName)));
+        .forEach(config -> buttonMap.put(config.getId(), getButtons(config)));
+    WKF_BUTTON_CACHE.put(BpmTools.getCurentTenant(), new Index(buttonMap));
+  }
+
+  public static boolean isWkfModel(String tenantId, String modelName) {
+    return !getProcessConfigIds(tenantId, modelName).isEmpty();
+  }
+
+  public static Set<Long> getProcessConfigIds(String tenantId, String modelName) {
+    if (!WKF_MODEL_CACHE.containsKey(tenantId)) {
+      initWkfModelCache();
+    }
+    return WKF_MODEL_CACHE.get(tenantId).getIds(modelName);
+  }
+
+  public static boolean isWkfButton(String tenantId, String buttonName) {
+    return !getTaskConfigIds(tenantId, buttonName).isEmpty();
+  }
+
+  public static Set<Long> getTaskConfigIds(String tenantId, String buttonName) {
+    if (!WKF_BUTTON_CACHE.containsKey(tenantId)) {
+      initWkfButttonCache();
+    }
+    return WKF_BUTTON_CACHE.get(tenantId).getIds(buttonName);
+  }
+
+  // Tenants without index are left alone, the whole index is loaded on first lookup.
+  public static void updateProcessConfig(String tenantId, WkfProcessConfig config) {
+    WKF_MODEL_CACHE.computeIfPresent(
+        tenantId, (key, index) -> index.with(config.getId(), getModel(config)));
+  }
+
+  public static void removeProcessConfig(String tenantId, Long configId) {
+    WKF_MODEL_CACHE.computeIfPresent(tenantId, (key, index) -> index.without(configId));
+  }
+
+  public static void updateTaskConfig(String tenantId, WkfTaskConfig config) {
+    Set<String> buttons = config.getButton() == null ? Set.of() : getButtons(config);
+    WKF_BUTTON_CACHE.computeIfPresent(
+        tenantId, (key, index) -> index.with(config.getId(), buttons));
+  }
+
+  public static void removeTaskConfig(String tenantId, Long configId) {
+    WKF_BUTTON_CACHE.computeIfPresent(tenantId, (key, index) -> index.without(configId));
+  }
+
+  public static List<ProcessConfigEntry> getProcessConfigs(
+      String tenantId, String key, Function<String, List<ProcessConfigEntry>> loader) {
+    Map<String, List<ProcessConfigEntry>> configMap =
+        WKF_PROCESS_CONFIG_CACHE.computeIfAbsent(tenantId, k -> new ConcurrentHashMap<>());
+    List<ProcessConfigEntry> entries = configMap.get(key);
+    if (entries == null) {
+      // Loaded outside of the map lock, the query may flush and re-enter the cache.
+      entries = List.copyOf(loader.apply(key));
+      configMap.putIfAbsent(key, entries);
+    }
+    return entries;
+  }
+
+  public static void invalidateProcessConfigs(String tenantId) {
+    invalidate(WKF_PROCESS_CONFIG_CACHE, tenantId);
+  }
+
+  public static Map<String, Long> getTaskConfigIds(String tenantId, Long wkfModelId) {
+    Map<Long, Map<String, Long>> modelMap =
+        WKF_TASK_CONFIG_CACHE.computeIfAbsent(tenantId, k -> new ConcurrentHashMap<>());
+    Map<String, Long> configIds = modelMap.get(wkfModelId);
+    if (configIds == null) {
+      Map<String, Long> ids = new HashMap<>();
+      JPA.all(WkfTaskConfig.class).filter("self.wkfModel.id = ?1", wkfModelId).fetch().stream()
+          .filter(config -> config.getName() != null)
+          .forEach(config -> ids.putIfAbsent(config.getName(), config.getId()));
+      configIds = Collections.unmodifiableMap(ids);
+      modelMap.putIfAbsent(wkfModelId, configIds);
+    }
+    return configIds;
+  }
+
+  public static void invalidateTaskConfigs(String tenantId) {
+    invalidate(WKF_TASK_CONFIG_CACHE, tenantId);
+  }
+
+  public static TaskDisplayIndex getTaskDisplays(String tenantId, WkfModel wkfModel) {
+    Map<String, TaskDisplayIndex> modelMap =
+        WKF_TASK_DISPLAY_CACHE.computeIfAbsent(tenantId, k -> new ConcurrentHashMap<>());
+    String key = wkfModel.getId() + ":" + wkfModel.getVersion();
+    TaskDisplayIndex index = modelMap.get(key);
+    if (index == null) {
+      index =
+          new TaskDisplayIndex(
+              JPA.all(WkfTaskConfig.class)
+                  .filter("self.wkfModel.id = ?1", wkfModel.getId())
+                  .fetch());
+      modelMap.putIfAbsent(key, index);
+    }
+    return index;
+  }
+
+  public static void invalidateTaskDisplays(String tenantId) {
+    invalidate(WKF_TASK_DISPLAY_CACHE, tenantId);
+  }
+
+  public static Map<String, Set<String>> getMenuNodes(String tenantId) {
+    Map<String, Set<String>> menuNodes = WKF_MENU_NODE_CACHE.get(tenantId);
+    if (menuNodes == null) {
+      Map<String, Set<String>> nodes = new HashMap<>();
+      JPA.em()
+          .createQuery(
+              "SELECT DISTINCT self.wkfTaskConfig.processId, self.wkfTaskConfig.name "
+                  + "FROM WkfTaskMenu self WHERE self.wkfTaskConfig.processId IS NOT NULL",
+              Object[].class)
+          .getResultList()
+          .forEach(
+              row ->
+                  nodes
+                      .computeIfAbsent(getProcessKey((String) row[0]), k -> new HashSet<>())
+                      .add((String) row[1]));
+      menuNodes = Collections.unmodifiableMap(nodes);
+      WKF_MENU_NODE_CACHE.putIfAbsent(tenantId, menuNodes);
+    }
+    return menuNodes;
+  }
+
+  public static void invalidateMenuNodes(String tenantId) {
+    invalidate(WKF_MENU_NODE_CACHE, tenantId);
+  }
+
+  public static String getProcessKey(String processId) {
+    int index = processId.indexOf(":");
+    return index < 0 ? processId : processId.substring(0, index);
+  }
+
+  public static Map<String, String> getCustomVariables(String tenantId) {
+    Map<String, String> customVariables = WKF_CUSTOM_VARIABLE_CACHE.get(tenantId);
+    if (customVariables == null) {
+      Map<String, String> expressions = new LinkedHashMap<>();
+      JPA
+          .all(CustomVariable.class)
+          .filter("self.status = ?1", CustomVariableRepository.STATUS_VALID)
+          .fetch()
+          .stream()
+          .filter(customVariable -> customVariable.getName() != null)
+          .forEach(
+              customVariable ->
+                  expressions.put(customVariable.getName(), customVariable.getExpression()));
+      customVariables = Collections.unmodifiableMap(expressions);
+      WKF_CUSTOM_VARIABLE_CACHE.putIfAbsent(tenantId, customVariables);
+    }
+    return customVariables;
+  }
+
+  public static void invalidateCustomVariables(String tenantId) {
+    invalidate(WKF_CUSTOM_VARIABLE_CACHE, tenantId);
+  }
+
+  public static ActivitySnapshot getActivities(
+      String tenantId, String processInstanceId, Function<String, ActivitySnapshot> loader) {
+    String key = tenantId + ":" + processInstanceId;
+    ActivitySnapshot snapshot = WKF_ACTIVITY_CACHE.getIfPresent(key);
+    if (snapshot == null) {
+      snapshot = loader.apply(processInstanceId);
+      WKF_ACTIVITY_CACHE.put(key, snapshot);
+    }
+    return snapshot;
+  }
+
+  public static void invalidateActivities(String tenantId, String processInstanceId) {
+    invalidate(WKF_ACTIVITY_CACHE.asMap(), tenantId + ":" + processInstanceId);
+  }
+
+  public static List<Map<String, Object>> getDashboardData(
+      String tenantId,
+      String chart,
+      Long wkfModelId,
+      String unit,
+      Supplier<List<Map<String, Object>>> loader) {
+    String key = tenantId + ":" + chart + ":" + wkfModelId + ":" + unit;
+    List<Map<String, Object>> data = WKF_DASHBOARD_CACHE.getIfPresent(key);
+    if (data == null) {
+      data = loader.get();
+      WKF_DASHBOARD_CACHE.put(key, data);
+    }
+    return new ArrayList<>(data);
+  }
+
+  /**
+   * Process instance id of a record, empty when it has none. Records without an instance are not
+   * cached, as their process may start at any time.
+   */
+  public static String getProcessInstanceId(
+      String tenantId, Class<?> modelClass, Long id, Function<Long, String> loader) {
+    String key = tenantId + ":" + modelClass.getName() + ":" + id;
+    String processInstanceId = WKF_RECORD_INSTANCE_CACHE.getIfPresent(key);
+    if (processInstanceId == null) {
+      processInstanceId = Strings.nullToEmpty(loader.apply(id));
+      if (!processInstanceId.isEmpty()) {
+        WKF_RECORD_INSTANCE_CACHE.put(key, processInstanceId);
+      }
+    }
+    return processInstanceId;
+  }
+
+  public static void invalidateProcessInstanceId(String tenantId, Class<?> modelClass, Long id) {
+    invalidate(WKF_RECORD_INSTANCE_CACHE.asMap(), tenantId + ":" + modelClass.getName() + ":" + id);
+  }
+
+  protected static void invalidate(Map<String, ?> cache, String tenantId) {
+    cache.remove(tenantId);
+
+    // Clear again once committed, a concurrent load may have read the previous state meanwhile.
+    Transaction transaction = JPA.em().unwrap(Session.class).getTransaction();
+    if (transaction != null && transaction.isActive()) {
+      transaction.registerSynchronization(
+          new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+              cache.remove(tenantId);
+            }
+          });
+    }
+  }
+
+  protected static String getModel(WkfProcessConfig config) {
+    if (config.getMetaJsonModel() != null) {
+      return config.getMetaJsonModel().getName();
+    }
+    return config.getModel();
+  }
+
+  protected static Set<String> getButtons(WkfTaskConfig config) {
+    return new LinkedHashSet<>(Arrays.asList(config.getButton().split(",")));
+  }
+
+  /** Status display settings of the task configs of a model, by process and node. */
+  public static final class TaskDisplayIndex {
+
+    private final Map<String, TaskDisplay> displays = new HashMap<>();
+    private final Map<String, String> helpTexts = new HashMap<>();
+
+    TaskDisplayIndex(List<WkfTaskConfig> configs) {
+      for (WkfTaskConfig config : configs) {
+        displays.putIfAbsent(
+            config.getProcessId() + ":" + config.getName(),
+            new TaskDisplay(config.getDisplayStatus(), config.getDisplayOnModels()));
+        if (config.getName() != null && !helpTexts.containsKey(config.getName())) {
+          helpTexts.put(config.getName(), config.getHelpText());
+        }
+      }
+    }
+
+    public TaskDisplay getDisplay(String processId, String name) {
+      return displays.get(processId + ":" + name);
+    }
+
+    public boolean hasHelpText(String name) {
+      return helpTexts.containsKey(name);
+    }
+
+    public String getHelpText(String name) {
+      return helpTexts.get(name);
+    }
+  }
+
+  public static final class TaskDisplay {
+
+    private final boolean displayStatus;
+    private final String displayOnModels;
+
+    TaskDisplay(boolean displayStatus, String displayOnModels) {
+      this.displayStatus = displayStatus;
+      this.displayOnModels = displayOnModels;
+    }
+
+    public boolean getDisplayStatus() {
+      return displayStatus;
+    }
+
+    public String getDisplayOnModels() {
+      return displayOnModels;
+    }
+  }
+
+  /** Ids of the activities of a process instance, the active ones being also visited. */
+  public static final class ActivitySnapshot {
+
+    private final Set<String> active;
+    private final Set<String> visited;
+
+    public ActivitySnapshot(Set<String> active, Set<String> visited) {
+      this.active = ImmutableSet.copyOf(active);
+      this.visited = ImmutableSet.copyOf(visited);
+    }
+
+    public boolean isActive(String activityId) {
+      return active.contains(activityId);
+    }
+
+    public boolean isVisited(String activityId) {
+      return visited.contains(activityId);
+    }
+  }
+
+  public static final class ProcessConfigEntry {
+
+    private final Long id;
+    private final String condition;
+
+    public ProcessConfigEntry(Long id, String condition) {
+      this.id = id;
+      this.condition = condition;
+    }
+
+    public Long getId() {
+      return id;
+    }
+
+    public String getCondition() {
+      return condition;
+    }
+  }
+
+  /**
+   * Immutable mapping between config ids and the names they are registered for, along with the
+   * reverse lookup by name. Updates build a new instance so readers never need to lock.
+   */
+  public static final class Index {
+
+    private final Map<Long, Set<String>> namesById;
+    private final Map<String, Set<Long>> idsByName;
+
+    Index(Map<Long, Set<String>> namesById) {
+      ImmutableMap.Builder<Long, Set<String>> byId = ImmutableMap.builder();
+      Map<String, ImmutableSet.Builder<Long>> byName = new HashMap<>();
+      namesById.forEach(
+          (id, names) -> {
+            byId.put(id, ImmutableSet.copyOf(names));
+            for (String name : names) {
+              if (name != null) {
+                byName.computeIfAbsent(name, k -> ImmutableSet.builder()).add(id);
+              }
+            }
+          });
+
+      ImmutableMap.Builder<String, Set<Long>> idsByName = ImmutableMap.builder();
+      byName.forEach((name, ids) -> idsByName.put(name, ids.build()));
+
+      this.namesById = byId.build();
+      this.idsByName = idsByName.build();
+    }
+
+    public Set<Long> getIds(String name) {
+      if (name == null) {
+        return Set.of();
+      }
+      return idsByName.getOrDefault(name, Set.of());
+    }
+
+    public Set<String> getNames(Long id) {
+      return namesById.getOrDefault(id, Set.of());
+    }
+
+    public Collection<String> getAllNames() {
+      return idsByName.keySet();
+    }
+
+    Index with(Long id, String name) {
+      return with(id, name == null ? Set.of() : Set.of(name));
+    }
+
+    Index with(Long id, Set<String> names) {
+      Map<Long, Set<String>> copy = new HashMap<>(namesById);
+      copy.put(id, names);
+      return new Index(copy);
+    }
+
+    Index without(Long id) {
+      if (!namesById.containsKey(id)) {
+        return this;
+      }
+      Map<Long, Set<String>> copy = new HashMap<>(namesById);
+      copy.remove(id);
+      return new Index(copy);
+    }
 
-    WKF_BUTTON_CACHE.put(BpmTools.getCurentTenant(), multiMap);
+    @Override
+    public String toString() {
+      return idsByName.toString();
+    }
   }
 }
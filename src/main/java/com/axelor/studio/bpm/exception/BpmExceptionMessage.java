@@ -709,6 +709,10 @@ public final class BpmExceptionMessage {
   public static final String BPM_YAML_NOT_FOUND_FILE = /*$$(*/ "File not found" /*)*/;
   public static final String BPM_LOG_INVALID_DATES = /*$$(*/
       "Invalid date: start date is after end date" /*)*/;
+  public static final String BPM_ERROR_OCCURRENCES = /*$$(*/
+      "This error occurred %s times, in the process instances: %s" /*)*/;
+  public static final String BPM_LOG_TRUNCATED = /*$$(*/
+      "Only the last %s KB of the log are shown." /*)*/;
   public static final String BPM_MODEL_REQUIRED_NUMBER_TO_PERFORM_MERGE_OPERATION =
       /*$$(*/ "At least 2 models are required to perform the merge operation." /*)*/;
   public static final String BPM_MISSING_PROCESS_CONFIGURATION =
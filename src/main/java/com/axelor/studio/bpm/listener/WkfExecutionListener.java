@@ -20,7 +20,12 @@ package com.axelor.studio.bpm.listener;
 import com.axelor.db.JPA;
 import com.axelor.db.tenants.TenantResolver;
 import com.axelor.i18n.I18n;
+import com.axelor.studio.baml.tools.BpmTools;
+import com.axelor.studio.bpm.context.WkfCache;
+import com.axelor.studio.bpm.service.dashboard.WkfNodeStatisticService;
+import com.axelor.studio.bpm.service.execution.WkfInstanceNodeService;
 import com.axelor.studio.bpm.service.execution.WkfInstanceService;
+import com.axelor.studio.bpm.service.log.WkfInstanceLogAppender;
 import com.axelor.studio.bpm.service.log.WkfLogService;
 import com.axelor.studio.db.WkfInstance;
 import com.axelor.studio.db.WkfProcess;
@@ -40,6 +45,9 @@ import javax.persistence.criteria.CriteriaUpdate;
 import javax.persistence.criteria.Root;
 import org.camunda.bpm.engine.delegate.DelegateExecution;
 import org.camunda.bpm.engine.delegate.ExecutionListener;
+import org.camunda.bpm.engine.impl.context.Context;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.camunda.bpm.engine.impl.interceptor.CommandContextListener;
 import org.camunda.bpm.engine.impl.persistence.entity.ExecutionEntity;
 import org.camunda.bpm.engine.impl.persistence.entity.ProcessDefinitionEntity;
 import org.camunda.bpm.engine.runtime.MessageCorrelationBuilder;
@@ -50,17 +58,22 @@ import org.camunda.bpm.model.bpmn.instance.FlowElement;
 import org.camunda.bpm.model.bpmn.instance.MessageEventDefinition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
 public class WkfExecutionListener implements ExecutionListener {
 
   protected static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  protected static final ThreadLocal<CommandContext> LOG_COMMAND_CONTEXT = new ThreadLocal<>();
+
   protected WkfInstanceRepository wkfInstanceRepo;
   protected WkfInstanceService wkfInstanceService;
   protected WkfProcessRepository wkfProcessRepo;
   protected WkfTaskConfigRepository wkfTaskConfigRepo;
   protected WkfLogService wkfLogService;
   protected AppSettingsStudioService appSettingsStudioService;
+  protected WkfNodeStatisticService wkfNodeStatisticService;
+  protected WkfInstanceNodeService wkfInstanceNodeService;
 
   @Inject
   public WkfExecutionListener(
@@ -69,7 +82,9 @@ public class WkfExecutionListener implements ExecutionListener {
       WkfProcessRepository wkfProcessRepo,
       WkfTaskConfigRepository wkfTaskConfigRepo,
       WkfLogService wkfLogService,
-      AppSettingsStudioService appSettingsStudioService) {
+      AppSettingsStudioService appSettingsStudioService,
+      WkfNodeStatisticService wkfNodeStatisticService,
+      WkfInstanceNodeService wkfInstanceNodeService) {
 
     this.wkfInstanceRepo = wkfInstanceRepo;
     this.wkfInstanceService = wkfInstanceService;
@@ -77,6 +92,8 @@ public class WkfExecutionListener implements ExecutionListener {
     this.wkfTaskConfigRepo = wkfTaskConfigRepo;
     this.wkfLogService = wkfLogService;
     this.appSettingsStudioService = appSettingsStudioService;
+    this.wkfNodeStatisticService = wkfNodeStatisticService;
+    this.wkfInstanceNodeService = wkfInstanceNodeService;
   }
 
   @Override
@@ -92,6 +109,10 @@ public class WkfExecutionListener implements ExecutionListener {
       TenantResolver.setCurrentTenant(tenantId, host);
     }
 
+    if (eventName.equals(EVENTNAME_START) || eventName.equals(EVENTNAME_END)) {
+      WkfCache.invalidateActivities(BpmTools.getCurentTenant(), execution.getProcessInstanceId());
+    }
+
     if (eventName.equals(EVENTNAME_START)) {
 
       if (execution.getProcessInstance().getActivityInstanceId() == null) {
@@ -105,6 +126,8 @@ public class WkfExecutionListener implements ExecutionListener {
 
       if (executionEntity.getEventSource() instanceof ProcessDefinitionEntity) {
         wkfLogService.clearLog(execution.getProcessInstanceId());
+        wkfInstanceNodeService.onProcessEnd(
+            execution.getProcessInstanceId(), execution.getProcessDefinitionId());
       }
     }
     if (executionEntity.isEnded() && executionEntity.getParent() == null) {
@@ -152,6 +175,12 @@ public class WkfExecutionListener implements ExecutionListener {
       return;
     }
 
+    if (appSettingsStudioService.isBpmStatisticsEnabled()) {
+      wkfNodeStatisticService.onNodeStart(execution.getProcessDefinitionId(), flowElement.getId());
+    }
+    wkfInstanceNodeService.onNodeStart(
+        execution.getProcessInstanceId(), execution.getProcessDefinitionId(), flowElement.getId());
+
     String type = flowElement.getElementType().getTypeName();
 
     boolean blocking = blockingNode(type);
@@ -164,6 +193,7 @@ public class WkfExecutionListener implements ExecutionListener {
     log.debug("Executing: id={},name={}", flowElement.getId(), flowElement.getName());
     boolean isLog = appSettingsStudioService.isAddBpmLog();
     if (!blocking && isLog) {
+      restoreLogInstanceOnClose();
       wkfLogService.createOrAttachAppender(instanceId);
     }
 
@@ -181,6 +211,47 @@ public class WkfExecutionListener implements ExecutionListener {
     }
   }
 
+  /**
+   * Restores the log instance of the thread once the current command is closed, so that pooled
+   * threads do not keep writing to the log of the last executed instance.
+   */
+  protected void restoreLogInstanceOnClose() {
+    CommandContext commandContext = Context.getCommandContext();
+    if (commandContext == null || LOG_COMMAND_CONTEXT.get() == commandContext) {
+      return;
+    }
+
+    CommandContext previousCommandContext = LOG_COMMAND_CONTEXT.get();
+    String previousLogInstanceId = MDC.get(WkfInstanceLogAppender.MDC_KEY);
+    LOG_COMMAND_CONTEXT.set(commandContext);
+
+    commandContext.registerCommandContextListener(
+        new CommandContextListener() {
+          @Override
+          public void onCommandContextClose(CommandContext context) {
+            restoreLogInstance(previousLogInstanceId, previousCommandContext);
+          }
+
+          @Override
+          public void onCommandFailed(CommandContext context, Throwable t) {
+            restoreLogInstance(previousLogInstanceId, previousCommandContext);
+          }
+        });
+  }
+
+  protected void restoreLogInstance(String logInstanceId, CommandContext previousCommandContext) {
+    if (previousCommandContext != null) {
+      LOG_COMMAND_CONTEXT.set(previousCommandContext);
+    } else {
+      LOG_COMMAND_CONTEXT.remove();
+    }
+    if (logInstanceId != null) {
+      MDC.put(WkfInstanceLogAppender.MDC_KEY, logInstanceId);
+    } else {
+      MDC.remove(WkfInstanceLogAppender.MDC_KEY);
+    }
+  }
+
   @Transactional(rollbackOn = Exception.class)
   protected void removeInstanceVariables(DelegateExecution execution) {
     Map<String, Object> localVariables = execution.getVariablesLocal();
@@ -206,6 +277,12 @@ public class WkfExecutionListener implements ExecutionListener {
       return;
     }
 
+    if (appSettingsStudioService.isBpmStatisticsEnabled()) {
+      wkfNodeStatisticService.onNodeEnd(execution.getProcessDefinitionId(), flowElement.getId());
+    }
+    wkfInstanceNodeService.onNodeEnd(
+        execution.getProcessInstanceId(), execution.getProcessDefinitionId(), flowElement.getId());
+
     String type = flowElement.getElementType().getTypeName();
 
     if (type.equals(BpmnModelConstants.BPMN_ELEMENT_BUSINESS_RULE_TASK)) {
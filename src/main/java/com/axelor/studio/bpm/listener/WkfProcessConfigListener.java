@@ -20,7 +20,6 @@ package com.axelor.studio.bpm.listener;
 import com.axelor.studio.baml.tools.BpmTools;
 import com.axelor.studio.bpm.context.WkfCache;
 import com.axelor.studio.db.WkfProcessConfig;
-import java.util.HashMap;
 import javax.persistence.PostPersist;
 import javax.persistence.PostRemove;
 import javax.persistence.PostUpdate;
@@ -30,28 +29,15 @@ public class WkfProcessConfigListener {
   @PostPersist
   @PostUpdate
   public void onSave(WkfProcessConfig config) {
-
     String tenantId = BpmTools.getCurentTenant();
-
-    if (!WkfCache.WKF_MODEL_CACHE.containsKey(tenantId)) {
-      WkfCache.WKF_MODEL_CACHE.put(tenantId, new HashMap<Long, String>());
-    }
-
-    String modelName = config.getModel();
-
-    if (config.getMetaJsonModel() != null) {
-      modelName = config.getMetaJsonModel().getName();
-    }
-    WkfCache.WKF_MODEL_CACHE.get(tenantId).put(config.getId(), modelName);
+    WkfCache.updateProcessConfig(tenantId, config);
+    WkfCache.invalidateProcessConfigs(tenantId);
   }
 
   @PostRemove
   public void onRemove(WkfProcessConfig config) {
-
     String tenantId = BpmTools.getCurentTenant();
-
-    if (WkfCache.WKF_MODEL_CACHE.containsKey(tenantId)) {
-      WkfCache.WKF_MODEL_CACHE.get(tenantId).remove(config.getId());
-    }
+    WkfCache.removeProcessConfig(tenantId, config.getId());
+    WkfCache.invalidateProcessConfigs(tenantId);
   }
 }
@@ -40,10 +40,10 @@ import com.google.inject.name.Named;
 import com.google.inject.persist.Transactional;
 import java.lang.invoke.MethodHandles;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import org.apache.commons.collections.MultiMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -77,9 +77,6 @@ public class WkfRequestListener {
       throws ClassNotFoundException {
 
     String tenantId = BpmTools.getCurentTenant();
-    if (!WkfCache.WKF_MODEL_CACHE.containsKey(tenantId)) {
-      WkfCache.initWkfModelCache();
-    }
 
     processUpdated(updated, tenantId, source);
     processDeleted(deleted, tenantId, source);
@@ -94,7 +91,7 @@ public class WkfRequestListener {
         modelName = ((MetaJsonRecord) model).getJsonModel();
       }
 
-      if (WkfCache.WKF_MODEL_CACHE.get(tenantId).containsValue(modelName)) {
+      if (WkfCache.isWkfModel(tenantId, modelName)) {
         log.trace("Eval workflow from updated model: {}, id: {}", modelName, model.getId());
         wkfInstanceService.evalInstance(model, null, source);
       }
@@ -124,12 +121,6 @@ public class WkfRequestListener {
 
     String tenantId = BpmTools.getCurentTenant();
 
-    if (!WkfCache.WKF_MODEL_CACHE.containsKey(tenantId)) {
-      WkfCache.initWkfModelCache();
-    }
-
-    Map<Long, String> modelMap = WkfCache.WKF_MODEL_CACHE.get(tenantId);
-
     Class<? extends Model> model = (Class<? extends Model>) context.getContextClass();
 
     String modelName = model.getName();
@@ -138,14 +129,10 @@ public class WkfRequestListener {
       modelName = (String) context.get("jsonModel");
     }
 
-    if (modelMap != null && modelMap.containsValue(modelName)) {
+    if (WkfCache.isWkfModel(tenantId, modelName)) {
       Long id = (Long) context.get("id");
-      if (!WkfCache.WKF_BUTTON_CACHE.containsKey(tenantId)) {
-        WkfCache.initWkfButttonCache();
-      }
-      MultiMap multiMap = WkfCache.WKF_BUTTON_CACHE.get(tenantId);
 
-      if (multiMap != null && multiMap.containsValue(signal) && id != null) {
+      if (id != null && WkfCache.isWkfButton(tenantId, signal)) {
         Object res = postAction.getResult();
         log.trace("Wkf button cache: {}", WkfCache.WKF_BUTTON_CACHE);
         log.trace("Eval wkf from button model: {}, id: {}", model.getName(), id);
@@ -166,11 +153,11 @@ public class WkfRequestListener {
 
     if (obj instanceof Map) {
       Map values = (Map) obj;
-      if (values != null && values.get("id") != null) {
+      Class<?> beanClass = event.getRequest().getBeanClass();
+      if (values != null && values.get("id") != null && isWkfModel(beanClass, values)) {
 
         List<Map<String, Object>> wkfStatus =
-            wkfDisplayService.getWkfStatus(
-                event.getRequest().getBeanClass(), Long.parseLong(values.get("id").toString()));
+            wkfDisplayService.getWkfStatus(beanClass, Long.parseLong(values.get("id").toString()));
         if (wkfStatus.isEmpty()) {
           wkfStatus = null;
         }
@@ -179,6 +166,54 @@ public class WkfRequestListener {
     }
   }
 
+  /** Fills the statuses of all the records of a search response at once. */
+  @SuppressWarnings("all")
+  public void onSearch(@Observes @Named(RequestEvent.SEARCH) PostRequest event) {
+
+    Object data = event.getResponse().getData();
+    if (!(data instanceof List)) {
+      return;
+    }
+
+    Class<?> beanClass = event.getRequest().getBeanClass();
+    Map<Long, Map> recordMap = new LinkedHashMap<>();
+    for (Object obj : (List) data) {
+      if (obj instanceof Map) {
+        Map values = (Map) obj;
+        if (values.get("id") != null && isWkfModel(beanClass, values)) {
+          recordMap.put(Long.parseLong(values.get("id").toString()), values);
+        }
+      }
+    }
+    if (recordMap.isEmpty()) {
+      return;
+    }
+
+    Map<Long, List<Map<String, Object>>> statusMap =
+        wkfDisplayService.getWkfStatus(beanClass, recordMap.keySet());
+    recordMap.forEach(
+        (id, values) -> {
+          List<Map<String, Object>> wkfStatus = statusMap.get(id);
+          values.put("$wkfStatus", wkfStatus == null || wkfStatus.isEmpty() ? null : wkfStatus);
+        });
+  }
+
+  /** Records of models without process are skipped, without any query. */
+  protected boolean isWkfModel(Class<?> beanClass, Map<?, ?> values) {
+    if (beanClass == null) {
+      return false;
+    }
+    String modelName = beanClass.getName();
+    if (MetaJsonRecord.class.equals(beanClass)) {
+      Object jsonModel = values.get("jsonModel");
+      if (jsonModel == null) {
+        return true;
+      }
+      modelName = jsonModel.toString();
+    }
+    return WkfCache.isWkfModel(BpmTools.getCurentTenant(), modelName);
+  }
+
   @Transactional(rollbackOn = Exception.class)
   public void processDeleted(Set<? extends Model> deleted, String tenantId, Integer source) {
 
@@ -188,7 +223,7 @@ public class WkfRequestListener {
         modelName = ((MetaJsonRecord) model).getJsonModel();
       }
 
-      if (WkfCache.WKF_MODEL_CACHE.get(tenantId).containsValue(modelName)) {
+      if (WkfCache.isWkfModel(tenantId, modelName)) {
         log.trace("Remove wkf instance of deleted model: {}, id: {}", modelName, model.getId());
         WkfInstance wkfInstance = wkfInstanceRepo.findByInstanceId(model.getProcessInstanceId());
         if (wkfInstance != null
@@ -20,34 +20,26 @@ package com.axelor.studio.bpm.listener;
 import com.axelor.studio.baml.tools.BpmTools;
 import com.axelor.studio.bpm.context.WkfCache;
 import com.axelor.studio.db.WkfTaskConfig;
-import java.util.Arrays;
 import javax.persistence.PostPersist;
 import javax.persistence.PostRemove;
 import javax.persistence.PostUpdate;
-import org.apache.commons.collections.map.MultiValueMap;
 
 public class WkfTaskConfigListener {
 
   @PostPersist
   @PostUpdate
   public void onSave(WkfTaskConfig config) {
-    if (config.getButton() != null) {
-      String tenantId = BpmTools.getCurentTenant();
-      if (!WkfCache.WKF_BUTTON_CACHE.containsKey(tenantId)) {
-        WkfCache.WKF_BUTTON_CACHE.put(tenantId, new MultiValueMap());
-      }
-      onRemove(config);
-      Arrays.asList(config.getButton().split(","))
-          .forEach(btnName -> WkfCache.WKF_BUTTON_CACHE.get(tenantId).put(config.getId(), btnName));
-    }
+    WkfCache.updateTaskConfig(BpmTools.getCurentTenant(), config);
+    WkfCache.invalidateTaskConfigs(BpmTools.getCurentTenant());
+    WkfCache.invalidateTaskDisplays(BpmTools.getCurentTenant());
+    WkfCache.invalidateMenuNodes(BpmTools.getCurentTenant());
   }
 
   @PostRemove
   public void onRemove(WkfTaskConfig config) {
-
-    String tenantId = BpmTools.getCurentTenant();
-    if (WkfCache.WKF_BUTTON_CACHE.containsKey(tenantId)) {
-      WkfCache.WKF_BUTTON_CACHE.get(tenantId).remove(config.getId());
-    }
+    WkfCache.removeTaskConfig(BpmTools.getCurentTenant(), config.getId());
+    WkfCache.invalidateTaskConfigs(BpmTools.getCurentTenant());
+    WkfCache.invalidateTaskDisplays(BpmTools.getCurentTenant());
+    WkfCache.invalidateMenuNodes(BpmTools.getCurentTenant());
   }
 }
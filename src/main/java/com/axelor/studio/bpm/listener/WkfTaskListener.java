@@ -1,7 +1,9 @@
 package com.axelor.studio.bpm.listener;
 
+import com.axelor.studio.bpm.service.dashboard.WkfNodeStatisticService;
 import com.axelor.studio.db.WkfTaskConfig;
 import com.axelor.studio.db.repo.WkfTaskConfigRepository;
+import com.axelor.studio.service.AppSettingsStudioService;
 import com.axelor.team.db.TeamTask;
 import com.axelor.team.db.repo.TeamTaskRepository;
 import com.google.inject.Inject;
@@ -16,13 +18,20 @@ public class WkfTaskListener implements TaskListener {
 
   protected WkfTaskConfigRepository taskConfigRepo;
   protected TeamTaskRepository teamTaskRepository;
+  protected AppSettingsStudioService appSettingsStudioService;
+  protected WkfNodeStatisticService wkfNodeStatisticService;
   private static String EVENT_NAME_DELETE = "delete";
 
   @Inject
   public WkfTaskListener(
-      WkfTaskConfigRepository wkfTaskConfigRepo, TeamTaskRepository teamTaskRepository) {
+      WkfTaskConfigRepository wkfTaskConfigRepo,
+      TeamTaskRepository teamTaskRepository,
+      AppSettingsStudioService appSettingsStudioService,
+      WkfNodeStatisticService wkfNodeStatisticService) {
     this.taskConfigRepo = wkfTaskConfigRepo;
     this.teamTaskRepository = teamTaskRepository;
+    this.appSettingsStudioService = appSettingsStudioService;
+    this.wkfNodeStatisticService = wkfNodeStatisticService;
   }
 
   @Override
@@ -30,6 +39,14 @@ public class WkfTaskListener implements TaskListener {
   public void notify(DelegateTask delegateTask) {
     String eventName = delegateTask.getEventName();
 
+    if (EVENTNAME_COMPLETE.equals(eventName) && appSettingsStudioService.isBpmStatisticsEnabled()) {
+      wkfNodeStatisticService.onTaskComplete(
+          delegateTask.getProcessDefinitionId(),
+          delegateTask.getTaskDefinitionKey(),
+          calculateDurationTask(delegateTask));
+      return;
+    }
+
     if (EVENT_NAME_DELETE.equals(eventName)) {
       // Task has been cancelled
       WkfTaskConfig wkfTaskConfig =
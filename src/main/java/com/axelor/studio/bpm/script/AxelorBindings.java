@@ -0,0 +1,145 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.bpm.script;
+
+import com.axelor.app.AppSettings;
+import com.axelor.auth.AuthUtils;
+import com.axelor.inject.Beans;
+import com.axelor.script.GroovyScriptHelper;
+import com.axelor.studio.baml.tools.BpmTools;
+import com.axelor.studio.bpm.context.WkfCache;
+import com.axelor.studio.bpm.context.WkfContextHelper;
+import com.axelor.studio.bpm.context.WkfProcessHelper;
+import com.axelor.studio.bpm.transformation.WkfTransformationHelper;
+import com.axelor.studio.bpm.utils.BpmLoggingHelper;
+import com.axelor.studio.helper.MigrationHelper;
+import com.axelor.utils.helpers.context.FullContext;
+import com.google.common.collect.ImmutableMap;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import javax.script.Bindings;
+import javax.script.SimpleBindings;
+
+/**
+ * Script bindings backed by the caller bindings and completed with the studio helpers. Helpers are
+ * shared, per evaluation values and custom variables are only computed when a script reads them.
+ */
+public class AxelorBindings extends SimpleBindings {
+
+  protected static final Map<String, Object> SHARED_BINDINGS =
+      ImmutableMap.<String, Object>builder()
+          .put("__ctx__", WkfContextHelper.class)
+          .put("__beans__", Beans.class)
+          .put("__transform__", WkfTransformationHelper.class)
+          .put("__log__", BpmLoggingHelper.get())
+          .put("__migration__", MigrationHelper.class)
+          .put("__process__", WkfProcessHelper.class)
+          .build();
+
+  protected static final Map<String, Supplier<Object>> LAZY_BINDINGS =
+      ImmutableMap.<String, Supplier<Object>>builder()
+          .put("__studiouser__", AxelorBindings::getStudioUser)
+          .put("__date__", LocalDate::now)
+          .put("__time__", LocalTime::now)
+          .put("__datetime__", LocalDateTime::now)
+          .put("__config__", AppSettings::get)
+          .build();
+
+  protected final Map<String, Object> resolved = new HashMap<>();
+  protected final Set<String> resolving = new HashSet<>();
+  protected final Set<String> assigned = new HashSet<>();
+  protected Map<String, String> customVariables;
+
+  public AxelorBindings(Bindings bindings) {
+    super(bindings);
+  }
+
+  @Override
+  public Object put(String name, Object value) {
+    assigned.add(name);
+    return super.put(name, value);
+  }
+
+  @Override
+  public Object remove(Object key) {
+    assigned.remove(key);
+    return super.remove(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return assigned.contains(key)
+        || SHARED_BINDINGS.containsKey(key)
+        || resolved.containsKey(key)
+        || LAZY_BINDINGS.containsKey(key)
+        || super.containsKey(key)
+        || getCustomVariables().containsKey(key);
+  }
+
+  // Helpers and custom variables hide the caller values, unless these were set afterwards.
+  @Override
+  public Object get(Object key) {
+    if (assigned.contains(key)) {
+      return super.get(key);
+    }
+    if (SHARED_BINDINGS.containsKey(key)) {
+      return SHARED_BINDINGS.get(key);
+    }
+    if (resolved.containsKey(key)) {
+      return resolved.get(key);
+    }
+    if (LAZY_BINDINGS.containsKey(key)) {
+      Object value = LAZY_BINDINGS.get(key).get();
+      resolved.put((String) key, value);
+      return value;
+    }
+
+    String expression = key instanceof String ? getCustomVariables().get(key) : null;
+    if (expression == null) {
+      return super.get(key);
+    }
+    if (!resolving.add((String) key)) {
+      return null;
+    }
+    try {
+      Object value = new GroovyScriptHelper(this).eval(expression);
+      resolved.put((String) key, value);
+      return value;
+    } finally {
+      resolving.remove(key);
+    }
+  }
+
+  protected Map<String, String> getCustomVariables() {
+    if (customVariables == null) {
+      customVariables = WkfCache.getCustomVariables(BpmTools.getCurentTenant());
+    }
+    return customVariables;
+  }
+
+  protected static FullContext getStudioUser() {
+    return new FullContext(
+        AuthUtils.getUser() != null ? AuthUtils.getUser() : AuthUtils.getUser("admin"));
+  }
+}
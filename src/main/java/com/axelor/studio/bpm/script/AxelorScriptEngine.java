@@ -17,14 +17,11 @@
  */
 package com.axelor.studio.bpm.script;
 
-import com.axelor.db.tenants.TenantAware;
 import com.axelor.inject.Beans;
 import com.axelor.script.GroovyScriptHelper;
-import com.axelor.studio.baml.tools.BpmTools;
 import com.axelor.studio.bpm.exception.AxelorScriptEngineException;
 import com.axelor.studio.bpm.service.log.WkfLogService;
 import com.axelor.studio.bpm.service.message.BpmErrorMessageService;
-import java.util.concurrent.Executors;
 import javax.script.Bindings;
 import javax.script.CompiledScript;
 import javax.script.ScriptContext;
@@ -51,18 +48,7 @@ public class AxelorScriptEngine extends GroovyScriptEngineImpl {
     } catch (Exception e) {
       PvmExecutionImpl execution = (PvmExecutionImpl) bindings.get("execution");
       Beans.get(WkfLogService.class).writeLog(execution.getProcessInstanceId());
-      var executorService = Executors.newSingleThreadExecutor();
-      executorService.submit(
-          () ->
-              new TenantAware(
-                      () -> {
-                        Beans.get(BpmErrorMessageService.class)
-                            .sendBpmErrorMessage(execution, e.getMessage(), null, null);
-                      })
-                  .withTransaction(false)
-                  .tenantId(BpmTools.getCurentTenant())
-                  .run());
-      executorService.shutdown();
+      Beans.get(BpmErrorMessageService.class).notifyBpmError(execution, e.getMessage(), null, null);
       throw new AxelorScriptEngineException(e);
     }
     return object;
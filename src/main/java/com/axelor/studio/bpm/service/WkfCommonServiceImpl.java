@@ -27,6 +27,9 @@ import com.axelor.meta.db.repo.MetaJsonFieldRepository;
 import com.axelor.rpc.Context;
 import com.axelor.script.GroovyScriptHelper;
 import com.axelor.studio.app.service.AppService;
+import com.axelor.studio.baml.tools.BpmTools;
+import com.axelor.studio.bpm.context.WkfCache;
+import com.axelor.studio.bpm.context.WkfCache.ProcessConfigEntry;
 import com.axelor.studio.bpm.context.WkfContextHelper;
 import com.axelor.studio.bpm.script.AxelorBindingsHelper;
 import com.axelor.studio.db.WkfProcessConfig;
@@ -43,7 +46,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
-import javax.script.Bindings;
 import javax.script.SimpleBindings;
 import org.camunda.bpm.engine.impl.bpmn.parser.BpmnParser;
 import org.camunda.bpm.engine.impl.variable.serializer.jpa.JPAVariableSerializer;
@@ -92,36 +94,58 @@ public class WkfCommonServiceImpl implements WkfCommonService {
 
   protected WkfProcessConfig findProcessConfig(Model model, boolean isActive, int status) {
 
-    List<WkfProcessConfig> configs =
-        wkfProcessConfigRepository
-            .all()
-            .filter(
-                "(self.metaModel.fullName = ?1 OR self.metaJsonModel.name = ?1) "
-                    + "AND self.wkfProcess.wkfModel.statusSelect = ?2 "
-                    + "AND self.wkfProcess.wkfModel.isActive is ?3 "
-                    + "AND (self.isStartModel is true OR (SELECT COUNT(id) from self.wkfProcess.wkfModel.wkfProcessList.wkfProcessConfigList wkp WHERE wkp.isStartModel IS TRUE) > 0)",
-                getModelName(model),
-                status,
-                isActive)
-            .order("pathCondition")
-            .fetch();
-
-    Map<String, Object> ctxMap = new HashMap<>();
-    ctxMap.put(getVarName(model), new FullContext(model));
-
-    for (WkfProcessConfig config : configs) {
+    String modelName = getModelName(model);
+    List<ProcessConfigEntry> entries =
+        WkfCache.getProcessConfigs(
+            BpmTools.getCurentTenant(),
+            modelName + "|" + isActive + "|" + status,
+            key -> loadProcessConfigs(modelName, isActive, status));
+
+    GroovyScriptHelper helper = null;
+    for (ProcessConfigEntry entry : entries) {
       boolean condition = true;
-      if (config.getPathCondition() != null) {
-        condition = (boolean) evalExpression(ctxMap, config.getPathCondition());
+      if (entry.getCondition() != null) {
+        if (helper == null) {
+          Map<String, Object> ctxMap = new HashMap<>();
+          ctxMap.put(getVarName(model), new FullContext(model));
+          helper = createScriptHelper(ctxMap);
+        }
+        condition = (boolean) helper.eval(entry.getCondition());
       }
       if (condition) {
-        return config;
+        return wkfProcessConfigRepository.find(entry.getId());
       }
     }
 
     return null;
   }
 
+  protected List<ProcessConfigEntry> loadProcessConfigs(
+      String modelName, boolean isActive, int status) {
+
+    return wkfProcessConfigRepository
+        .all()
+        .filter(
+            "(self.metaModel.fullName = ?1 OR self.metaJsonModel.name = ?1) "
+                + "AND self.wkfProcess.wkfModel.statusSelect = ?2 "
+                + "AND self.wkfProcess.wkfModel.isActive is ?3 "
+                + "AND (self.isStartModel is true OR (SELECT COUNT(id) from self.wkfProcess.wkfModel.wkfProcessList.wkfProcessConfigList wkp WHERE wkp.isStartModel IS TRUE) > 0)",
+            modelName,
+            status,
+            isActive)
+        .order("pathCondition")
+        .fetch()
+        .stream()
+        .map(
+            config ->
+                new ProcessConfigEntry(
+                    config.getId(),
+                    Strings.isNullOrEmpty(config.getPathCondition())
+                        ? null
+                        : normalizeExpression(config.getPathCondition())))
+        .collect(Collectors.toList());
+  }
+
   @Override
   public Object evalExpression(Map<String, Object> varMap, String expr) {
 
@@ -129,11 +153,26 @@ public class WkfCommonServiceImpl implements WkfCommonService {
       return null;
     }
 
+    expr = normalizeExpression(expr);
+
+    GroovyScriptHelper helper = createScriptHelper(varMap);
+    Object result = null;
+
+    result = helper.eval(expr);
+
+    log.debug("Eval expr: {}, result: {}", expr, result);
+    return result;
+  }
+
+  protected String normalizeExpression(String expr) {
     if (expr.startsWith("${") && expr.endsWith("}")) {
       expr = expr.replaceFirst("\\$\\{", "");
       expr = expr.substring(0, expr.length() - 1);
     }
+    return expr;
+  }
 
+  protected GroovyScriptHelper createScriptHelper(Map<String, Object> varMap) {
     GroovyScriptHelper helper;
     if (varMap instanceof Context) {
       helper = new GroovyScriptHelper((Context) varMap);
@@ -142,14 +181,8 @@ public class WkfCommonServiceImpl implements WkfCommonService {
       simpleBindings.putAll(varMap);
       helper = new GroovyScriptHelper(simpleBindings);
     }
-    Bindings bindings = helper.getBindings();
-    bindings = AxelorBindingsHelper.getBindings(bindings);
-    Object result = null;
-
-    result = helper.eval(expr);
-
-    log.debug("Eval expr: {}, result: {}", expr, result);
-    return result;
+    helper.setBindings(AxelorBindingsHelper.getBindings(helper.getBindings()));
+    return helper;
   }
 
   @Override
@@ -20,6 +20,7 @@ package com.axelor.studio.bpm.service;
 import com.axelor.meta.CallMethod;
 import com.axelor.studio.db.WkfInstance;
 import com.axelor.studio.db.WkfModel;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -32,4 +33,7 @@ public interface WkfDisplayService {
   public String getWkfNodeCountUrl(WkfModel wkfModel);
 
   public List<Map<String, Object>> getWkfStatus(Class<?> klass, Long id);
+
+  /** Statuses of the given records by id, the ones without status being left out. */
+  public Map<Long, List<Map<String, Object>>> getWkfStatus(Class<?> klass, Collection<Long> ids);
 }
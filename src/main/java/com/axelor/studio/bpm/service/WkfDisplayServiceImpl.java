@@ -20,21 +20,22 @@ package com.axelor.studio.bpm.service;
 import com.axelor.auth.AuthUtils;
 import com.axelor.auth.db.User;
 import com.axelor.db.JPA;
-import com.axelor.db.Model;
 import com.axelor.meta.CallMethod;
 import com.axelor.meta.db.MetaJsonRecord;
+import com.axelor.studio.baml.tools.BpmTools;
+import com.axelor.studio.bpm.context.WkfCache;
 import com.axelor.studio.bpm.service.execution.WkfInstanceService;
 import com.axelor.studio.bpm.service.init.ProcessEngineService;
 import com.axelor.studio.db.WkfInstance;
 import com.axelor.studio.db.WkfModel;
 import com.axelor.studio.db.WkfProcess;
-import com.axelor.studio.db.WkfTaskConfig;
 import com.axelor.studio.db.repo.WkfInstanceRepository;
 import com.axelor.studio.db.repo.WkfTaskConfigRepository;
 import com.google.common.base.Joiner;
 import com.google.inject.Inject;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -50,6 +51,7 @@ import org.camunda.bpm.engine.history.HistoricActivityInstance;
 import org.camunda.bpm.engine.history.HistoricProcessInstanceQuery;
 import org.camunda.bpm.engine.history.HistoricVariableInstance;
 import org.camunda.bpm.engine.history.HistoricVariableInstanceQuery;
+import org.camunda.bpm.engine.history.NativeHistoricActivityInstanceQuery;
 import org.camunda.bpm.model.bpmn.BpmnModelInstance;
 import org.camunda.bpm.model.bpmn.instance.Process;
 import org.slf4j.Logger;
@@ -255,46 +257,164 @@ public class WkfDisplayServiceImpl implements WkfDisplayService {
   @Override
   public List<Map<String, Object>> getWkfStatus(Class<?> klass, Long id) {
 
-    List<Map<String, Object>> statusList = new ArrayList<>();
-
     if (klass == null || id == null) {
-      return statusList;
+      return new ArrayList<>();
     }
 
-    Model model = (Model) JPA.em().find(klass, id);
+    return getWkfStatus(klass, List.of(id)).getOrDefault(id, new ArrayList<>());
+  }
 
-    if (model == null) {
-      return statusList;
-    }
+  @Override
+  public Map<Long, List<Map<String, Object>>> getWkfStatus(Class<?> klass, Collection<Long> ids) {
 
-    String processInstanceId = model.getProcessInstanceId();
+    Map<Long, List<Map<String, Object>>> statusMap = new HashMap<>();
 
-    log.debug("Display wkf nodes of processInstanceId: {}", processInstanceId);
+    if (klass == null || ids == null || ids.isEmpty()) {
+      return statusMap;
+    }
 
-    if (processInstanceId != null) {
+    // Only the columns needed are read, the records being already loaded by the request.
+    boolean isJsonRecord = MetaJsonRecord.class.isAssignableFrom(klass);
+    List<Object[]> rows =
+        JPA.em()
+            .createQuery(
+                "SELECT self.id, self.processInstanceId"
+                    + (isJsonRecord ? ", self.jsonModel" : "")
+                    + " FROM "
+                    + klass.getName()
+                    + " self WHERE self.id IN (:ids) AND self.processInstanceId IS NOT NULL",
+                Object[].class)
+            .setParameter("ids", ids)
+            .getResultList();
+
+    if (rows.isEmpty()) {
+      return statusMap;
+    }
 
-      WkfInstance wkfInstance = wkfInstanceRepo.findByInstanceId(processInstanceId);
+    Set<String> instanceIds = rows.stream().map(row -> (String) row[1]).collect(Collectors.toSet());
+    log.debug("Display wkf nodes of processInstanceIds: {}", instanceIds);
 
+    Map<String, WkfInstance> wkfInstanceMap =
+        wkfInstanceRepo
+            .all()
+            .filter("self.instanceId IN (:ids)")
+            .bind("ids", instanceIds)
+            .fetch()
+            .stream()
+            .collect(
+                Collectors.toMap(WkfInstance::getInstanceId, instance -> instance, (a, b) -> a));
+
+    Map<Long, String> klassNames = new HashMap<>();
+    Map<Long, WkfInstance> displayedInstances = new HashMap<>();
+    for (Object[] row : rows) {
+      WkfInstance wkfInstance = wkfInstanceMap.get(row[1]);
       if (wkfInstance == null) {
-        return statusList;
-      }
-
-      String klassName = klass.getSimpleName();
-      if (model instanceof MetaJsonRecord) {
-        klassName = ((MetaJsonRecord) model).getJsonModel();
+        continue;
       }
-
+      String klassName = isJsonRecord ? (String) row[2] : klass.getSimpleName();
       boolean valid = isValidDisplayModel(klassName, wkfInstance);
-
       log.debug("Is valid model to display wkf nodes : {}", valid);
-      if (!valid) {
-        return statusList;
+      if (valid) {
+        klassNames.put((Long) row[0], klassName);
+        displayedInstances.put((Long) row[0], wkfInstance);
       }
+    }
 
-      addActiveNodes(statusList, wkfInstance, klassName);
+    if (displayedInstances.isEmpty()) {
+      return statusMap;
     }
 
-    return statusList;
+    Map<String, List<HistoricActivityInstance>> activeNodeMap =
+        getActiveNodes(
+            displayedInstances.values().stream()
+                .map(WkfInstance::getInstanceId)
+                .collect(Collectors.toSet()));
+
+    displayedInstances.forEach(
+        (id, wkfInstance) -> {
+          List<Map<String, Object>> statusList = new ArrayList<>();
+          addActiveNodes(
+              statusList,
+              wkfInstance,
+              klassNames.get(id),
+              activeNodeMap.getOrDefault(wkfInstance.getInstanceId(), new ArrayList<>()));
+          statusMap.put(id, statusList);
+        });
+
+    return statusMap;
+  }
+
+  /**
+   * Unfinished activities of the given instances, or the end activity of the completed ones, read
+   * with one query for the active instances.
+   */
+  protected Map<String, List<HistoricActivityInstance>> getActiveNodes(Set<String> instanceIds) {
+
+    ProcessEngine engine = engineService.getEngine();
+    HistoryService historyService = engine.getHistoryService();
+    String table = engine.getManagementService().getTableName(HistoricActivityInstance.class);
+
+    Map<String, List<HistoricActivityInstance>> activeNodeMap =
+        queryActivities(
+                historyService,
+                "SELECT * FROM " + table + " WHERE END_TIME_ IS NULL AND PROC_INST_ID_ IN ",
+                instanceIds)
+            .stream()
+            .collect(Collectors.groupingBy(HistoricActivityInstance::getProcessInstanceId));
+
+    Set<String> inactiveIds = new HashSet<>(instanceIds);
+    inactiveIds.removeAll(activeNodeMap.keySet());
+    if (inactiveIds.isEmpty()) {
+      return activeNodeMap;
+    }
+
+    Map<String, String> endActivityIds = new HashMap<>();
+    historyService
+        .createHistoricProcessInstanceQuery()
+        .processInstanceIds(inactiveIds)
+        .completed()
+        .list()
+        .forEach(
+            instance -> {
+              if (instance.getEndActivityId() != null) {
+                endActivityIds.put(instance.getId(), instance.getEndActivityId());
+              }
+            });
+    if (endActivityIds.isEmpty()) {
+      return activeNodeMap;
+    }
+
+    queryActivities(
+            historyService,
+            "SELECT * FROM " + table + " WHERE PROC_INST_ID_ IN ",
+            endActivityIds.keySet())
+        .stream()
+        .filter(
+            activity ->
+                activity
+                    .getActivityId()
+                    .equals(endActivityIds.get(activity.getProcessInstanceId())))
+        .forEach(
+            activity ->
+                activeNodeMap
+                    .computeIfAbsent(activity.getProcessInstanceId(), k -> new ArrayList<>())
+                    .add(activity));
+
+    return activeNodeMap;
+  }
+
+  protected List<HistoricActivityInstance> queryActivities(
+      HistoryService historyService, String sql, Collection<String> instanceIds) {
+    NativeHistoricActivityInstanceQuery query =
+        historyService.createNativeHistoricActivityInstanceQuery();
+    List<String> parameters = new ArrayList<>();
+    int index = 0;
+    for (String instanceId : instanceIds) {
+      String name = "instanceId" + index++;
+      parameters.add("#{" + name + "}");
+      query.parameter(name, instanceId);
+    }
+    return query.sql(sql + "(" + String.join(", ", parameters) + ")").list();
   }
 
   protected boolean isValidDisplayModel(String klassName, WkfInstance wkfInstance) {
@@ -325,80 +445,57 @@ public class WkfDisplayServiceImpl implements WkfDisplayService {
   }
 
   protected void addActiveNodes(
-      List<Map<String, Object>> statusList, WkfInstance wkfInstance, String klassName) {
-
-    HistoryService historyService = engineService.getEngine().getHistoryService();
-
-    List<HistoricActivityInstance> activeNodes =
-        historyService
-            .createHistoricActivityInstanceQuery()
-            .processInstanceId(wkfInstance.getInstanceId())
-            .unfinished()
-            .list();
-
-    if (activeNodes.isEmpty()) {
-
-      List<String> terminatedNodeIds = getTerminatedActivityIds(wkfInstance.getInstanceId());
-      if (!terminatedNodeIds.isEmpty()) {
-        activeNodes =
-            historyService
-                .createHistoricActivityInstanceQuery()
-                .activityId(terminatedNodeIds.get(0))
-                .processInstanceId(wkfInstance.getInstanceId())
-                .list();
-      }
-    }
+      List<Map<String, Object>> statusList,
+      WkfInstance wkfInstance,
+      String klassName,
+      List<HistoricActivityInstance> activeNodes) {
 
     User activeUser = AuthUtils.getUser();
+    WkfProcess wkfProcess = wkfInstance.getWkfProcess();
+    WkfModel wkfModel = wkfProcess.getWkfModel();
+    WkfCache.TaskDisplayIndex taskDisplays =
+        WkfCache.getTaskDisplays(BpmTools.getCurentTenant(), wkfModel);
 
-    activeNodes.forEach(
-        node -> {
-          boolean valid = isValidNode(node.getActivityId(), wkfInstance.getWkfProcess(), klassName);
-          if (!valid) {
-            return;
-          }
-          String title = node.getActivityName();
-          if (title == null) {
-            title = node.getActivityId();
-          }
+    String color = wkfModel.getWkfStatusColor();
+    if (color == null) {
+      color = "green";
+    }
 
-          String color = wkfInstance.getWkfProcess().getWkfModel().getWkfStatusColor();
-          if (color == null) {
-            color = "green";
-          }
+    for (HistoricActivityInstance node : activeNodes) {
+      boolean valid = isValidNode(node.getActivityId(), wkfProcess, klassName, taskDisplays);
+      if (!valid) {
+        continue;
+      }
+      String title = node.getActivityName();
+      if (title == null) {
+        title = node.getActivityId();
+      }
 
-          Map<String, Object> statusMap = new HashMap<>();
-          statusMap.put("name", node.getActivityId());
-          statusMap.put("title", title);
-          statusMap.put("color", color);
-          if (!activeUser.getNoHelp()) {
-            WkfTaskConfig config =
-                wkfTaskConfigRepository
-                    .all()
-                    .filter(
-                        "self.name = ? and self.wkfModel.id = ?",
-                        node.getActivityId(),
-                        wkfInstance.getWkfProcess().getWkfModel().getId())
-                    .fetchOne();
-            if (config != null) {
-              statusMap.put("help", config.getHelpText());
-            }
-          }
-          statusList.add(statusMap);
-        });
+      Map<String, Object> statusMap = new HashMap<>();
+      statusMap.put("name", node.getActivityId());
+      statusMap.put("title", title);
+      statusMap.put("color", color);
+      if (activeUser != null
+          && !activeUser.getNoHelp()
+          && taskDisplays.hasHelpText(node.getActivityId())) {
+        statusMap.put("help", taskDisplays.getHelpText(node.getActivityId()));
+      }
+      statusList.add(statusMap);
+    }
   }
 
-  protected boolean isValidNode(String activityId, WkfProcess wkfProcess, String klassName) {
+  protected boolean isValidNode(
+      String activityId,
+      WkfProcess wkfProcess,
+      String klassName,
+      WkfCache.TaskDisplayIndex taskDisplays) {
 
-    WkfTaskConfig wkfTaskConfig =
-        wkfTaskConfigRepository
-            .all()
-            .filter("self.processId = ?1 and self.name = ?2", wkfProcess.getProcessId(), activityId)
-            .fetchOne();
+    WkfCache.TaskDisplay taskDisplay =
+        taskDisplays.getDisplay(wkfProcess.getProcessId(), activityId);
 
-    if (wkfTaskConfig != null && wkfTaskConfig.getDisplayStatus()) {
-      if (wkfTaskConfig.getDisplayOnModels() != null) {
-        return containsModel(wkfTaskConfig.getDisplayOnModels(), klassName);
+    if (taskDisplay != null && taskDisplay.getDisplayStatus()) {
+      if (taskDisplay.getDisplayOnModels() != null) {
+        return containsModel(taskDisplay.getDisplayOnModels(), klassName);
       }
       return true;
     }
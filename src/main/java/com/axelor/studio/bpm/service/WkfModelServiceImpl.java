@@ -328,7 +328,6 @@ public class WkfModelServiceImpl implements WkfModelService {
           var computedMap =
               wkfDashboardCommonService.computeStatus(isMetaModel, modelName, process, null, null);
 
-          List<Long> recordIdsPerModel = (List<Long>) computedMap.get("recordIdsPerModel");
           List<Map<String, Object>> statusList =
               (List<Map<String, Object>>) computedMap.get("statuses");
           Map<String, Object> taskMap = (Map<String, Object>) computedMap.get("tasks");
@@ -341,9 +340,11 @@ public class WkfModelServiceImpl implements WkfModelService {
                   ? processConfig.getTitle()
                   : modelName);
           map.put("modelName", modelName);
-          map.put("modelRecordCount", recordIdsPerModel.size());
+          map.put("modelRecordCount", computedMap.get("recordCountPerModel"));
           map.put("isMetaModel", isMetaModel);
-          map.put("recordIdsPerModel", recordIdsPerModel);
+          map.put(
+              WkfDashboardCommonService.QUERIES,
+              computedMap.get(WkfDashboardCommonService.QUERIES));
           map.put("statuses", statusList);
           map.put("tasks", taskMap);
           configList.add(map);
@@ -405,8 +406,6 @@ public class WkfModelServiceImpl implements WkfModelService {
       Map<String, Object> map =
           wkfDashboardCommonService.computeStatus(
               isMetaModel, modelName, process, user, WkfDashboardCommonService.ASSIGNED_ME);
-      List<Long> recordIdsPerModel = (List<Long>) map.get("recordIdsPerModel");
-
       List<Map<String, Object>> statusList = (List<Map<String, Object>>) map.get("statuses");
 
       if (!statusList.isEmpty()) {
@@ -422,9 +421,9 @@ public class WkfModelServiceImpl implements WkfModelService {
           "title",
           !StringUtils.isBlank(processConfig.getTitle()) ? processConfig.getTitle() : modelName);
       modelMap.put("modelName", modelName);
-      modelMap.put("modelRecordCount", recordIdsPerModel.size());
+      modelMap.put("modelRecordCount", map.get("recordCountPerModel"));
       modelMap.put("isMetaModel", isMetaModel);
-      modelMap.put("recordIdsPerModel", recordIdsPerModel);
+      modelMap.put(WkfDashboardCommonService.QUERIES, map.get(WkfDashboardCommonService.QUERIES));
       modelMap.put("statuses", statusList);
       modelMap.put("tasks", taskMap);
       configList.add(modelMap);
@@ -22,6 +22,7 @@ import com.axelor.auth.db.User;
 import com.axelor.studio.db.WkfModel;
 import com.axelor.studio.db.WkfProcess;
 import com.axelor.studio.db.WkfProcessConfig;
+import com.axelor.studio.service.AppSettingsStudioService;
 import com.google.inject.Inject;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -40,14 +41,22 @@ public class BpmManagerDashboardServiceImpl implements BpmManagerDashboardServic
 
   protected BpmManagerDashboardTaskService bpmMgrDashboardTaskService;
 
+  protected WkfNodeStatisticService wkfNodeStatisticService;
+
+  protected AppSettingsStudioService appSettingsStudioService;
+
   @Inject
   public BpmManagerDashboardServiceImpl(
       WkfDashboardCommonService wkfDashboardCommonService,
       BpmManagerDashboardUserService bpmMgrDashboardUserService,
-      BpmManagerDashboardTaskService bpmMgrDashboardTaskService) {
+      BpmManagerDashboardTaskService bpmMgrDashboardTaskService,
+      WkfNodeStatisticService wkfNodeStatisticService,
+      AppSettingsStudioService appSettingsStudioService) {
     this.wkfDashboardCommonService = wkfDashboardCommonService;
     this.bpmMgrDashboardUserService = bpmMgrDashboardUserService;
     this.bpmMgrDashboardTaskService = bpmMgrDashboardTaskService;
+    this.wkfNodeStatisticService = wkfNodeStatisticService;
+    this.appSettingsStudioService = appSettingsStudioService;
   }
 
   @SuppressWarnings({"unchecked", "serial"})
@@ -132,7 +141,8 @@ public class BpmManagerDashboardServiceImpl implements BpmManagerDashboardServic
     public ConfigsHashMap(
         WkfProcessConfig processConfig,
         String modelName,
-        List<Long> recordIdsModel,
+        int recordCount,
+        List<Map<String, Object>> queries,
         boolean isMetaModel,
         List<Map<String, Object>> statusUserList,
         List<Map<String, Object>> statusList) {
@@ -141,9 +151,9 @@ public class BpmManagerDashboardServiceImpl implements BpmManagerDashboardServic
           "title",
           !StringUtils.isBlank(processConfig.getTitle()) ? processConfig.getTitle() : modelName);
       put("modelName", modelName);
-      put("modelRecordCount", recordIdsModel.size());
+      put("modelRecordCount", recordCount);
       put("isMetaModel", isMetaModel);
-      put("recordIdsPerModel", recordIdsModel);
+      put(WkfDashboardCommonService.QUERIES, queries);
       put("userStatuses", statusUserList);
       put("statuses", statusList);
     }
@@ -173,34 +183,42 @@ public class BpmManagerDashboardServiceImpl implements BpmManagerDashboardServic
 
     Map<String, Object> map =
         this.computeAssignedTaskConfigs(process, modelName, isMetaModel, user);
-    List<Long> recordIdsUserPerModel = (List<Long>) map.get("recordIdsUserPerModel");
     List<Map<String, Object>> statusUserList =
         (List<Map<String, Object>>) map.get("statusUserList");
-
-    List<Long> recordIdsPerModel = (List<Long>) map.get("recordIdsPerModel");
     List<Map<String, Object>> statusList = (List<Map<String, Object>>) map.get("statusList");
 
-    List<Long> recordIdsModel = new ArrayList<>();
+    int recordCount = 0;
+    List<Map<String, Object>> queries = new ArrayList<>();
 
     if (isSuperAdmin || isAdmin || isManager) {
-      recordIdsModel.addAll(recordIdsPerModel);
-      recordIdsModel.addAll(recordIdsUserPerModel);
-    } else if (isUser) {
-      recordIdsModel.addAll(recordIdsUserPerModel);
+      recordCount += (int) map.get("recordCountPerModel");
+      queries.addAll((List<Map<String, Object>>) map.get("queriesPerModel"));
+    }
+    if (isSuperAdmin || isAdmin || isManager || isUser) {
+      recordCount += (int) map.get("recordCountUserPerModel");
+      queries.addAll((List<Map<String, Object>>) map.get("queriesUserPerModel"));
     }
 
     configList.add(
         new ConfigsHashMap(
-            processConfig, modelName, recordIdsModel, isMetaModel, statusUserList, statusList));
+            processConfig,
+            modelName,
+            recordCount,
+            queries,
+            isMetaModel,
+            statusUserList,
+            statusList));
   }
 
   private static class TasksHashMap extends HashMap<String, Object> {
 
     public TasksHashMap(Object[] userObj, Object[] obj) {
-      put("recordIdsUserPerModel", userObj[0]);
+      put("recordCountUserPerModel", userObj[0]);
       put("statusUserList", userObj[1]);
-      put("recordIdsPerModel", obj[0]);
+      put("queriesUserPerModel", userObj[3]);
+      put("recordCountPerModel", obj[0]);
       put("statusList", obj[1]);
+      put("queriesPerModel", obj[3]);
     }
   }
 
@@ -246,9 +264,6 @@ public class BpmManagerDashboardServiceImpl implements BpmManagerDashboardServic
         }
         modelList.add(modelName);
 
-        Map<String, Object> map =
-            wkfDashboardCommonService.computeStatus(isMetaModel, modelName, process, null, null);
-
         switch (type) {
           case WkfDashboardCommonService.ASSIGNED_ME:
             bpmMgrDashboardUserService.getAssignedToMeTask(
@@ -262,7 +277,10 @@ public class BpmManagerDashboardServiceImpl implements BpmManagerDashboardServic
 
           case WkfDashboardCommonService.TASK_BY_PROCESS:
             bpmMgrDashboardTaskService.getTaskByProcess(
-                map, process, taskByProcessType, dataMapList);
+                getTaskByProcessData(process, modelName, isMetaModel),
+                process,
+                taskByProcessType,
+                dataMapList);
             break;
           default:
             break;
@@ -271,4 +289,14 @@ public class BpmManagerDashboardServiceImpl implements BpmManagerDashboardServic
     }
     return dataMapList;
   }
+
+  /** Task counts of the process, read from the node statistics when they are maintained. */
+  protected Map<String, Object> getTaskByProcessData(
+      WkfProcess process, String modelName, boolean isMetaModel) {
+    if (appSettingsStudioService.isBpmStatisticsEnabled()) {
+      return Map.of(
+          "tasks", wkfNodeStatisticService.getTaskCounts(process, modelName, isMetaModel));
+    }
+    return wkfDashboardCommonService.computeStatus(isMetaModel, modelName, process, null, null);
+  }
 }
@@ -66,11 +66,8 @@ public class BpmManagerDashboardTaskServiceImpl implements BpmManagerDashboardTa
 
     Map<String, Object> taskMap = (Map<String, Object>) _map.get("tasks");
 
-    List<Long> lateTaskIds = (List<Long>) taskMap.get("lateTaskIds");
-    List<Long> taskTodayIds = (List<Long>) taskMap.get("taskTodayIds");
-    List<Long> taskNextIds = (List<Long>) taskMap.get("taskNextIds");
-
-    int nonTaskCnt = taskTodayIds.size() + taskNextIds.size();
+    int lateTaskCnt = (int) taskMap.get("lateTaskCnt");
+    int nonTaskCnt = (int) taskMap.get("taskTodayCnt") + (int) taskMap.get("taskNextCnt");
 
     final String processName =
         (!StringUtils.isBlank(process.getDescription())
@@ -82,7 +79,7 @@ public class BpmManagerDashboardTaskServiceImpl implements BpmManagerDashboardTa
     dataMap.put(
         "total",
         taskByProcessType.equals(WkfDashboardCommonService.LATE_TASK)
-            ? lateTaskIds.size()
+            ? lateTaskCnt
             : taskByProcessType.equals(WkfDashboardCommonService.NON_LATE_TASK) ? nonTaskCnt : 0);
     dataMap.put("process", processName);
     dataMapList.add(dataMap);
@@ -128,7 +125,6 @@ public class BpmManagerDashboardTaskServiceImpl implements BpmManagerDashboardTa
     return dataMap;
   }
 
-  @SuppressWarnings("unchecked")
   protected List<Long> computeTaskByProcessConfig(
       String modelName,
       boolean isMetaModel,
@@ -147,27 +143,13 @@ public class BpmManagerDashboardTaskServiceImpl implements BpmManagerDashboardTa
                 wkfModel)
             .fetch();
 
-    List<Long> recordIds = new ArrayList<>();
-
-    taskConfigs.forEach(
-        config -> {
-          List<String> processInstanceIds =
-              wkfInstanceService.findProcessInstanceByNode(
-                  config.getName(), config.getProcessId(), config.getType(), false);
-
-          Map<String, Object> taskMap = new HashMap<>();
-          wkfDashboardCommonService.getTasks(
-              config, processInstanceIds, modelName, isMetaModel, null, taskMap, null, null);
-
-          if (typeSelect.equals(WkfDashboardCommonService.NON_LATE_TASK)) {
-            recordIds.addAll(((List<Long>) taskMap.get("taskTodayIds")));
-            recordIds.addAll(((List<Long>) taskMap.get("taskNextIds")));
+    if (!typeSelect.equals(WkfDashboardCommonService.NON_LATE_TASK)
+        && !typeSelect.equals(WkfDashboardCommonService.LATE_TASK)) {
+      return new ArrayList<>();
+    }
 
-          } else if (typeSelect.equals(WkfDashboardCommonService.LATE_TASK)) {
-            recordIds.addAll((List<Long>) taskMap.get("lateTaskIds"));
-          }
-        });
-    return recordIds;
+    return wkfDashboardCommonService.findRecordIds(
+        taskConfigs, modelName, isMetaModel, null, null, typeSelect);
   }
 
   @Override
@@ -23,6 +23,8 @@ import com.axelor.auth.db.repo.UserRepository;
 import com.axelor.db.JPA;
 import com.axelor.db.Model;
 import com.axelor.meta.db.MetaJsonRecord;
+import com.axelor.studio.baml.tools.BpmTools;
+import com.axelor.studio.bpm.context.WkfCache;
 import com.axelor.studio.bpm.service.execution.WkfInstanceService;
 import com.axelor.studio.bpm.service.execution.WkfUserActionService;
 import com.axelor.studio.db.WkfModel;
@@ -38,9 +40,12 @@ import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.stream.Collectors;
 import javax.persistence.Query;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -59,6 +64,8 @@ public class BpmManagerDashboardUserServiceImpl implements BpmManagerDashboardUs
 
   protected UserRepository userRepo;
 
+  protected WkfDashboardQueryService wkfDashboardQueryService;
+
   @Inject
   public BpmManagerDashboardUserServiceImpl(
       WkfUserActionService wkfUserActionService,
@@ -66,13 +73,15 @@ public class BpmManagerDashboardUserServiceImpl implements BpmManagerDashboardUs
       WkfDashboardCommonService wkfDashboardCommonService,
       WkfModelRepository wkfModelRepo,
       WkfTaskConfigRepository wkfTaskConfigRepo,
-      UserRepository userRepo) {
+      UserRepository userRepo,
+      WkfDashboardQueryService wkfDashboardQueryService) {
     this.wkfUserActionService = wkfUserActionService;
     this.wkfInstanceService = wkfInstanceService;
     this.wkfDashboardCommonService = wkfDashboardCommonService;
     this.wkfModelRepo = wkfModelRepo;
     this.wkfTaskConfigRepo = wkfTaskConfigRepo;
     this.userRepo = userRepo;
+    this.wkfDashboardQueryService = wkfDashboardQueryService;
   }
 
   @Override
@@ -214,7 +223,6 @@ public class BpmManagerDashboardUserServiceImpl implements BpmManagerDashboardUs
     return new HashMap<>();
   }
 
-  @SuppressWarnings("unchecked")
   protected List<Long> computeTaskConfig(
       String status,
       WkfTaskConfig config,
@@ -223,97 +231,150 @@ public class BpmManagerDashboardUserServiceImpl implements BpmManagerDashboardUs
       WkfModel wkfModel,
       String type) {
 
-    List<String> processInstanceIds =
-        wkfInstanceService.findProcessInstanceByNode(
-            config.getName(), config.getProcessId(), config.getType(), false);
-
     if (type.equals(WkfDashboardCommonService.ASSIGNED_ME)
         || type.equals(WkfDashboardCommonService.ASSIGNED_OTHER)) {
-      return wkfDashboardCommonService.getStatusRecordIds(
-          config, processInstanceIds, modelName, isMetaModel, AuthUtils.getUser(), type);
+      return wkfDashboardCommonService.findRecordIds(
+          List.of(config), modelName, isMetaModel, AuthUtils.getUser(), type, null);
 
     } else if (type.equals(WkfDashboardCommonService.LATE_TASK)) {
-      Map<String, Object> taskMap = new HashMap<>();
-      wkfDashboardCommonService.getTasks(
-          config, processInstanceIds, modelName, isMetaModel, null, taskMap, null, type);
-
-      List<Long> lateTaskIds = (List<Long>) taskMap.get("lateTaskIds");
-      return lateTaskIds;
+      return wkfDashboardCommonService.findRecordIds(
+          List.of(config), modelName, isMetaModel, null, type, type);
     }
     return new ArrayList<>();
   }
 
   @Override
   public List<Map<String, Object>> getAvgTimePerUserData(WkfModel wkfModel, String unitType) {
-    List<Map<String, Object>> dataMapList = new ArrayList<>();
+    return WkfCache.getDashboardData(
+        BpmTools.getCurentTenant(),
+        "avgTimePerUser",
+        wkfModel.getId(),
+        unitType,
+        () -> computeAvgTimePerUserData(wkfModel, unitType));
+  }
 
-    List<WkfProcess> processes = wkfDashboardCommonService.findProcesses(wkfModel, null);
+  /**
+   * Average times are computed in one query for the user tasks whose user path can be read in SQL,
+   * and record by record for the others.
+   */
+  protected List<Map<String, Object>> computeAvgTimePerUserData(
+      WkfModel wkfModel, String unitType) {
+
+    List<WkfTaskConfig> taskConfigs = getUserTaskConfigs(wkfModel);
+    List<WkfTaskConfig> sqlConfigs = getSqlConfigs(taskConfigs);
+    Map<Long, Map<Long, BigDecimal>> avgTimes =
+        wkfDashboardQueryService.getAvgTimePerUser(sqlConfigs, getUnit(unitType));
+
+    Map<WkfTaskConfig, Map<Long, BigDecimal>> configTimes = new LinkedHashMap<>();
+    for (WkfTaskConfig config : taskConfigs) {
+      configTimes.put(
+          config,
+          sqlConfigs.contains(config)
+              ? avgTimes.getOrDefault(config.getId(), new HashMap<>())
+              : computeAvgTimePerUser(config, unitType));
+    }
 
-    for (WkfProcess process : processes) {
+    Map<Long, String> userNames =
+        getUserNames(
+            configTimes.values().stream()
+                .flatMap(times -> times.keySet().stream())
+                .collect(Collectors.toSet()));
 
-      List<WkfTaskConfig> taskConfigs = getUserTaskConfigs(process);
+    List<Map<String, Object>> dataMapList = new ArrayList<>();
+    configTimes.forEach(
+        (config, times) ->
+            times.forEach(
+                (userId, time) -> {
+                  Map<String, Object> dataMap = new HashMap<>();
+                  dataMap.put("status", config.getDescription());
+                  dataMap.put("time", time);
+                  dataMap.put("user", userNames.get(userId));
+                  dataMapList.add(dataMap);
+                }));
+    return dataMapList;
+  }
 
-      for (WkfTaskConfig config : taskConfigs) {
-        List<String> processInstanceIds =
-            wkfInstanceService.findProcessInstanceByNode(
-                config.getName(), config.getProcessId(), config.getType(), true);
+  protected Map<Long, BigDecimal> computeAvgTimePerUser(WkfTaskConfig config, String unitType) {
 
-        boolean isMetaModel = StringUtils.isNotEmpty(config.getModelName());
-        String modelName = isMetaModel ? config.getModelName() : config.getJsonModelName();
-        String userPath = config.getUserPath();
-        Map<Long, List<BigDecimal>> userTimeMap = new HashMap<>();
-
-        String unit = this.getUnit(unitType);
-
-        String qry =
-            "SELECT CASE WHEN task.end_time_ IS NULL THEN "
-                + "EXTRACT(EPOCH FROM NOW() - task.start_time_) / "
-                + unit
-                + " ELSE "
-                + "EXTRACT(EPOCH FROM task.end_time_ - task.start_time_) / "
-                + unit
-                + " END AS time "
-                + "FROM studio_wkf_task_config config "
-                + "LEFT JOIN act_hi_taskinst task ON task.proc_def_id_ = config.process_id "
-                + "WHERE "
-                + "task.proc_def_id_ = :processInstanceId AND config.description = :desc "
-                + "AND task.proc_inst_id_ = :instanceId";
-
-        Query query = JPA.em().createNativeQuery(qry);
-        query.setParameter("processInstanceId", config.getProcessId());
-        query.setParameter("desc", config.getDescription());
+    List<String> processInstanceIds =
+        wkfInstanceService.findProcessInstanceByNode(
+            config.getName(), config.getProcessId(), config.getType(), true);
+
+    boolean isMetaModel = StringUtils.isNotEmpty(config.getModelName());
+    String modelName = isMetaModel ? config.getModelName() : config.getJsonModelName();
+    String userPath = config.getUserPath();
+    Map<Long, List<BigDecimal>> userTimeMap = new HashMap<>();
+
+    String unit = this.getUnit(unitType);
+
+    String qry =
+        "SELECT CASE WHEN task.end_time_ IS NULL THEN "
+            + "EXTRACT(EPOCH FROM NOW() - task.start_time_) / "
+            + unit
+            + " ELSE "
+            + "EXTRACT(EPOCH FROM task.end_time_ - task.start_time_) / "
+            + unit
+            + " END AS time "
+            + "FROM act_hi_taskinst task "
+            + "WHERE "
+            + "task.proc_def_id_ = :processInstanceId AND task.task_def_key_ = :node "
+            + "AND task.proc_inst_id_ = :instanceId";
+
+    Query query = JPA.em().createNativeQuery(qry);
+    query.setParameter("processInstanceId", config.getProcessId());
+    query.setParameter("node", config.getName());
+
+    if (!isMetaModel) {
+      List<MetaJsonRecord> jsonModelRecords =
+          wkfDashboardCommonService.getMetaJsonRecords(
+              config, processInstanceIds, modelName, null, null, null, null);
+
+      jsonModelRecords.forEach(
+          record -> this.computeAvgTimePerUser(query, record, userPath, userTimeMap));
+    } else {
+      List<Model> modelRecords =
+          wkfDashboardCommonService.getMetaModelRecords(
+              config, processInstanceIds, modelName, null, null, null, null);
 
-        if (!isMetaModel) {
-          List<MetaJsonRecord> jsonModelRecords =
-              wkfDashboardCommonService.getMetaJsonRecords(
-                  config, processInstanceIds, modelName, null, null, null, null);
+      modelRecords.forEach(
+          record -> this.computeAvgTimePerUser(query, record, userPath, userTimeMap));
+    }
 
-          jsonModelRecords.forEach(
-              record -> this.computeAvgTimePerUser(query, record, userPath, userTimeMap));
-        } else {
-          List<Model> modelRecords =
-              wkfDashboardCommonService.getMetaModelRecords(
-                  config, processInstanceIds, modelName, null, null, null, null);
+    Map<Long, BigDecimal> avgTimes = new LinkedHashMap<>();
+    userTimeMap.forEach(
+        (key, value) ->
+            avgTimes.put(
+                key,
+                value.stream()
+                    .reduce(BigDecimal.ZERO, BigDecimal::add)
+                    .divide(new BigDecimal(value.size()), RoundingMode.HALF_UP)));
+    return avgTimes;
+  }
 
-          modelRecords.forEach(
-              record -> this.computeAvgTimePerUser(query, record, userPath, userTimeMap));
-        }
+  protected List<WkfTaskConfig> getUserTaskConfigs(WkfModel wkfModel) {
+    return wkfDashboardCommonService.findProcesses(wkfModel, null).stream()
+        .flatMap(process -> getUserTaskConfigs(process).stream())
+        .collect(Collectors.toList());
+  }
 
-        userTimeMap.forEach(
-            (key, value) -> {
-              Map<String, Object> dataMap = new HashMap<>();
-              dataMap.put("status", config.getDescription());
-              dataMap.put(
-                  "time",
-                  value.stream()
-                      .reduce(BigDecimal.ZERO, BigDecimal::add)
-                      .divide(new BigDecimal(value.size()), RoundingMode.HALF_UP));
-              dataMap.put("user", userRepo.find(key).getName());
-              dataMapList.add(dataMap);
-            });
-      }
+  protected List<WkfTaskConfig> getSqlConfigs(List<WkfTaskConfig> taskConfigs) {
+    return taskConfigs.stream()
+        .filter(wkfDashboardQueryService::isUserPathSupported)
+        .collect(Collectors.toList());
+  }
+
+  protected Map<Long, String> getUserNames(Set<Long> userIds) {
+    Map<Long, String> userNames = new HashMap<>();
+    if (userIds.isEmpty()) {
+      return userNames;
     }
-    return dataMapList;
+    userRepo
+        .all()
+        .filter("self.id IN (:ids)")
+        .bind("ids", userIds)
+        .fetch()
+        .forEach(user -> userNames.put(user.getId(), user.getName()));
+    return userNames;
   }
 
   protected List<WkfTaskConfig> getUserTaskConfigs(WkfProcess wkfProcess) {
@@ -361,69 +422,81 @@ public class BpmManagerDashboardUserServiceImpl implements BpmManagerDashboardUs
 
   @Override
   public List<Map<String, Object>> getTaskDoneTodayPerUser(WkfModel wkfModel) {
-    List<Map<String, Object>> dataMapList = new ArrayList<>();
+    return WkfCache.getDashboardData(
+        BpmTools.getCurentTenant(),
+        "taskDoneTodayPerUser",
+        wkfModel.getId(),
+        null,
+        () -> computeTaskDoneTodayPerUser(wkfModel));
+  }
 
-    List<WkfProcess> processes = wkfDashboardCommonService.findProcesses(wkfModel, null);
+  protected List<Map<String, Object>> computeTaskDoneTodayPerUser(WkfModel wkfModel) {
+
+    List<WkfTaskConfig> taskConfigs = getUserTaskConfigs(wkfModel);
+    List<WkfTaskConfig> sqlConfigs = getSqlConfigs(taskConfigs);
 
-    Map<Long, BigInteger> userMap = new HashMap<>();
-
-    processes.stream()
-        .map(process -> getUserTaskConfigs(process))
-        .forEach(
-            taskConfigs ->
-                taskConfigs.forEach(
-                    config -> {
-                      List<String> processInstanceIds =
-                          wkfInstanceService.findProcessInstanceByNode(
-                              config.getName(), config.getProcessId(), config.getType(), false);
-
-                      boolean isMetaModel = StringUtils.isNotEmpty(config.getModelName());
-                      String modelName =
-                          isMetaModel ? config.getModelName() : config.getJsonModelName();
-                      String userPath = config.getUserPath();
-
-                      String qry =
-                          "SELECT COUNT(task.id_) AS total "
-                              + "FROM studio_wkf_task_config config "
-                              + "LEFT JOIN act_hi_taskinst task ON task.proc_def_id_ = config.process_id "
-                              + "WHERE "
-                              + "task.proc_def_id_ = :processInstanceId AND config.description = :desc "
-                              + "AND task.proc_inst_id_ = :instanceId "
-                              + "AND DATE(task.end_time_) = CURRENT_DATE";
-
-                      Query query = JPA.em().createNativeQuery(qry);
-                      query.setParameter("processInstanceId", config.getProcessId());
-                      query.setParameter("desc", config.getDescription());
-
-                      if (!isMetaModel) {
-                        List<MetaJsonRecord> jsonModelRecords =
-                            wkfDashboardCommonService.getMetaJsonRecords(
-                                config, processInstanceIds, modelName, null, null, null, null);
-
-                        jsonModelRecords.forEach(
-                            record ->
-                                this.computeTaskDonePerUser(query, record, userPath, userMap));
-                      } else {
-                        List<Model> modelRecords =
-                            wkfDashboardCommonService.getMetaModelRecords(
-                                config, processInstanceIds, modelName, null, null, null, null);
-
-                        modelRecords.forEach(
-                            record ->
-                                this.computeTaskDonePerUser(query, record, userPath, userMap));
-                      }
-                    }));
+    Map<Long, Long> userMap =
+        new LinkedHashMap<>(wkfDashboardQueryService.countTasksDoneTodayPerUser(sqlConfigs));
 
+    taskConfigs.stream()
+        .filter(config -> !sqlConfigs.contains(config))
+        .forEach(config -> this.computeTaskDonePerUser(config, userMap));
+
+    Map<Long, String> userNames = getUserNames(userMap.keySet());
+
+    List<Map<String, Object>> dataMapList = new ArrayList<>();
     userMap.forEach(
         (key, value) -> {
           Map<String, Object> dataMap = new HashMap<>();
-          dataMap.put("user", userRepo.find(key).getName());
+          dataMap.put("user", userNames.get(key));
           dataMap.put("total", value);
           dataMapList.add(dataMap);
         });
     return dataMapList;
   }
 
+  protected void computeTaskDonePerUser(WkfTaskConfig config, Map<Long, Long> userMap) {
+
+    List<String> processInstanceIds =
+        wkfInstanceService.findProcessInstanceByNode(
+            config.getName(), config.getProcessId(), config.getType(), false);
+
+    boolean isMetaModel = StringUtils.isNotEmpty(config.getModelName());
+    String modelName = isMetaModel ? config.getModelName() : config.getJsonModelName();
+    String userPath = config.getUserPath();
+
+    String qry =
+        "SELECT COUNT(task.id_) AS total "
+            + "FROM act_hi_taskinst task "
+            + "WHERE "
+            + "task.proc_def_id_ = :processInstanceId AND task.task_def_key_ = :node "
+            + "AND task.proc_inst_id_ = :instanceId "
+            + "AND DATE(task.end_time_) = CURRENT_DATE";
+
+    Query query = JPA.em().createNativeQuery(qry);
+    query.setParameter("processInstanceId", config.getProcessId());
+    query.setParameter("node", config.getName());
+
+    Map<Long, BigInteger> configUserMap = new HashMap<>();
+    if (!isMetaModel) {
+      List<MetaJsonRecord> jsonModelRecords =
+          wkfDashboardCommonService.getMetaJsonRecords(
+              config, processInstanceIds, modelName, null, null, null, null);
+
+      jsonModelRecords.forEach(
+          record -> this.computeTaskDonePerUser(query, record, userPath, configUserMap));
+    } else {
+      List<Model> modelRecords =
+          wkfDashboardCommonService.getMetaModelRecords(
+              config, processInstanceIds, modelName, null, null, null, null);
+
+      modelRecords.forEach(
+          record -> this.computeTaskDonePerUser(query, record, userPath, configUserMap));
+    }
+
+    configUserMap.forEach((key, value) -> userMap.merge(key, value.longValue(), Long::sum));
+  }
+
   protected void computeTaskDonePerUser(
       Query query, Model record, String userPath, Map<Long, BigInteger> userMap) {
 
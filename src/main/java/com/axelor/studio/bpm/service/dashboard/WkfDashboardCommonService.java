@@ -25,6 +25,7 @@ public interface WkfDashboardCommonService {
   static final String NON_LATE_TASK = "nonLateTask";
   static final String NUM_LATE_TASK = "Number of late tasks";
   static final String NUM_VALIDATE_TASK = "Number of tasks validated";
+  static final String QUERIES = "wkfQueries";
 
   List<WkfProcess> findProcesses(WkfModel wkfModel, String processName);
 
@@ -44,6 +45,21 @@ public interface WkfDashboardCommonService {
       boolean withTask,
       String assignedType);
 
+  /**
+   * Record ids of the given counter queries, as computed by {@link #computeTaskConfig}. The type is
+   * a deadline type, {@link #NON_LATE_TASK} or null for all the records at the nodes.
+   */
+  List<Long> findRecordIds(
+      List<Map<String, Object>> queries, String modelName, boolean isMetaModel, String type);
+
+  List<Long> findRecordIds(
+      List<WkfTaskConfig> taskConfigs,
+      String modelName,
+      boolean isMetaModel,
+      User user,
+      String assignedType,
+      String type);
+
   List<MetaJsonRecord> getMetaJsonRecords(
       WkfTaskConfig config,
       List<String> processInstanceIds,
@@ -17,6 +17,7 @@
  */
 package com.axelor.studio.bpm.service.dashboard;
 
+import com.axelor.auth.AuthUtils;
 import com.axelor.auth.db.User;
 import com.axelor.common.Inflector;
 import com.axelor.db.JPA;
@@ -46,8 +47,11 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -60,6 +64,7 @@ public class WkfDashboardCommonServiceImpl implements WkfDashboardCommonService
   protected MetaJsonRecordRepository metaJsonRecordRepo;
   protected MetaModelRepository metaModelRepo;
   protected MetaJsonModelRepository metaJsonModelRepo;
+  protected WkfDashboardQueryService wkfDashboardQueryService;
 
   @Inject
   public WkfDashboardCommonServiceImpl(
@@ -68,13 +73,15 @@ public class WkfDashboardCommonServiceImpl implements WkfDashboardCommonService
       WkfInstanceService wkfInstanceService,
       MetaJsonRecordRepository metaJsonRecordRepo,
       MetaModelRepository metaModelRepo,
-      MetaJsonModelRepository metaJsonModelRepo) {
+      MetaJsonModelRepository metaJsonModelRepo,
+      WkfDashboardQueryService wkfDashboardQueryService) {
     this.wkfProcessRepo = wkfProcessRepo;
     this.wkfTaskConfigRepo = wkfTaskConfigRepo;
     this.wkfInstanceService = wkfInstanceService;
     this.metaJsonRecordRepo = metaJsonRecordRepo;
     this.metaModelRepo = metaModelRepo;
     this.metaJsonModelRepo = metaJsonModelRepo;
+    this.wkfDashboardQueryService = wkfDashboardQueryService;
   }
 
   @Override
@@ -183,9 +190,10 @@ public class WkfDashboardCommonServiceImpl implements WkfDashboardCommonService
     Object[] obj = computeTaskConfig(taskConfigs, modelName, isMetaModel, user, true, assignedType);
 
     HashMap<String, Object> map = new HashMap<>();
-    map.put("recordIdsPerModel", obj[0]);
+    map.put("recordCountPerModel", obj[0]);
     map.put("statuses", obj[1]);
     map.put("tasks", obj[2]);
+    map.put(QUERIES, obj[3]);
     return map;
   }
 
@@ -211,7 +219,13 @@ public class WkfDashboardCommonServiceImpl implements WkfDashboardCommonService
     return wkfTaskConfigRepo.all().filter(filter).bind("processId", process.getProcessId()).fetch();
   }
 
+  /**
+   * Counts the records per node and deadline type. The nodes whose paths can be read in SQL are
+   * counted with one query, the others through their process instances. Record ids are not loaded:
+   * each counter carries the queries to run when it is opened.
+   */
   @Override
+  @SuppressWarnings("unchecked")
   public Object[] computeTaskConfig(
       List<WkfTaskConfig> taskConfigs,
       String modelName,
@@ -221,55 +235,221 @@ public class WkfDashboardCommonServiceImpl implements WkfDashboardCommonService
       String assignedType) {
 
     List<Map<String, Object>> statusList = new ArrayList<>();
-    List<Long> recordIdsPerModel = new ArrayList<>();
     List<Map<String, Object>> taskCntMapList = new ArrayList<>();
     Map<String, Object> taskMap = new HashMap<>();
 
-    taskConfigs.forEach(
-        config -> {
-          List<String> processInstanceIds =
-              wkfInstanceService.findProcessInstanceByNode(
-                  config.getName(), config.getProcessId(), config.getType(), false);
-
-          List<Long> recordStatusIds =
-              getStatusRecordIds(
-                  config, processInstanceIds, modelName, isMetaModel, user, assignedType);
-
-          if (withTask) {
-            getTasks(
-                config,
-                processInstanceIds,
-                modelName,
-                isMetaModel,
-                user,
-                taskMap,
-                taskCntMapList,
-                assignedType);
-          }
-
-          if (CollectionUtils.isNotEmpty(recordStatusIds)) {
-            recordIdsPerModel.addAll(recordStatusIds);
-            Map<String, Object> map = new HashMap<>();
-            String title =
-                !StringUtils.isBlank(config.getDescription())
-                    ? config.getDescription()
-                    : config.getName();
-            map.put("title", title);
-            map.put("isMetaModel", isMetaModel);
-            map.put("modelName", modelName);
-            map.put("statusCount", recordStatusIds.size());
-            map.put("statusRecordIds", recordStatusIds);
-            statusList.add(map);
-          }
-        });
+    List<WkfTaskConfig> sqlConfigs =
+        getSqlConfigs(taskConfigs, modelName, isMetaModel, user, assignedType);
+    WkfDashboardCount count =
+        wkfDashboardQueryService.countRecords(
+            sqlConfigs, modelName, isMetaModel, user, assignedType);
+
+    long recordCount = count.getTotal();
+    long taskTodayCnt = 0;
+    long taskNextCnt = 0;
+    long lateTaskCnt = 0;
+
+    for (WkfTaskConfig config : taskConfigs) {
+      String name = config.getName();
+      long statusCount;
+      long todayCnt = 0;
+      long nextCnt = 0;
+      long lateCnt = 0;
+
+      if (sqlConfigs.contains(config)) {
+        statusCount = count.getCount(name);
+        todayCnt = count.getCount(name, TASK_TODAY);
+        nextCnt = count.getCount(name, TASK_NEXT);
+        lateCnt = count.getCount(name, LATE_TASK);
+
+      } else {
+        List<String> processInstanceIds =
+            wkfInstanceService.findProcessInstanceByNode(
+                name, config.getProcessId(), config.getType(), false);
+
+        statusCount =
+            getStatusRecordIds(
+                    config, processInstanceIds, modelName, isMetaModel, user, assignedType)
+                .size();
+        recordCount += statusCount;
+
+        if (withTask) {
+          Map<String, Object> configTaskMap = new HashMap<>();
+          getTasks(
+              config,
+              processInstanceIds,
+              modelName,
+              isMetaModel,
+              user,
+              configTaskMap,
+              null,
+              assignedType);
+          todayCnt = ((List<Long>) configTaskMap.get("taskTodayIds")).size();
+          nextCnt = ((List<Long>) configTaskMap.get("taskNextIds")).size();
+          lateCnt = ((List<Long>) configTaskMap.get("lateTaskIds")).size();
+        }
+      }
+
+      if (withTask && todayCnt + nextCnt + lateCnt > 0) {
+        Map<String, Object> taskCntMap = new HashMap<>();
+        taskCntMap.put("otherTaskCnt", (int) (todayCnt + nextCnt));
+        taskCntMap.put("lateTaskCnt", (int) lateCnt);
+        taskCntMapList.add(taskCntMap);
+      }
+      taskTodayCnt += todayCnt;
+      taskNextCnt += nextCnt;
+      lateTaskCnt += lateCnt;
+
+      if (statusCount > 0) {
+        Map<String, Object> map = new HashMap<>();
+        String title =
+            !StringUtils.isBlank(config.getDescription()) ? config.getDescription() : name;
+        map.put("title", title);
+        map.put("isMetaModel", isMetaModel);
+        map.put("modelName", modelName);
+        map.put("statusCount", (int) statusCount);
+        map.put(QUERIES, createQueries(List.of(config), user, assignedType));
+        statusList.add(map);
+      }
+    }
+
+    List<Map<String, Object>> queries = createQueries(taskConfigs, user, assignedType);
 
     if (withTask) {
       taskMap.put("isMetaModel", isMetaModel);
       taskMap.put("modelName", modelName);
       taskMap.put("taskCntMapList", taskCntMapList);
+      taskMap.put("taskTodayCnt", (int) taskTodayCnt);
+      taskMap.put("taskNextCnt", (int) taskNextCnt);
+      taskMap.put("lateTaskCnt", (int) lateTaskCnt);
+      taskMap.put(QUERIES, queries);
+    }
+
+    return new Object[] {(int) recordCount, statusList, taskMap, queries};
+  }
+
+  protected List<WkfTaskConfig> getSqlConfigs(
+      List<WkfTaskConfig> taskConfigs,
+      String modelName,
+      boolean isMetaModel,
+      User user,
+      String assignedType) {
+    return taskConfigs.stream()
+        .filter(
+            config ->
+                wkfDashboardQueryService.isSupported(
+                    config, modelName, isMetaModel, user, assignedType))
+        .collect(Collectors.toList());
+  }
+
+  protected List<Map<String, Object>> createQueries(
+      List<WkfTaskConfig> taskConfigs, User user, String assignedType) {
+
+    Map<String, List<String>> nodesPerProcess =
+        taskConfigs.stream()
+            .collect(
+                Collectors.groupingBy(
+                    WkfTaskConfig::getProcessId,
+                    LinkedHashMap::new,
+                    Collectors.mapping(WkfTaskConfig::getName, Collectors.toList())));
+
+    List<Map<String, Object>> queries = new ArrayList<>();
+    nodesPerProcess.forEach(
+        (processId, nodes) -> {
+          Map<String, Object> query = new HashMap<>();
+          query.put("processId", processId);
+          query.put("nodes", nodes);
+          query.put("assignedType", user != null ? assignedType : null);
+          queries.add(query);
+        });
+    return queries;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<Long> findRecordIds(
+      List<Map<String, Object>> queries, String modelName, boolean isMetaModel, String type) {
+
+    Set<Long> recordIds = new LinkedHashSet<>();
+    if (queries == null) {
+      return new ArrayList<>();
+    }
+
+    for (Map<String, Object> query : queries) {
+      List<String> nodes = (List<String>) query.get("nodes");
+      String assignedType = (String) query.get("assignedType");
+      if (CollectionUtils.isEmpty(nodes)) {
+        continue;
+      }
+
+      List<WkfTaskConfig> taskConfigs =
+          wkfTaskConfigRepo
+              .all()
+              .filter("self.processId = :processId AND self.name IN (:nodes)")
+              .bind("processId", query.get("processId"))
+              .bind("nodes", nodes)
+              .fetch();
+
+      recordIds.addAll(
+          findRecordIds(
+              taskConfigs,
+              modelName,
+              isMetaModel,
+              assignedType != null ? AuthUtils.getUser() : null,
+              assignedType,
+              type));
+    }
+
+    return new ArrayList<>(recordIds);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<Long> findRecordIds(
+      List<WkfTaskConfig> taskConfigs,
+      String modelName,
+      boolean isMetaModel,
+      User user,
+      String assignedType,
+      String type) {
+
+    List<String> types = new ArrayList<>();
+    if (NON_LATE_TASK.equals(type)) {
+      types.add(TASK_TODAY);
+      types.add(TASK_NEXT);
+    } else if (type != null) {
+      types.add(type);
+    }
+
+    List<WkfTaskConfig> sqlConfigs =
+        getSqlConfigs(taskConfigs, modelName, isMetaModel, user, assignedType);
+    Set<Long> recordIds =
+        new LinkedHashSet<>(
+            wkfDashboardQueryService.findRecordIds(
+                sqlConfigs, modelName, isMetaModel, user, assignedType, types));
+
+    for (WkfTaskConfig config : taskConfigs) {
+      if (sqlConfigs.contains(config)) {
+        continue;
+      }
+      List<String> processInstanceIds =
+          wkfInstanceService.findProcessInstanceByNode(
+              config.getName(), config.getProcessId(), config.getType(), false);
+
+      if (types.isEmpty()) {
+        recordIds.addAll(
+            getStatusRecordIds(
+                config, processInstanceIds, modelName, isMetaModel, user, assignedType));
+        continue;
+      }
+
+      Map<String, Object> taskMap = new HashMap<>();
+      getTasks(
+          config, processInstanceIds, modelName, isMetaModel, user, taskMap, null, assignedType);
+      types.forEach(it -> recordIds.addAll((List<Long>) taskMap.get(it + "Ids")));
     }
 
-    return new Object[] {recordIdsPerModel, statusList, taskMap};
+    return new ArrayList<>(recordIds);
   }
 
   @Override
@@ -0,0 +1,54 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.bpm.service.dashboard;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** Records of a model counted per node, and per deadline type within each node. */
+public class WkfDashboardCount {
+
+  protected long total;
+  protected final Map<String, Long> nodeCounts = new HashMap<>();
+  protected final Map<String, Map<String, Long>> typeCounts = new HashMap<>();
+
+  /** Distinct records at any of the counted nodes. */
+  public long getTotal() {
+    return total;
+  }
+
+  public void setTotal(long total) {
+    this.total = total;
+  }
+
+  public long getCount(String node) {
+    return nodeCounts.getOrDefault(node, 0L);
+  }
+
+  public long getCount(String node, String type) {
+    return typeCounts.getOrDefault(node, Map.of()).getOrDefault(type, 0L);
+  }
+
+  public void addCount(String node, long count) {
+    nodeCounts.merge(node, count, Long::sum);
+  }
+
+  public void addCount(String node, String type, long count) {
+    typeCounts.computeIfAbsent(node, k -> new HashMap<>()).merge(type, count, Long::sum);
+  }
+}
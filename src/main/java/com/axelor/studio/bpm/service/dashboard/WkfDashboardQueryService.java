@@ -0,0 +1,73 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.bpm.service.dashboard;
+
+import com.axelor.auth.db.User;
+import com.axelor.studio.db.WkfTaskConfig;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dashboard counters computed in the database, by joining the records of a model to the activity
+ * history of their process.
+ */
+public interface WkfDashboardQueryService {
+
+  /**
+   * Tells if the records of the given node can be selected in SQL, i.e. its user and deadline paths
+   * are json attributes or direct fields of the model.
+   */
+  boolean isSupported(
+      WkfTaskConfig config, String modelName, boolean isMetaModel, User user, String assignedType);
+
+  WkfDashboardCount countRecords(
+      List<WkfTaskConfig> taskConfigs,
+      String modelName,
+      boolean isMetaModel,
+      User user,
+      String assignedType);
+
+  /**
+   * Records at the given nodes, restricted to the given deadline types when not empty.
+   *
+   * @see WkfDashboardCommonService#TASK_TODAY
+   * @see WkfDashboardCommonService#TASK_NEXT
+   * @see WkfDashboardCommonService#LATE_TASK
+   */
+  List<Long> findRecordIds(
+      List<WkfTaskConfig> taskConfigs,
+      String modelName,
+      boolean isMetaModel,
+      User user,
+      String assignedType,
+      Collection<String> types);
+
+  /** Tells if the user path of the given user task can be read in SQL. */
+  boolean isUserPathSupported(WkfTaskConfig config);
+
+  /**
+   * Average time spent by the records of each user on the given user tasks, per task config id and
+   * user id. The unit is the SQL divisor of a duration in seconds.
+   */
+  Map<Long, Map<Long, BigDecimal>> getAvgTimePerUser(List<WkfTaskConfig> taskConfigs, String unit);
+
+  /** Given user tasks completed today, counted per user of their record. */
+  Map<Long, Long> countTasksDoneTodayPerUser(List<WkfTaskConfig> taskConfigs);
+}
@@ -0,0 +1,563 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.bpm.service.dashboard;
+
+import com.axelor.auth.db.User;
+import com.axelor.db.JPA;
+import com.axelor.db.mapper.Mapper;
+import com.axelor.db.mapper.Property;
+import com.axelor.meta.db.MetaJsonRecord;
+import com.axelor.meta.db.MetaModel;
+import com.axelor.meta.db.repo.MetaModelRepository;
+import com.axelor.studio.bpm.service.init.ProcessEngineService;
+import com.axelor.studio.db.WkfTaskConfig;
+import com.axelor.studio.service.filter.FilterSqlService;
+import com.axelor.utils.helpers.ExceptionHelper;
+import com.google.inject.Inject;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.persistence.Query;
+import org.apache.commons.lang3.StringUtils;
+import org.camunda.bpm.engine.ManagementService;
+import org.camunda.bpm.engine.history.HistoricActivityInstance;
+import org.camunda.bpm.engine.history.HistoricProcessInstance;
+import org.camunda.bpm.engine.history.HistoricTaskInstance;
+import org.camunda.bpm.model.bpmn.impl.BpmnModelConstants;
+
+public class WkfDashboardQueryServiceImpl implements WkfDashboardQueryService {
+
+  protected static final Pattern PATH_PATTERN = Pattern.compile("\\w+(\\.\\w+)*");
+
+  protected ProcessEngineService engineService;
+  protected MetaModelRepository metaModelRepo;
+  protected FilterSqlService filterSqlService;
+
+  @Inject
+  public WkfDashboardQueryServiceImpl(
+      ProcessEngineService engineService,
+      MetaModelRepository metaModelRepo,
+      FilterSqlService filterSqlService) {
+    this.engineService = engineService;
+    this.metaModelRepo = metaModelRepo;
+    this.filterSqlService = filterSqlService;
+  }
+
+  /** SQL expression of a path, compared as text when it is read from the json attributes. */
+  protected static class Column {
+    protected final String sql;
+    protected final boolean json;
+
+    protected Column(String sql, boolean json) {
+      this.sql = sql;
+      this.json = json;
+    }
+  }
+
+  @Override
+  public boolean isSupported(
+      WkfTaskConfig config, String modelName, boolean isMetaModel, User user, String assignedType) {
+
+    Class<?> klass = getModelClass(getMetaModel(modelName, isMetaModel));
+    if (klass == null) {
+      return false;
+    }
+
+    String userPath = config.getUserPath();
+    if (isUserFiltered(user, assignedType)
+        && !StringUtils.isBlank(userPath)
+        && getColumn(klass, isMetaModel, userPath, true) == null) {
+      return false;
+    }
+
+    String deadlinePath = config.getDeadlineFieldPath();
+    return StringUtils.isBlank(deadlinePath)
+        || getColumn(klass, isMetaModel, deadlinePath, false) != null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public WkfDashboardCount countRecords(
+      List<WkfTaskConfig> taskConfigs,
+      String modelName,
+      boolean isMetaModel,
+      User user,
+      String assignedType) {
+
+    WkfDashboardCount count = new WkfDashboardCount();
+
+    Map<String, Object> params = new HashMap<>();
+    String sql =
+        buildQuery(
+            taskConfigs, modelName, isMetaModel, user, assignedType, LocalDate.now(), params);
+    if (sql == null) {
+      return count;
+    }
+
+    Query query =
+        JPA.em()
+            .createNativeQuery(
+                "SELECT s.node, s.type, COUNT(DISTINCT s.record_id), "
+                    + "GROUPING(s.node), GROUPING(s.type) FROM ("
+                    + sql
+                    + ") s GROUP BY GROUPING SETS ((s.node), (s.node, s.type), ())");
+    params.forEach(query::setParameter);
+
+    for (Object[] row : (List<Object[]>) query.getResultList()) {
+      long value = ((Number) row[2]).longValue();
+      if (((Number) row[3]).intValue() == 1) {
+        count.setTotal(value);
+      } else if (((Number) row[4]).intValue() == 1) {
+        count.addCount((String) row[0], value);
+      } else if (row[1] != null) {
+        count.addCount((String) row[0], (String) row[1], value);
+      }
+    }
+
+    return count;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<Long> findRecordIds(
+      List<WkfTaskConfig> taskConfigs,
+      String modelName,
+      boolean isMetaModel,
+      User user,
+      String assignedType,
+      Collection<String> types) {
+
+    Map<String, Object> params = new HashMap<>();
+    String sql =
+        buildQuery(
+            taskConfigs, modelName, isMetaModel, user, assignedType, LocalDate.now(), params);
+    if (sql == null) {
+      return new ArrayList<>();
+    }
+
+    String filter = "";
+    if (types != null && !types.isEmpty()) {
+      filter = " WHERE s.type IN (:types)";
+      params.put("types", types);
+    }
+
+    Query query =
+        JPA.em().createNativeQuery("SELECT DISTINCT s.record_id FROM (" + sql + ") s" + filter);
+    params.forEach(query::setParameter);
+
+    return ((List<Object>) query.getResultList())
+        .stream().map(id -> ((Number) id).longValue()).collect(Collectors.toList());
+  }
+
+  @Override
+  public boolean isUserPathSupported(WkfTaskConfig config) {
+    boolean isMetaModel = StringUtils.isNotEmpty(config.getModelName());
+    String modelName = isMetaModel ? config.getModelName() : config.getJsonModelName();
+    Class<?> klass = getModelClass(getMetaModel(modelName, isMetaModel));
+
+    return klass != null
+        && !StringUtils.isBlank(config.getUserPath())
+        && getColumn(klass, isMetaModel, config.getUserPath(), true) != null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Map<Long, Map<Long, BigDecimal>> getAvgTimePerUser(
+      List<WkfTaskConfig> taskConfigs, String unit) {
+
+    Map<Long, Map<Long, BigDecimal>> avgTimes = new HashMap<>();
+
+    Map<String, Object> params = new HashMap<>();
+    String sql =
+        buildTaskQuery(
+            taskConfigs,
+            "r.id AS record_id, SUM(CASE WHEN task.end_time_ IS NULL "
+                + "THEN EXTRACT(EPOCH FROM NOW() - task.start_time_) "
+                + "ELSE EXTRACT(EPOCH FROM task.end_time_ - task.start_time_) END) AS time",
+            "",
+            true,
+            params);
+    if (sql == null) {
+      return avgTimes;
+    }
+
+    Query query =
+        JPA.em()
+            .createNativeQuery(
+                "SELECT s.config_id, s.user_id, AVG(s.time) / "
+                    + unit
+                    + " FROM ("
+                    + sql
+                    + ") s WHERE s.user_id IS NOT NULL GROUP BY s.config_id, s.user_id");
+    params.forEach(query::setParameter);
+
+    for (Object[] row : (List<Object[]>) query.getResultList()) {
+      BigDecimal time =
+          row[2] instanceof BigDecimal
+              ? (BigDecimal) row[2]
+              : BigDecimal.valueOf(((Number) row[2]).doubleValue());
+      avgTimes
+          .computeIfAbsent(((Number) row[0]).longValue(), key -> new LinkedHashMap<>())
+          .put(Long.valueOf((String) row[1]), time.setScale(2, RoundingMode.HALF_UP));
+    }
+
+    return avgTimes;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Map<Long, Long> countTasksDoneTodayPerUser(List<WkfTaskConfig> taskConfigs) {
+
+    Map<Long, Long> counts = new LinkedHashMap<>();
+
+    Map<String, Object> params = new HashMap<>();
+    String sql =
+        buildTaskQuery(
+            taskConfigs,
+            "task.id_ AS task_id",
+            " AND DATE(task.end_time_) = CURRENT_DATE",
+            false,
+            params);
+    if (sql == null) {
+      return counts;
+    }
+
+    Query query =
+        JPA.em()
+            .createNativeQuery(
+                "SELECT s.user_id, COUNT(s.task_id) FROM ("
+                    + sql
+                    + ") s WHERE s.user_id IS NOT NULL GROUP BY s.user_id");
+    params.forEach(query::setParameter);
+
+    for (Object[] row : (List<Object[]>) query.getResultList()) {
+      counts.put(Long.valueOf((String) row[0]), ((Number) row[1]).longValue());
+    }
+
+    return counts;
+  }
+
+  /**
+   * Builds the selection of the task instances of the given user tasks, with the user of their
+   * record, as rows of (config_id, user_id, columns). Rows are grouped per record when asked.
+   */
+  protected String buildTaskQuery(
+      List<WkfTaskConfig> taskConfigs,
+      String columns,
+      String condition,
+      boolean perRecord,
+      Map<String, Object> params) {
+
+    String taskTable =
+        engineService.getEngine().getManagementService().getTableName(HistoricTaskInstance.class);
+
+    List<String> selects = new ArrayList<>();
+    int index = 0;
+    for (WkfTaskConfig config : taskConfigs) {
+      boolean isMetaModel = StringUtils.isNotEmpty(config.getModelName());
+      String modelName = isMetaModel ? config.getModelName() : config.getJsonModelName();
+      MetaModel metaModel = getMetaModel(modelName, isMetaModel);
+      Class<?> klass = getModelClass(metaModel);
+      if (klass == null || StringUtils.isBlank(config.getUserPath())) {
+        continue;
+      }
+      Column user = getColumn(klass, isMetaModel, config.getUserPath(), true);
+      if (user == null) {
+        continue;
+      }
+
+      String process = "process" + index;
+      String node = "node" + index;
+      params.put(process, config.getProcessId());
+      params.put(node, config.getName());
+
+      String jsonModelFilter = "";
+      if (!isMetaModel) {
+        String jsonModel = "jsonModel" + index;
+        jsonModelFilter =
+            " AND r."
+                + filterSqlService.getColumn(klass.getName(), "jsonModel")
+                + " = :"
+                + jsonModel;
+        params.put(jsonModel, modelName);
+      }
+      index++;
+
+      String userId = "CAST(" + user.sql + " AS VARCHAR)";
+      selects.add(
+          "SELECT "
+              + config.getId()
+              + " AS config_id, "
+              + userId
+              + " AS user_id, "
+              + columns
+              + " FROM "
+              + metaModel.getTableName()
+              + " r JOIN "
+              + taskTable
+              + " task ON task.proc_inst_id_ = r."
+              + filterSqlService.getColumn(klass.getName(), "processInstanceId")
+              + " WHERE task.proc_def_id_ = :"
+              + process
+              + " AND task.task_def_key_ = :"
+              + node
+              + jsonModelFilter
+              + condition
+              + (perRecord ? " GROUP BY r.id, " + user.sql : ""));
+    }
+
+    return selects.isEmpty() ? null : String.join(" UNION ALL ", selects);
+  }
+
+  /**
+   * Builds the selection of the records at the given nodes, as rows of (record_id, node, type)
+   * where type is the deadline bucket of the record. Active nodes are read from the unfinished
+   * activities of the process definition, end events from the finished instances of any version.
+   */
+  protected String buildQuery(
+      List<WkfTaskConfig> taskConfigs,
+      String modelName,
+      boolean isMetaModel,
+      User user,
+      String assignedType,
+      LocalDate toDate,
+      Map<String, Object> params) {
+
+    MetaModel metaModel = getMetaModel(modelName, isMetaModel);
+    Class<?> klass = getModelClass(metaModel);
+    if (klass == null || taskConfigs.isEmpty()) {
+      return null;
+    }
+
+    String instanceColumn = filterSqlService.getColumn(klass.getName(), "processInstanceId");
+    String from = metaModel.getTableName() + " r";
+    String jsonModelFilter = "";
+    if (!isMetaModel) {
+      jsonModelFilter =
+          " AND r." + filterSqlService.getColumn(klass.getName(), "jsonModel") + " = :jsonModel";
+      params.put("jsonModel", modelName);
+    }
+
+    ManagementService managementService = engineService.getEngine().getManagementService();
+    String activityTable = managementService.getTableName(HistoricActivityInstance.class);
+    String processTable = managementService.getTableName(HistoricProcessInstance.class);
+
+    Map<String, List<String[]>> activeNodes = new LinkedHashMap<>();
+    Map<String, List<String[]>> endNodes = new LinkedHashMap<>();
+
+    int index = 0;
+    for (WkfTaskConfig config : taskConfigs) {
+      String node = "node" + index++;
+      String condition = "a.act_id_ = :" + node;
+
+      if (isUserFiltered(user, assignedType)) {
+        if (StringUtils.isBlank(config.getUserPath())) {
+          continue;
+        }
+        String userCondition =
+            getUserCondition(
+                getColumn(klass, isMetaModel, config.getUserPath(), true),
+                user,
+                assignedType,
+                params);
+        if (userCondition != null) {
+          condition += " AND " + userCondition;
+        }
+      }
+      params.put(node, config.getName());
+
+      String types = "";
+      if (!StringUtils.isBlank(config.getDeadlineFieldPath())) {
+        types =
+            getTypeCases(
+                node,
+                getColumn(klass, isMetaModel, config.getDeadlineFieldPath(), false),
+                toDate,
+                params);
+      }
+
+      boolean isEndEvent = BpmnModelConstants.BPMN_ELEMENT_END_EVENT.equals(config.getType());
+      (isEndEvent ? endNodes : activeNodes)
+          .computeIfAbsent(config.getProcessId(), key -> new ArrayList<>())
+          .add(new String[] {condition, types});
+    }
+
+    List<String> selects = new ArrayList<>();
+    index = 0;
+    for (Map.Entry<String, List<String[]>> entry : activeNodes.entrySet()) {
+      String process = "process" + index++;
+      params.put(process, entry.getKey());
+      selects.add(
+          getSelect(entry.getValue())
+              + " FROM "
+              + from
+              + " JOIN "
+              + activityTable
+              + " a ON a.proc_inst_id_ = r."
+              + instanceColumn
+              + " WHERE a.proc_def_id_ = :"
+              + process
+              + " AND a.end_time_ IS NULL"
+              + jsonModelFilter
+              + getNodeFilter(entry.getValue()));
+    }
+    for (Map.Entry<String, List<String[]>> entry : endNodes.entrySet()) {
+      String processKey = "processKey" + index++;
+      params.put(processKey, entry.getKey().substring(0, entry.getKey().indexOf(":")));
+      selects.add(
+          getSelect(entry.getValue())
+              + " FROM "
+              + from
+              + " JOIN "
+              + processTable
+              + " p ON p.id_ = r."
+              + instanceColumn
+              + " JOIN "
+              + activityTable
+              + " a ON a.proc_inst_id_ = p.id_"
+              + " WHERE p.proc_def_key_ = :"
+              + processKey
+              + " AND p.end_time_ IS NOT NULL"
+              + jsonModelFilter
+              + getNodeFilter(entry.getValue()));
+    }
+
+    return selects.isEmpty() ? null : String.join(" UNION ALL ", selects);
+  }
+
+  protected String getSelect(List<String[]> nodes) {
+    String types = nodes.stream().map(node -> node[1]).collect(Collectors.joining());
+    return "SELECT r.id AS record_id, a.act_id_ AS node, "
+        + (types.isEmpty() ? "CAST(NULL AS VARCHAR)" : "CASE" + types + " END")
+        + " AS type";
+  }
+
+  protected String getNodeFilter(List<String[]> nodes) {
+    return nodes.stream()
+        .map(node -> "(" + node[0] + ")")
+        .collect(Collectors.joining(" OR ", " AND (", ")"));
+  }
+
+  protected String getTypeCases(
+      String node, Column deadline, LocalDate toDate, Map<String, Object> params) {
+
+    String today = deadline.json ? "todayText" : "today";
+    String nextWeek = deadline.json ? "nextWeekText" : "nextWeek";
+    params.put(today, deadline.json ? toDate.toString() : toDate);
+    params.put(nextWeek, deadline.json ? toDate.plusDays(7).toString() : toDate.plusDays(7));
+
+    String when = " WHEN a.act_id_ = :" + node + " AND " + deadline.sql;
+    return when
+        + " = :"
+        + today
+        + " THEN '"
+        + WkfDashboardCommonService.TASK_TODAY
+        + "'"
+        + when
+        + " > :"
+        + today
+        + " AND "
+        + deadline.sql
+        + " < :"
+        + nextWeek
+        + " THEN '"
+        + WkfDashboardCommonService.TASK_NEXT
+        + "'"
+        + when
+        + " < :"
+        + today
+        + " THEN '"
+        + WkfDashboardCommonService.LATE_TASK
+        + "'";
+  }
+
+  protected String getUserCondition(
+      Column column, User user, String assignedType, Map<String, Object> params) {
+
+    String userId = column.json ? "userIdText" : "userId";
+    params.put(userId, column.json ? user.getId().toString() : user.getId());
+
+    if (WkfDashboardCommonService.ASSIGNED_ME.equals(assignedType)) {
+      return column.sql + " = :" + userId;
+    }
+    if (WkfDashboardCommonService.ASSIGNED_OTHER.equals(assignedType)) {
+      return "(" + column.sql + " IS NULL OR " + column.sql + " <> :" + userId + ")";
+    }
+    params.remove(userId);
+    return null;
+  }
+
+  protected boolean isUserFiltered(User user, String assignedType) {
+    return user != null && assignedType != null;
+  }
+
+  /**
+   * Column of a direct field of the model, or json attribute read as text. Paths through a relation
+   * are not supported.
+   */
+  protected Column getColumn(Class<?> klass, boolean isMetaModel, String path, boolean reference) {
+
+    if (!PATH_PATTERN.matcher(path).matches()) {
+      return null;
+    }
+
+    String[] names = path.split("\\.");
+    Property property = isMetaModel ? Mapper.of(klass).getProperty(names[0]) : null;
+
+    if (property == null) {
+      StringBuilder sql =
+          new StringBuilder("r.").append(filterSqlService.getColumn(klass.getName(), "attrs"));
+      for (int i = 0; i < names.length; i++) {
+        sql.append(i < names.length - 1 || reference ? "->'" : "->>'").append(names[i]).append("'");
+      }
+      if (reference) {
+        sql.append("->>'id'");
+      }
+      return new Column(sql.toString(), true);
+    }
+
+    if (names.length > 1 || (property.getTarget() != null) != reference) {
+      return null;
+    }
+    return new Column("r." + filterSqlService.getColumn(klass.getName(), names[0]), false);
+  }
+
+  protected MetaModel getMetaModel(String modelName, boolean isMetaModel) {
+    return metaModelRepo.findByName(isMetaModel ? modelName : MetaJsonRecord.class.getSimpleName());
+  }
+
+  protected Class<?> getModelClass(MetaModel metaModel) {
+    if (metaModel == null) {
+      return null;
+    }
+    try {
+      return Class.forName(metaModel.getFullName());
+    } catch (ClassNotFoundException e) {
+      ExceptionHelper.trace(e);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.bpm.service.dashboard;
+
+import com.axelor.studio.db.WkfNodeStatistic;
+import com.axelor.studio.db.WkfProcess;
+import java.util.Map;
+
+/**
+ * Statistics of the process nodes, kept in {@link WkfNodeStatistic} rows so that the dashboards
+ * read one row per node. Node events update them incrementally, the deltas of a transaction being
+ * written once it is committed, and {@link #reconcile()} recomputes them from the history.
+ */
+public interface WkfNodeStatisticService {
+
+  void onNodeStart(String processId, String node);
+
+  void onNodeEnd(String processId, String node);
+
+  /** Adds the duration, in seconds, of a completed user task. */
+  void onTaskComplete(String processId, String node, long duration);
+
+  /**
+   * Recomputes the active instances and the deadline counts of every node, and their completions
+   * over the statistics window.
+   */
+  void reconcile();
+
+  /** Statistics of the nodes of a process definition, by node id. */
+  Map<String, WkfNodeStatistic> getStatistics(String processId);
+
+  /** Task counts of the nodes of a process for a model, with the keys of the dashboard tasks. */
+  Map<String, Object> getTaskCounts(WkfProcess process, String modelName, boolean isMetaModel);
+}
@@ -0,0 +1,535 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.bpm.service.dashboard;
+
+import com.axelor.db.JPA;
+import com.axelor.db.tenants.TenantAware;
+import com.axelor.studio.baml.tools.BpmTools;
+import com.axelor.studio.bpm.service.init.ProcessEngineService;
+import com.axelor.studio.db.WkfNodeStatistic;
+import com.axelor.studio.db.WkfProcess;
+import com.axelor.studio.db.WkfTaskConfig;
+import com.axelor.studio.db.repo.WkfNodeStatisticRepository;
+import com.axelor.studio.db.repo.WkfTaskConfigRepository;
+import com.axelor.studio.service.AppSettingsStudioService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import javax.persistence.Query;
+import org.apache.commons.lang3.StringUtils;
+import org.camunda.bpm.engine.history.HistoricActivityInstance;
+import org.camunda.bpm.engine.impl.cfg.TransactionContext;
+import org.camunda.bpm.engine.impl.cfg.TransactionState;
+import org.camunda.bpm.engine.impl.context.Context;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.camunda.bpm.model.bpmn.impl.BpmnModelConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the node deltas of each engine transaction and writes them on a single background thread
+ * once the transaction is committed, so that concurrent instances never update the same rows
+ * together. The reconciliation runs on the same thread.
+ */
+@Singleton
+public class WkfNodeStatisticServiceImpl implements WkfNodeStatisticService {
+
+  protected static final Logger log = LoggerFactory.getLogger(WkfNodeStatisticServiceImpl.class);
+
+  protected static final long[] DURATION_BUCKETS = {60, 3600, 86400, 604800};
+
+  protected static final String[] DURATION_FIELDS = {
+    "durationMinuteCount",
+    "durationHourCount",
+    "durationDayCount",
+    "durationWeekCount",
+    "durationLongerCount"
+  };
+
+  protected static final ThreadLocal<Map<TransactionContext, Map<String, NodeDelta>>> PENDING =
+      ThreadLocal.withInitial(IdentityHashMap::new);
+
+  protected WkfNodeStatisticRepository wkfNodeStatisticRepo;
+  protected WkfTaskConfigRepository wkfTaskConfigRepo;
+  protected WkfDashboardQueryService wkfDashboardQueryService;
+  protected WkfDashboardCommonService wkfDashboardCommonService;
+  protected ProcessEngineService engineService;
+  protected AppSettingsStudioService appSettingsStudioService;
+
+  protected final ExecutorService executor;
+
+  @Inject
+  public WkfNodeStatisticServiceImpl(
+      WkfNodeStatisticRepository wkfNodeStatisticRepo,
+      WkfTaskConfigRepository wkfTaskConfigRepo,
+      WkfDashboardQueryService wkfDashboardQueryService,
+      WkfDashboardCommonService wkfDashboardCommonService,
+      ProcessEngineService engineService,
+      AppSettingsStudioService appSettingsStudioService) {
+    this.wkfNodeStatisticRepo = wkfNodeStatisticRepo;
+    this.wkfTaskConfigRepo = wkfTaskConfigRepo;
+    this.wkfDashboardQueryService = wkfDashboardQueryService;
+    this.wkfDashboardCommonService = wkfDashboardCommonService;
+    this.engineService = engineService;
+    this.appSettingsStudioService = appSettingsStudioService;
+    this.executor =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("bpm-statistics-%d").setDaemon(true).build());
+  }
+
+  /** Increments of the counters of a node. */
+  protected static class NodeDelta {
+    protected final String processId;
+    protected final String node;
+    protected final Map<String, Long> values = new LinkedHashMap<>();
+
+    protected NodeDelta(String processId, String node) {
+      this.processId = processId;
+      this.node = node;
+    }
+
+    protected void add(String field, long value) {
+      values.merge(field, value, Long::sum);
+    }
+
+    protected boolean isEmpty() {
+      return values.values().stream().allMatch(value -> value == 0);
+    }
+  }
+
+  @Override
+  public void onNodeStart(String processId, String node) {
+    delta(processId, node).add("activeCount", 1);
+  }
+
+  @Override
+  public void onNodeEnd(String processId, String node) {
+    NodeDelta delta = delta(processId, node);
+    delta.add("activeCount", -1);
+    delta.add("completedCount", 1);
+  }
+
+  @Override
+  public void onTaskComplete(String processId, String node, long duration) {
+    NodeDelta delta = delta(processId, node);
+    delta.add("measuredCount", 1);
+    delta.add("totalDuration", duration);
+    delta.add(DURATION_FIELDS[getDurationBucket(duration)], 1);
+  }
+
+  protected int getDurationBucket(long duration) {
+    int bucket = 0;
+    while (bucket < DURATION_BUCKETS.length && duration > DURATION_BUCKETS[bucket]) {
+      bucket++;
+    }
+    return bucket;
+  }
+
+  /**
+   * Delta of the node in the current engine transaction. Outside of a command, the delta is written
+   * right away.
+   */
+  protected NodeDelta delta(String processId, String node) {
+    String tenantId = BpmTools.getCurentTenant();
+    CommandContext commandContext = Context.getCommandContext();
+
+    if (commandContext == null) {
+      NodeDelta delta = new NodeDelta(processId, node);
+      executor.execute(() -> apply(tenantId, List.of(delta)));
+      return delta;
+    }
+
+    TransactionContext transactionContext = commandContext.getTransactionContext();
+    Map<TransactionContext, Map<String, NodeDelta>> pending = PENDING.get();
+    Map<String, NodeDelta> deltas = pending.get(transactionContext);
+
+    if (deltas == null) {
+      Map<String, NodeDelta> transactionDeltas = new LinkedHashMap<>();
+      pending.put(transactionContext, transactionDeltas);
+      transactionContext.addTransactionListener(
+          TransactionState.COMMITTED,
+          context -> {
+            PENDING.get().remove(transactionContext);
+            executor.execute(() -> apply(tenantId, transactionDeltas.values()));
+          });
+      transactionContext.addTransactionListener(
+          TransactionState.ROLLED_BACK, context -> PENDING.get().remove(transactionContext));
+      deltas = transactionDeltas;
+    }
+
+    return deltas.computeIfAbsent(getKey(processId, node), key -> new NodeDelta(processId, node));
+  }
+
+  protected void apply(String tenantId, Collection<NodeDelta> deltas) {
+    try {
+      new TenantAware(() -> deltas.stream().filter(d -> !d.isEmpty()).forEach(this::apply))
+          .tenantId(tenantId)
+          .run();
+    } catch (Exception e) {
+      log.error("Unable to update the BPM node statistics", e);
+    }
+  }
+
+  protected void apply(NodeDelta delta) {
+    String assignments =
+        delta.values.keySet().stream()
+            .map(field -> "self." + field + " = COALESCE(self." + field + ", 0) + :" + field)
+            .collect(Collectors.joining(", "));
+
+    Query query =
+        JPA.em()
+            .createQuery(
+                "UPDATE WkfNodeStatistic self SET "
+                    + assignments
+                    + " WHERE self.processId = :processId AND self.node = :node");
+    delta.values.forEach(query::setParameter);
+    query.setParameter("processId", delta.processId);
+    query.setParameter("node", delta.node);
+
+    if (query.executeUpdate() == 0) {
+      WkfNodeStatistic statistic = new WkfNodeStatistic();
+      statistic.setProcessId(delta.processId);
+      statistic.setNode(delta.node);
+      delta.values.forEach((field, value) -> set(statistic, field, value));
+      JPA.em().persist(statistic);
+    }
+  }
+
+  @Override
+  public void reconcile() {
+    String tenantId = BpmTools.getCurentTenant();
+    try {
+      executor
+          .submit(() -> new TenantAware(this::reconcileStatistics).tenantId(tenantId).run())
+          .get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  protected void reconcileStatistics() {
+    Map<String, WkfNodeStatistic> statistics = new LinkedHashMap<>();
+    computeActivityStatistics(statistics);
+    computeTaskStatistics(statistics);
+
+    LocalDateTime now = LocalDateTime.now();
+    List<WkfNodeStatistic> existing = wkfNodeStatisticRepo.all().fetch();
+
+    for (WkfNodeStatistic statistic : existing) {
+      WkfNodeStatistic computed =
+          statistics.remove(getKey(statistic.getProcessId(), statistic.getNode()));
+      if (computed == null) {
+        wkfNodeStatisticRepo.remove(statistic);
+        continue;
+      }
+      copy(computed, statistic);
+      statistic.setReconciledOn(now);
+    }
+
+    for (WkfNodeStatistic statistic : statistics.values()) {
+      statistic.setReconciledOn(now);
+      wkfNodeStatisticRepo.save(statistic);
+    }
+  }
+
+  /**
+   * Active instances per node, with the completions and the user task durations of the statistics
+   * window.
+   */
+  @SuppressWarnings("unchecked")
+  protected void computeActivityStatistics(Map<String, WkfNodeStatistic> statistics) {
+    List<String> processIds =
+        JPA.em()
+            .createQuery(
+                "SELECT self.processId FROM WkfProcess self WHERE self.processId IS NOT NULL",
+                String.class)
+            .getResultList();
+    if (processIds.isEmpty()) {
+      return;
+    }
+
+    String table =
+        engineService
+            .getEngine()
+            .getManagementService()
+            .getTableName(HistoricActivityInstance.class);
+    String measured =
+        "a.end_time_ IS NOT NULL AND a.act_type_ = '"
+            + BpmnModelConstants.BPMN_ELEMENT_USER_TASK
+            + "'";
+
+    StringBuilder sql =
+        new StringBuilder("SELECT a.proc_def_id_, a.act_id_, ")
+            .append("SUM(CASE WHEN a.end_time_ IS NULL THEN 1 ELSE 0 END), ")
+            .append("SUM(CASE WHEN a.end_time_ IS NOT NULL THEN 1 ELSE 0 END), ")
+            .append("SUM(CASE WHEN " + measured + " THEN 1 ELSE 0 END), ")
+            .append("SUM(CASE WHEN " + measured + " THEN a.duration_ / 1000 ELSE 0 END)");
+    for (int bucket = 0; bucket <= DURATION_BUCKETS.length; bucket++) {
+      sql.append(", SUM(CASE WHEN ").append(measured);
+      if (bucket > 0) {
+        sql.append(" AND a.duration_ > ").append(DURATION_BUCKETS[bucket - 1] * 1000);
+      }
+      if (bucket < DURATION_BUCKETS.length) {
+        sql.append(" AND a.duration_ <= ").append(DURATION_BUCKETS[bucket] * 1000);
+      }
+      sql.append(" THEN 1 ELSE 0 END)");
+    }
+    sql.append(" FROM ")
+        .append(table)
+        .append(" a WHERE a.proc_def_id_ IN (:processIds)")
+        .append(" AND (a.end_time_ IS NULL OR a.end_time_ >= :since)")
+        .append(" GROUP BY a.proc_def_id_, a.act_id_");
+
+    Query query = JPA.em().createNativeQuery(sql.toString());
+    query.setParameter("processIds", processIds);
+    query.setParameter(
+        "since",
+        LocalDateTime.now().minusDays(appSettingsStudioService.getBpmStatisticsWindowDays()));
+
+    for (Object[] row : (List<Object[]>) query.getResultList()) {
+      WkfNodeStatistic statistic = getStatistic(statistics, (String) row[0], (String) row[1]);
+      statistic.setActiveCount(toLong(row[2]));
+      statistic.setCompletedCount(toLong(row[3]));
+      statistic.setMeasuredCount(toLong(row[4]));
+      statistic.setTotalDuration(toLong(row[5]));
+      for (int bucket = 0; bucket < DURATION_FIELDS.length; bucket++) {
+        set(statistic, DURATION_FIELDS[bucket], toLong(row[6 + bucket]));
+      }
+    }
+  }
+
+  /** Records of the task nodes per deadline type, counted for the model of each node. */
+  protected void computeTaskStatistics(Map<String, WkfNodeStatistic> statistics) {
+    Map<Boolean, Map<String, List<WkfTaskConfig>>> configsPerModel =
+        wkfTaskConfigRepo
+            .all()
+            .filter(
+                "self.processId IS NOT NULL AND self.deadlineFieldPath IS NOT NULL "
+                    + "AND (self.modelName IS NOT NULL OR self.jsonModelName IS NOT NULL)")
+            .fetch()
+            .stream()
+            .collect(
+                Collectors.groupingBy(
+                    config -> StringUtils.isNotEmpty(config.getModelName()),
+                    Collectors.groupingBy(
+                        config ->
+                            StringUtils.isNotEmpty(config.getModelName())
+                                ? config.getModelName()
+                                : config.getJsonModelName(),
+                        LinkedHashMap::new,
+                        Collectors.toList())));
+
+    configsPerModel.forEach(
+        (isMetaModel, models) ->
+            models.forEach(
+                (modelName, configs) ->
+                    computeTaskStatistics(statistics, configs, modelName, isMetaModel)));
+  }
+
+  protected void computeTaskStatistics(
+      Map<String, WkfNodeStatistic> statistics,
+      List<WkfTaskConfig> configs,
+      String modelName,
+      boolean isMetaModel) {
+
+    List<WkfTaskConfig> sqlConfigs = new ArrayList<>();
+    for (WkfTaskConfig config : configs) {
+      if (wkfDashboardQueryService.isSupported(config, modelName, isMetaModel, null, null)) {
+        sqlConfigs.add(config);
+        continue;
+      }
+      WkfNodeStatistic statistic =
+          getStatistic(statistics, config.getProcessId(), config.getName());
+      statistic.setTaskTodayCount(
+          countRecords(config, modelName, isMetaModel, WkfDashboardCommonService.TASK_TODAY));
+      statistic.setTaskNextCount(
+          countRecords(config, modelName, isMetaModel, WkfDashboardCommonService.TASK_NEXT));
+      statistic.setLateTaskCount(
+          countRecords(config, modelName, isMetaModel, WkfDashboardCommonService.LATE_TASK));
+    }
+
+    Map<String, List<WkfTaskConfig>> sqlConfigsPerProcess =
+        sqlConfigs.stream()
+            .collect(
+                Collectors.groupingBy(
+                    WkfTaskConfig::getProcessId, LinkedHashMap::new, Collectors.toList()));
+
+    sqlConfigsPerProcess.forEach(
+        (processId, processConfigs) -> {
+          WkfDashboardCount count =
+              wkfDashboardQueryService.countRecords(
+                  processConfigs, modelName, isMetaModel, null, null);
+          for (WkfTaskConfig config : processConfigs) {
+            String node = config.getName();
+            WkfNodeStatistic statistic = getStatistic(statistics, processId, node);
+            statistic.setTaskTodayCount(count.getCount(node, WkfDashboardCommonService.TASK_TODAY));
+            statistic.setTaskNextCount(count.getCount(node, WkfDashboardCommonService.TASK_NEXT));
+            statistic.setLateTaskCount(count.getCount(node, WkfDashboardCommonService.LATE_TASK));
+          }
+        });
+  }
+
+  protected long countRecords(
+      WkfTaskConfig config, String modelName, boolean isMetaModel, String type) {
+    return wkfDashboardCommonService
+        .findRecordIds(List.of(config), modelName, isMetaModel, null, null, type)
+        .size();
+  }
+
+  protected WkfNodeStatistic getStatistic(
+      Map<String, WkfNodeStatistic> statistics, String processId, String node) {
+    return statistics.computeIfAbsent(
+        getKey(processId, node),
+        key -> {
+          WkfNodeStatistic statistic = new WkfNodeStatistic();
+          statistic.setProcessId(processId);
+          statistic.setNode(node);
+          return statistic;
+        });
+  }
+
+  protected String getKey(String processId, String node) {
+    return processId + ":" + node;
+  }
+
+  protected long toLong(Object value) {
+    return value == null ? 0 : ((Number) value).longValue();
+  }
+
+  protected void copy(WkfNodeStatistic from, WkfNodeStatistic to) {
+    to.setActiveCount(from.getActiveCount());
+    to.setTaskTodayCount(from.getTaskTodayCount());
+    to.setTaskNextCount(from.getTaskNextCount());
+    to.setLateTaskCount(from.getLateTaskCount());
+    to.setCompletedCount(from.getCompletedCount());
+    to.setMeasuredCount(from.getMeasuredCount());
+    to.setTotalDuration(from.getTotalDuration());
+    for (String field : DURATION_FIELDS) {
+      set(to, field, get(from, field));
+    }
+  }
+
+  protected long get(WkfNodeStatistic statistic, String field) {
+    switch (field) {
+      case "durationMinuteCount":
+        return statistic.getDurationMinuteCount();
+      case "durationHourCount":
+        return statistic.getDurationHourCount();
+      case "durationDayCount":
+        return statistic.getDurationDayCount();
+      case "durationWeekCount":
+        return statistic.getDurationWeekCount();
+      default:
+        return statistic.getDurationLongerCount();
+    }
+  }
+
+  protected void set(WkfNodeStatistic statistic, String field, long value) {
+    switch (field) {
+      case "activeCount":
+        statistic.setActiveCount(value);
+        break;
+      case "completedCount":
+        statistic.setCompletedCount(value);
+        break;
+      case "measuredCount":
+        statistic.setMeasuredCount(value);
+        break;
+      case "totalDuration":
+        statistic.setTotalDuration(value);
+        break;
+      case "durationMinuteCount":
+        statistic.setDurationMinuteCount(value);
+        break;
+      case "durationHourCount":
+        statistic.setDurationHourCount(value);
+        break;
+      case "durationDayCount":
+        statistic.setDurationDayCount(value);
+        break;
+      case "durationWeekCount":
+        statistic.setDurationWeekCount(value);
+        break;
+      default:
+        statistic.setDurationLongerCount(value);
+        break;
+    }
+  }
+
+  @Override
+  public Map<String, WkfNodeStatistic> getStatistics(String processId) {
+    return wkfNodeStatisticRepo
+        .all()
+        .filter("self.processId = :processId")
+        .bind("processId", processId)
+        .fetch()
+        .stream()
+        .collect(Collectors.toMap(WkfNodeStatistic::getNode, statistic -> statistic));
+  }
+
+  @Override
+  public Map<String, Object> getTaskCounts(
+      WkfProcess process, String modelName, boolean isMetaModel) {
+
+    Map<String, WkfNodeStatistic> statistics = getStatistics(process.getProcessId());
+    List<WkfTaskConfig> configs =
+        wkfTaskConfigRepo
+            .all()
+            .filter(
+                "self.processId = :processId AND "
+                    + (isMetaModel ? "self.modelName" : "self.jsonModelName")
+                    + " = :modelName")
+            .bind("processId", process.getProcessId())
+            .bind("modelName", modelName)
+            .fetch();
+
+    long taskTodayCnt = 0;
+    long taskNextCnt = 0;
+    long lateTaskCnt = 0;
+    for (WkfTaskConfig config : configs) {
+      WkfNodeStatistic statistic = statistics.get(config.getName());
+      if (statistic != null) {
+        taskTodayCnt += statistic.getTaskTodayCount();
+        taskNextCnt += statistic.getTaskNextCount();
+        lateTaskCnt += statistic.getLateTaskCount();
+      }
+    }
+
+    Map<String, Object> taskMap = new HashMap<>();
+    taskMap.put("isMetaModel", isMetaModel);
+    taskMap.put("modelName", modelName);
+    taskMap.put("taskTodayCnt", (int) taskTodayCnt);
+    taskMap.put("taskNextCnt", (int) taskNextCnt);
+    taskMap.put("lateTaskCnt", (int) lateTaskCnt);
+    return taskMap;
+  }
+}
@@ -31,7 +31,9 @@ import com.axelor.meta.db.MetaModel;
 import com.axelor.meta.db.repo.MetaActionRepository;
 import com.axelor.meta.db.repo.MetaMenuRepository;
 import com.axelor.meta.db.repo.MetaModelRepository;
-import com.axelor.studio.bpm.service.execution.WkfInstanceService;
+import com.axelor.studio.baml.tools.BpmTools;
+import com.axelor.studio.bpm.context.WkfCache;
+import com.axelor.studio.bpm.service.execution.WkfInstanceNodeService;
 import com.axelor.studio.db.WkfTaskConfig;
 import com.axelor.studio.db.WkfTaskMenu;
 import com.axelor.studio.db.WkfTaskMenuContext;
@@ -61,16 +63,20 @@ public class WkfMenuServiceImpl implements WkfMenuService {
 
   protected TeamRepository teamRepo;
 
+  protected WkfInstanceNodeService wkfInstanceNodeService;
+
   @Inject
   public WkfMenuServiceImpl(
       MetaMenuRepository metaMenuRepository,
       MetaActionRepository metaActionRepository,
       MetaModelRepository metaModelRepository,
-      TeamRepository teamRepo) {
+      TeamRepository teamRepo,
+      WkfInstanceNodeService wkfInstanceNodeService) {
     this.metaMenuRepository = metaMenuRepository;
     this.metaActionRepository = metaActionRepository;
     this.metaModelRepository = metaModelRepository;
     this.teamRepo = teamRepo;
+    this.wkfInstanceNodeService = wkfInstanceNodeService;
   }
 
   protected Inflector inflector = Inflector.getInstance();
@@ -84,6 +90,9 @@ public class WkfMenuServiceImpl implements WkfMenuService {
       return;
     }
 
+    WkfCache.invalidateMenuNodes(BpmTools.getCurentTenant());
+    wkfInstanceNodeService.rebuild(wkfTaskConfig);
+
     for (WkfTaskMenu taskMenu : taskMenuList) {
       String name = taskMenu.getMenuId();
 
@@ -153,7 +162,6 @@ public class WkfMenuServiceImpl implements WkfMenuService {
     boolean isJson = model.equals(MetaJsonRecord.class.getName());
     String query = createQuery(wkfTaskConfig, taskMenu, userMenu, isJson);
     Map<String, String> viewMap = getViewNames(wkfTaskConfig, taskMenu, isJson);
-    boolean permanent = taskMenu.getPermanentMenu();
 
     if (userMenu && query == null) {
       if (metaAction.getId() != null) {
@@ -179,17 +187,6 @@ public class WkfMenuServiceImpl implements WkfMenuService {
             + "\t<domain>"
             + query
             + "</domain>\n"
-            + "\t<context name=\"processInstanceIds\" expr=\"call:"
-            + WkfInstanceService.class.getName()
-            + ":findProcessInstanceByNode('"
-            + wkfTaskConfig.getName()
-            + "','"
-            + wkfTaskConfig.getProcessId()
-            + "','"
-            + wkfTaskConfig.getType()
-            + "',"
-            + permanent
-            + ")\" />\n"
             + (userMenu && !Strings.isNullOrEmpty(wkfTaskConfig.getUserPath())
                 ? "\t<context name=\"currentUserId\" expr=\"eval:__user__.id\" />\n"
                 : "")
@@ -251,7 +248,7 @@ public class WkfMenuServiceImpl implements WkfMenuService {
       WkfTaskConfig wkfTaskConfig, WkfTaskMenu taskMenu, boolean userMenu, boolean isJson) {
 
     Property property = null;
-    String query = "self.processInstanceId in (:processInstanceIds)";
+    String query = wkfInstanceNodeService.getDomain(wkfTaskConfig, taskMenu.getPermanentMenu());
     if (isJson) {
       query += " AND self.jsonModel = :jsonModel";
     }
@@ -325,6 +322,8 @@ public class WkfMenuServiceImpl implements WkfMenuService {
       return;
     }
 
+    WkfCache.invalidateMenuNodes(BpmTools.getCurentTenant());
+
     for (WkfTaskMenu taskMenu : taskMenuList) {
       String name = taskMenu.getMenuId();
 
@@ -341,6 +340,7 @@ public class WkfMenuServiceImpl implements WkfMenuService {
   @Transactional(rollbackOn = Exception.class)
   public void removeMenu(WkfTaskMenu taskMenu) {
     String name = taskMenu.getMenuId();
+    WkfCache.invalidateMenuNodes(BpmTools.getCurentTenant());
 
     MetaMenu metaMenu = metaMenuRepository.findByName(name);
     if (metaMenu != null) {
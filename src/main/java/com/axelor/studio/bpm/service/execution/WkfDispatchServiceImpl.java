@@ -0,0 +1,324 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.bpm.service.execution;
+
+import com.axelor.db.EntityHelper;
+import com.axelor.db.JPA;
+import com.axelor.db.Model;
+import com.axelor.db.tenants.TenantAware;
+import com.axelor.inject.Beans;
+import com.axelor.meta.db.MetaJsonRecord;
+import com.axelor.studio.baml.tools.BpmTools;
+import com.axelor.studio.bpm.context.WkfCache;
+import com.axelor.studio.bpm.listener.WkfRequestListener;
+import com.axelor.studio.service.AppSettingsStudioService;
+import com.axelor.utils.helpers.ExceptionHelper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.servlet.RequestScoper;
+import com.google.inject.servlet.ServletScopes;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands entity writes caught by {@link com.axelor.studio.db.repo.GlobalEntityListener} to a shared
+ * worker pool. In sync mode each write is evaluated right away and the caller waits, writes done
+ * while evaluating are evaluated inline by the worker. In async mode the writes of a transaction
+ * are coalesced and evaluated in batches once it has committed.
+ */
+@Singleton
+public class WkfDispatchServiceImpl implements WkfDispatchService {
+
+  protected static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  protected static final ThreadLocal<Boolean> WORKER_THREAD = ThreadLocal.withInitial(() -> false);
+
+  protected static final ThreadLocal<PendingBatch> PENDING_BATCH = new ThreadLocal<>();
+
+  protected final AppSettingsStudioService appSettingsStudioService;
+
+  protected final String mode;
+  protected final int batchSize;
+  protected final ThreadFactory threadFactory;
+  protected final ThreadPoolExecutor executor;
+
+  protected final AtomicLong submitted = new AtomicLong();
+  protected final AtomicLong skipped = new AtomicLong();
+  protected final AtomicLong coalesced = new AtomicLong();
+  protected final AtomicLong completed = new AtomicLong();
+  protected final AtomicLong failed = new AtomicLong();
+  protected final AtomicLong overflow = new AtomicLong();
+  protected final AtomicLong totalLatency = new AtomicLong();
+  protected final AtomicLong maxLatency = new AtomicLong();
+
+  @Inject
+  public WkfDispatchServiceImpl(AppSettingsStudioService appSettingsStudioService) {
+    this.appSettingsStudioService = appSettingsStudioService;
+    this.mode = appSettingsStudioService.getWkfDispatchMode();
+    this.batchSize = Math.max(1, appSettingsStudioService.getWkfDispatchBatchSize());
+
+    int poolSize = Math.max(1, appSettingsStudioService.getWkfDispatchPoolSize());
+    this.threadFactory =
+        new ThreadFactoryBuilder().setNameFormat("wkf-dispatch-%d").setDaemon(true).build();
+    this.executor =
+        new ThreadPoolExecutor(
+            poolSize,
+            poolSize,
+            60L,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(
+                Math.max(1, appSettingsStudioService.getWkfDispatchQueueCapacity())),
+            threadFactory,
+            this::onQueueFull);
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  @Override
+  public void dispatch(Model model) {
+    String tenantId = BpmTools.getCurentTenant();
+
+    if (!isWkfModel(model, tenantId)) {
+      skipped.incrementAndGet();
+      return;
+    }
+
+    if (MODE_ASYNC.equals(mode)) {
+      addToPendingBatch(model, tenantId);
+      return;
+    }
+
+    submitted.incrementAndGet();
+    long enqueuedAt = System.nanoTime();
+
+    // Writes done by a worker are evaluated on it, waiting on the pool from inside could starve it.
+    if (WORKER_THREAD.get()) {
+      evaluate(Set.of(model), null, enqueuedAt);
+      return;
+    }
+
+    Future<?> future =
+        executor.submit(
+            () -> process(Set.of(model), Collections.emptyList(), tenantId, enqueuedAt));
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      ExceptionHelper.error(e);
+    }
+  }
+
+  @Override
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    long done = completed.get();
+    metrics.put("mode", mode);
+    metrics.put("poolSize", executor.getMaximumPoolSize());
+    metrics.put("activeWorkers", executor.getActiveCount());
+    metrics.put("queueDepth", executor.getQueue().size());
+    metrics.put("submitted", submitted.get());
+    metrics.put("skipped", skipped.get());
+    metrics.put("coalesced", coalesced.get());
+    metrics.put("completed", done);
+    metrics.put("failed", failed.get());
+    metrics.put("overflow", overflow.get());
+    metrics.put(
+        "avgLatencyMs", done == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatency.get() / done));
+    metrics.put("maxLatencyMs", TimeUnit.NANOSECONDS.toMillis(maxLatency.get()));
+    return metrics;
+  }
+
+  protected boolean isWkfModel(Model model, String tenantId) {
+    if (!WkfCache.WKF_MODEL_CACHE.containsKey(tenantId)) {
+      // The cache is loaded lazily by the request listener, let the worker decide.
+      return true;
+    }
+
+    String modelName = EntityHelper.getEntityClass(model).getName();
+    if (model instanceof MetaJsonRecord) {
+      modelName = ((MetaJsonRecord) model).getJsonModel();
+    }
+    return WkfCache.isWkfModel(tenantId, modelName);
+  }
+
+  protected void addToPendingBatch(Model model, String tenantId) {
+    PendingBatch batch = PENDING_BATCH.get();
+
+    if (batch == null) {
+      Transaction transaction = JPA.em().unwrap(Session.class).getTransaction();
+      if (transaction == null || !transaction.isActive()) {
+        PendingBatch single = new PendingBatch(tenantId);
+        single.add(model);
+        submitBatch(single);
+        return;
+      }
+      batch = new PendingBatch(tenantId);
+      PENDING_BATCH.set(batch);
+      transaction.registerSynchronization(batch);
+    }
+
+    if (!batch.add(model)) {
+      coalesced.incrementAndGet();
+    }
+  }
+
+  protected void submitBatch(PendingBatch batch) {
+    List<EntityRef> refs = new ArrayList<>(batch.refs.values());
+    long enqueuedAt = System.nanoTime();
+
+    for (int i = 0; i < refs.size(); i += batchSize) {
+      List<EntityRef> chunk = refs.subList(i, Math.min(i + batchSize, refs.size()));
+      submitted.addAndGet(chunk.size());
+      executor.execute(() -> process(null, chunk, batch.tenantId, enqueuedAt));
+    }
+  }
+
+  protected void process(
+      Set<Model> models, List<EntityRef> refs, String tenantId, long enqueuedAt) {
+    new TenantAware(() -> evaluate(models, refs, enqueuedAt))
+        .withTransaction(false)
+        .tenantId(tenantId)
+        .run();
+  }
+
+  protected void evaluate(Set<Model> models, List<EntityRef> refs, long enqueuedAt) {
+    int size = models != null ? models.size() : refs.size();
+    boolean nested = WORKER_THREAD.get();
+    WORKER_THREAD.set(true);
+    try {
+      callWkfProcess(models != null ? models : findModels(refs));
+      completed.addAndGet(size);
+    } catch (Exception e) {
+      failed.addAndGet(size);
+      ExceptionHelper.error(e);
+    } finally {
+      if (!nested) {
+        WORKER_THREAD.remove();
+      }
+      long latency = System.nanoTime() - enqueuedAt;
+      totalLatency.addAndGet(latency * size);
+      maxLatency.accumulateAndGet(latency, Math::max);
+    }
+  }
+
+  protected Set<Model> findModels(List<EntityRef> refs) {
+    Set<Model> models = new LinkedHashSet<>();
+    for (EntityRef ref : refs) {
+      Model model = JPA.find(ref.klass, ref.id);
+      if (model != null) {
+        models.add(model);
+      }
+    }
+    return models;
+  }
+
+  protected void callWkfProcess(Set<Model> updated) throws ClassNotFoundException {
+    if (updated.isEmpty()) {
+      return;
+    }
+    RequestScoper scope = ServletScopes.scopeRequest(Collections.emptyMap());
+    try (RequestScoper.CloseableScope ignored = scope.open()) {
+      Beans.get(WkfRequestListener.class)
+          .applyProcessChange(
+              updated, Collections.emptySet(), WkfInstanceServiceImpl.EXECUTION_SOURCE_LISTENER);
+    } catch (ConcurrentModificationException e) {
+      ExceptionHelper.error(e);
+    }
+  }
+
+  protected void onQueueFull(Runnable task, ThreadPoolExecutor executor) {
+    if (executor.isShutdown()) {
+      throw new RejectedExecutionException("Workflow dispatcher is shut down");
+    }
+    if (WORKER_THREAD.get()) {
+      // A worker blocking on its own pool could starve it, run the overflow aside instead.
+      overflow.incrementAndGet();
+      threadFactory.newThread(task).start();
+      return;
+    }
+    try {
+      executor.getQueue().put(task);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RejectedExecutionException(e);
+    }
+  }
+
+  protected static class EntityRef {
+    protected final Class<? extends Model> klass;
+    protected final Long id;
+
+    protected EntityRef(Class<? extends Model> klass, Long id) {
+      this.klass = klass;
+      this.id = id;
+    }
+  }
+
+  protected class PendingBatch implements Synchronization {
+    protected final String tenantId;
+    protected final Map<String, EntityRef> refs = new LinkedHashMap<>();
+
+    protected PendingBatch(String tenantId) {
+      this.tenantId = tenantId;
+    }
+
+    protected boolean add(Model model) {
+      Class<? extends Model> klass = EntityHelper.getEntityClass(model);
+      String key = klass.getName() + "#" + model.getId();
+      if (refs.containsKey(key)) {
+        return false;
+      }
+      refs.put(key, new EntityRef(klass, model.getId()));
+      return true;
+    }
+
+    @Override
+    public void beforeCompletion() {}
+
+    @Override
+    public void afterCompletion(int status) {
+      PENDING_BATCH.remove();
+      if (status == Status.STATUS_COMMITTED) {
+        log.trace("Dispatch {} workflow evaluation(s) after commit", refs.size());
+        submitBatch(this);
+      }
+    }
+  }
+}
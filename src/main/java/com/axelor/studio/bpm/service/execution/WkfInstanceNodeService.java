@@ -0,0 +1,47 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.bpm.service.execution;
+
+import com.axelor.studio.db.WkfTaskConfig;
+
+/**
+ * Keeps which process instances are or were at the nodes having task menus, so that the menu
+ * domains select their records with a subquery.
+ */
+public interface WkfInstanceNodeService {
+
+  void onNodeStart(String processInstanceId, String processId, String node);
+
+  void onNodeEnd(String processInstanceId, String processId, String node);
+
+  void onProcessEnd(String processInstanceId, String processId);
+
+  void removeInstance(String processInstanceId);
+
+  /** Deletes the rows of the process instances no longer in the history, returns their count. */
+  int clean();
+
+  /** Recreates the rows of the node of the task config from the process history. */
+  void rebuild(WkfTaskConfig wkfTaskConfig);
+
+  /**
+   * Condition on the records whose process instance is at the node of the task config, or has been
+   * there when permanent.
+   */
+  String getDomain(WkfTaskConfig wkfTaskConfig, boolean permanent);
+}
@@ -0,0 +1,339 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.bpm.service.execution;
+
+import com.axelor.db.JPA;
+import com.axelor.db.tenants.TenantAware;
+import com.axelor.meta.db.repo.MetaModelRepository;
+import com.axelor.studio.baml.tools.BpmTools;
+import com.axelor.studio.bpm.context.WkfCache;
+import com.axelor.studio.bpm.service.init.ProcessEngineService;
+import com.axelor.studio.db.WkfInstanceNode;
+import com.axelor.studio.db.WkfTaskConfig;
+import com.axelor.studio.db.repo.WkfInstanceNodeRepository;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.persist.Transactional;
+import java.time.LocalDateTime;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import org.camunda.bpm.engine.ManagementService;
+import org.camunda.bpm.engine.history.HistoricActivityInstance;
+import org.camunda.bpm.engine.history.HistoricProcessInstance;
+import org.camunda.bpm.engine.impl.cfg.TransactionContext;
+import org.camunda.bpm.engine.impl.cfg.TransactionState;
+import org.camunda.bpm.engine.impl.context.Context;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.camunda.bpm.model.bpmn.impl.BpmnModelConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the node changes of each engine transaction and writes them on a single background thread
+ * once the transaction is committed, so that the rows follow the engine even when its transaction
+ * is rolled back or retried.
+ */
+@Singleton
+public class WkfInstanceNodeServiceImpl implements WkfInstanceNodeService {
+
+  protected static final Logger log = LoggerFactory.getLogger(WkfInstanceNodeServiceImpl.class);
+
+  protected static final ThreadLocal<Map<TransactionContext, NodeChanges>> PENDING =
+      ThreadLocal.withInitial(IdentityHashMap::new);
+
+  protected WkfInstanceNodeRepository wkfInstanceNodeRepo;
+  protected ProcessEngineService engineService;
+  protected MetaModelRepository metaModelRepo;
+
+  protected final ExecutorService executor;
+
+  @Inject
+  public WkfInstanceNodeServiceImpl(
+      WkfInstanceNodeRepository wkfInstanceNodeRepo,
+      ProcessEngineService engineService,
+      MetaModelRepository metaModelRepo) {
+    this.wkfInstanceNodeRepo = wkfInstanceNodeRepo;
+    this.engineService = engineService;
+    this.metaModelRepo = metaModelRepo;
+    this.executor =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("bpm-instance-node-%d")
+                .setDaemon(true)
+                .build());
+  }
+
+  /** Changes of the active executions per node, and the ended process instances. */
+  protected static class NodeChanges {
+    protected final Map<String, NodeDelta> deltas = new LinkedHashMap<>();
+    protected final Set<String> endedInstances = new LinkedHashSet<>();
+
+    protected NodeDelta delta(String processInstanceId, String processId, String node) {
+      return deltas.computeIfAbsent(
+          processInstanceId + ":" + node,
+          key -> new NodeDelta(processInstanceId, processId, node));
+    }
+  }
+
+  protected static class NodeDelta {
+    protected final String processInstanceId;
+    protected final String processId;
+    protected final String node;
+    protected int activeCount;
+
+    protected NodeDelta(String processInstanceId, String processId, String node) {
+      this.processInstanceId = processInstanceId;
+      this.processId = processId;
+      this.node = node;
+    }
+  }
+
+  protected boolean isMenuNode(String processId, String node) {
+    Set<String> nodes =
+        WkfCache.getMenuNodes(BpmTools.getCurentTenant()).get(WkfCache.getProcessKey(processId));
+    return nodes != null && nodes.contains(node);
+  }
+
+  @Override
+  public void onNodeStart(String processInstanceId, String processId, String node) {
+    if (!isMenuNode(processId, node)) {
+      return;
+    }
+    changes(changes -> changes.delta(processInstanceId, processId, node).activeCount++);
+  }
+
+  @Override
+  public void onNodeEnd(String processInstanceId, String processId, String node) {
+    if (!isMenuNode(processId, node)) {
+      return;
+    }
+    changes(changes -> changes.delta(processInstanceId, processId, node).activeCount--);
+  }
+
+  @Override
+  public void onProcessEnd(String processInstanceId, String processId) {
+    if (!WkfCache.getMenuNodes(BpmTools.getCurentTenant())
+        .containsKey(WkfCache.getProcessKey(processId))) {
+      return;
+    }
+    changes(changes -> changes.endedInstances.add(processInstanceId));
+  }
+
+  /**
+   * Adds to the changes of the current engine transaction. Outside of a command, the changes are
+   * written right away.
+   */
+  protected void changes(Consumer<NodeChanges> change) {
+    String tenantId = BpmTools.getCurentTenant();
+    TransactionContext transactionContext = getTransactionContext();
+
+    if (transactionContext == null) {
+      NodeChanges changes = new NodeChanges();
+      change.accept(changes);
+      executor.execute(() -> apply(tenantId, changes));
+      return;
+    }
+
+    Map<TransactionContext, NodeChanges> pending = PENDING.get();
+    NodeChanges changes = pending.get(transactionContext);
+
+    if (changes == null) {
+      NodeChanges transactionChanges = new NodeChanges();
+      pending.put(transactionContext, transactionChanges);
+      transactionContext.addTransactionListener(
+          TransactionState.COMMITTED,
+          context -> {
+            PENDING.get().remove(transactionContext);
+            executor.execute(() -> apply(tenantId, transactionChanges));
+          });
+      transactionContext.addTransactionListener(
+          TransactionState.ROLLED_BACK, context -> PENDING.get().remove(transactionContext));
+      changes = transactionChanges;
+    }
+
+    change.accept(changes);
+  }
+
+  protected TransactionContext getTransactionContext() {
+    CommandContext commandContext = Context.getCommandContext();
+    return commandContext == null ? null : commandContext.getTransactionContext();
+  }
+
+  protected void apply(String tenantId, NodeChanges changes) {
+    try {
+      new TenantAware(() -> apply(changes)).tenantId(tenantId).run();
+    } catch (Exception e) {
+      log.error("Unable to update the BPM task menu rows", e);
+    }
+  }
+
+  protected void apply(NodeChanges changes) {
+    changes.deltas.values().forEach(this::apply);
+    changes.endedInstances.forEach(
+        processInstanceId ->
+            JPA.em()
+                .createQuery(
+                    "UPDATE WkfInstanceNode self SET self.finished = true "
+                        + "WHERE self.processInstanceId = :processInstanceId")
+                .setParameter("processInstanceId", processInstanceId)
+                .executeUpdate());
+  }
+
+  /** Adds the delta to the row of the node, created when the node is first reached. */
+  protected void apply(NodeDelta delta) {
+    int updated =
+        JPA.em()
+            .createQuery(
+                "UPDATE WkfInstanceNode self SET self.activeCount = CASE "
+                    + "WHEN COALESCE(self.activeCount, 0) + :delta > 0 "
+                    + "THEN COALESCE(self.activeCount, 0) + :delta ELSE 0 END, "
+                    + "self.processId = :processId "
+                    + "WHERE self.processInstanceId = :processInstanceId AND self.node = :node")
+            .setParameter("delta", delta.activeCount)
+            .setParameter("processId", delta.processId)
+            .setParameter("processInstanceId", delta.processInstanceId)
+            .setParameter("node", delta.node)
+            .executeUpdate();
+    if (updated > 0) {
+      return;
+    }
+    WkfInstanceNode instanceNode = new WkfInstanceNode();
+    instanceNode.setProcessInstanceId(delta.processInstanceId);
+    instanceNode.setProcessId(delta.processId);
+    instanceNode.setProcessKey(WkfCache.getProcessKey(delta.processId));
+    instanceNode.setNode(delta.node);
+    instanceNode.setActiveCount(Math.max(delta.activeCount, 0));
+    wkfInstanceNodeRepo.save(instanceNode);
+  }
+
+  /**
+   * Deletes the rows of the instance on the writing thread, after the changes of the instance
+   * already committed.
+   */
+  @Override
+  public void removeInstance(String processInstanceId) {
+    String tenantId = BpmTools.getCurentTenant();
+    executor.execute(
+        () -> {
+          try {
+            new TenantAware(
+                    () ->
+                        JPA.em()
+                            .createQuery(
+                                "DELETE FROM WkfInstanceNode self "
+                                    + "WHERE self.processInstanceId = :processInstanceId")
+                            .setParameter("processInstanceId", processInstanceId)
+                            .executeUpdate())
+                .tenantId(tenantId)
+                .run();
+          } catch (Exception e) {
+            log.error("Unable to remove the BPM task menu rows", e);
+          }
+        });
+  }
+
+  @Override
+  @Transactional(rollbackOn = Exception.class)
+  public int clean() {
+    String table = getTableName();
+    return JPA.em()
+        .createNativeQuery(
+            "DELETE FROM "
+                + table
+                + " n WHERE NOT EXISTS (SELECT 1 FROM "
+                + engineService
+                    .getEngine()
+                    .getManagementService()
+                    .getTableName(HistoricProcessInstance.class)
+                + " p WHERE p.id_ = n.process_instance_id)")
+        .executeUpdate();
+  }
+
+  @Override
+  @Transactional(rollbackOn = Exception.class)
+  public void rebuild(WkfTaskConfig wkfTaskConfig) {
+    if (wkfTaskConfig.getProcessId() == null || wkfTaskConfig.getName() == null) {
+      return;
+    }
+    String processKey = WkfCache.getProcessKey(wkfTaskConfig.getProcessId());
+    String node = wkfTaskConfig.getName();
+
+    JPA.em()
+        .createQuery(
+            "DELETE FROM WkfInstanceNode self "
+                + "WHERE self.processKey = :processKey AND self.node = :node")
+        .setParameter("processKey", processKey)
+        .setParameter("node", node)
+        .executeUpdate();
+
+    ManagementService managementService = engineService.getEngine().getManagementService();
+    JPA.em()
+        .createNativeQuery(
+            String.format(
+                "INSERT INTO %1$s (id, version, process_instance_id, process_id, process_key, "
+                    + "node, active_count, finished, created_on) "
+                    + "SELECT nextval('%1$s_seq'), 0, a.proc_inst_id_, p.proc_def_id_, "
+                    + ":processKey, :node, "
+                    + "SUM(CASE WHEN a.end_time_ IS NULL THEN 1 ELSE 0 END), "
+                    + "MAX(CASE WHEN p.end_time_ IS NULL THEN 0 ELSE 1 END) = 1, :now "
+                    + "FROM %2$s a JOIN %3$s p ON p.id_ = a.proc_inst_id_ "
+                    + "WHERE a.act_id_ = :node AND p.proc_def_key_ = :processKey "
+                    + "GROUP BY a.proc_inst_id_, p.proc_def_id_",
+                getTableName(),
+                managementService.getTableName(HistoricActivityInstance.class),
+                managementService.getTableName(HistoricProcessInstance.class)))
+        .setParameter("processKey", processKey)
+        .setParameter("node", node)
+        .setParameter("now", LocalDateTime.now())
+        .executeUpdate();
+  }
+
+  protected String getTableName() {
+    return metaModelRepo.findByName(WkfInstanceNode.class.getSimpleName()).getTableName();
+  }
+
+  @Override
+  public String getDomain(WkfTaskConfig wkfTaskConfig, boolean permanent) {
+    String condition = "instanceNode.processId = '" + wkfTaskConfig.getProcessId() + "'";
+    if (!permanent) {
+      condition += " AND instanceNode.activeCount > 0";
+    }
+    if (BpmnModelConstants.BPMN_ELEMENT_END_EVENT.equals(wkfTaskConfig.getType())) {
+      condition =
+          "("
+              + condition
+              + ") OR (instanceNode.processKey = '"
+              + WkfCache.getProcessKey(wkfTaskConfig.getProcessId())
+              + "' AND instanceNode.finished = true)";
+    }
+    return "EXISTS (SELECT instanceNode.id FROM WkfInstanceNode instanceNode "
+        + "WHERE instanceNode.processInstanceId = self.processInstanceId "
+        + "AND instanceNode.node = '"
+        + wkfTaskConfig.getName()
+        + "' AND ("
+        + condition
+        + "))";
+  }
+}
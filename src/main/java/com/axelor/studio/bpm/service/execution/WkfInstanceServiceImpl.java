@@ -18,24 +18,25 @@
 package com.axelor.studio.bpm.service.execution;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.Appender;
 import com.axelor.common.ObjectUtils;
 import com.axelor.db.EntityHelper;
 import com.axelor.db.JPA;
 import com.axelor.db.Model;
 import com.axelor.db.Query;
-import com.axelor.db.tenants.TenantAware;
 import com.axelor.i18n.I18n;
 import com.axelor.meta.CallMethod;
 import com.axelor.meta.MetaFiles;
 import com.axelor.meta.db.MetaJsonRecord;
 import com.axelor.meta.db.MetaModel;
 import com.axelor.studio.baml.tools.BpmTools;
+import com.axelor.studio.bpm.context.WkfCache;
 import com.axelor.studio.bpm.context.WkfContextHelper;
 import com.axelor.studio.bpm.exception.AxelorScriptEngineException;
 import com.axelor.studio.bpm.exception.BpmExceptionMessage;
 import com.axelor.studio.bpm.service.WkfCommonService;
 import com.axelor.studio.bpm.service.init.ProcessEngineService;
+import com.axelor.studio.bpm.service.log.WkfInstanceLogAppender;
 import com.axelor.studio.bpm.service.log.WkfLogService;
 import com.axelor.studio.bpm.service.message.BpmErrorMessageService;
 import com.axelor.studio.db.WkfInstance;
@@ -52,22 +53,25 @@ import com.axelor.utils.helpers.ExceptionHelper;
 import com.axelor.utils.helpers.context.FullContext;
 import com.axelor.utils.helpers.context.FullContextHelper;
 import com.google.common.base.Strings;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.invoke.MethodHandles;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.IOUtils;
@@ -88,6 +92,7 @@ import org.camunda.bpm.engine.variable.Variables.SerializationDataFormats;
 import org.camunda.bpm.model.bpmn.impl.BpmnModelConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
 public class WkfInstanceServiceImpl implements WkfInstanceService {
 
@@ -106,6 +111,7 @@ public class WkfInstanceServiceImpl implements WkfInstanceService {
   protected BpmErrorMessageService bpmErrorMessageService;
   protected WkfLogService wkfLogService;
   protected AppSettingsStudioService appSettingsStudioService;
+  protected WkfInstanceNodeService wkfInstanceNodeService;
 
   public static final int EXECUTION_SOURCE_LISTENER = 0;
   public static final int EXECUTION_SOURCE_OBSERVER = 1;
@@ -121,7 +127,8 @@ public class WkfInstanceServiceImpl implements WkfInstanceService {
       WkfUserActionService wkfUserActionService,
       BpmErrorMessageService bpmErrorMessageService,
       WkfLogService wkfLogService,
-      AppSettingsStudioService appSettingsStudioService) {
+      AppSettingsStudioService appSettingsStudioService,
+      WkfInstanceNodeService wkfInstanceNodeService) {
     this.engineService = engineService;
     this.wkfInstanceRepository = wkfInstanceRepository;
     this.wkfService = wkfService;
@@ -132,6 +139,7 @@ public class WkfInstanceServiceImpl implements WkfInstanceService {
     this.bpmErrorMessageService = bpmErrorMessageService;
     this.wkfLogService = wkfLogService;
     this.appSettingsStudioService = appSettingsStudioService;
+    this.wkfInstanceNodeService = wkfInstanceNodeService;
   }
 
   @Override
@@ -151,7 +159,7 @@ public class WkfInstanceServiceImpl implements WkfInstanceService {
               || (source == EXECUTION_SOURCE_OBSERVER && wkfProcess.getOnlyOnClientChange());
     }
     if (executeProcess) {
-      return evalInstance(model, signal);
+      return evalInstance(model, signal, () -> wkfProcessConfig);
     }
     return null;
   }
@@ -159,12 +167,22 @@ public class WkfInstanceServiceImpl implements WkfInstanceService {
   @Override
   @Transactional(rollbackOn = Exception.class)
   public String evalInstance(Model model, String signal) throws ClassNotFoundException {
+    Model entity = EntityHelper.getEntity(model);
+    return evalInstance(
+        entity, signal, Suppliers.memoize(() -> wkfService.findCurrentProcessConfig(entity)));
+  }
+
+  @Transactional(rollbackOn = Exception.class)
+  protected String evalInstance(
+      Model model, String signal, Supplier<WkfProcessConfig> currentProcessConfig)
+      throws ClassNotFoundException {
 
     model = EntityHelper.getEntity(model);
 
     String helpText = null;
 
-    OutputStreamAppender<ILoggingEvent> appender = null;
+    Appender<ILoggingEvent> appender = null;
+    String previousLogInstanceId = MDC.get(WkfInstanceLogAppender.MDC_KEY);
 
     String processInstanceId = null;
     WkfInstance wkfInstance = null;
@@ -175,7 +193,7 @@ public class WkfInstanceServiceImpl implements WkfInstanceService {
       }
 
       if (Strings.isNullOrEmpty(model.getProcessInstanceId())) {
-        addRelatedProcessInstanceId(model);
+        addRelatedProcessInstanceId(model, currentProcessConfig.get());
         log.debug("Model process instanceId added: {}", model.getProcessInstanceId());
       }
 
@@ -209,26 +227,15 @@ public class WkfInstanceServiceImpl implements WkfInstanceService {
       }
 
     } catch (Exception e) {
+      WkfProcessConfig wkfProcessConfig = currentProcessConfig.get();
       if (!(e instanceof AxelorScriptEngineException)) {
-        WkfProcessConfig wkfProcessConfig = wkfService.findCurrentProcessConfig(model);
-        final String finalProcessInstanceId = model.getProcessInstanceId();
-        var executorService = Executors.newSingleThreadExecutor();
-        executorService.submit(
-            () ->
-                new TenantAware(
-                        () -> {
-                          bpmErrorMessageService.sendBpmErrorMessage(
-                              null,
-                              e.getMessage(),
-                              EntityHelper.getEntity(
-                                  wkfProcessConfig.getWkfProcess().getWkfModel()),
-                              finalProcessInstanceId);
-                        })
-                    .withTransaction(false)
-                    .tenantId(BpmTools.getCurentTenant())
-                    .run());
+        bpmErrorMessageService.notifyBpmError(
+            null,
+            e.getMessage(),
+            wkfProcessConfig.getWkfProcess().getWkfModel(),
+            model.getProcessInstanceId());
       }
-      WkfProcess wkfProcess = wkfService.findCurrentProcessConfig(model).getWkfProcess();
+      WkfProcess wkfProcess = wkfProcessConfig.getWkfProcess();
       removeRelatedFailedInstance(model, wkfProcess);
       ExceptionHelper.trace(e);
 
@@ -236,12 +243,22 @@ public class WkfInstanceServiceImpl implements WkfInstanceService {
       wkfTaskService.reset();
       if (appender != null) {
         wkfLogService.writeLog(processInstanceId);
+        restoreLogInstance(previousLogInstanceId);
       }
     }
 
     return helpText;
   }
 
+  /** Routes the BPM logs back to the instance evaluated before, if any. */
+  protected void restoreLogInstance(String logInstanceId) {
+    if (logInstanceId != null) {
+      MDC.put(WkfInstanceLogAppender.MDC_KEY, logInstanceId);
+    } else {
+      MDC.remove(WkfInstanceLogAppender.MDC_KEY);
+    }
+  }
+
   @Override
   public void evalInstance(WkfInstance instance) throws ClassNotFoundException {
     List<WkfProcessConfig> wkfProcessConfigs = instance.getWkfProcess().getWkfProcessConfigList();
@@ -345,6 +362,14 @@ public class WkfInstanceServiceImpl implements WkfInstanceService {
       instance.setProcessInstanceId(processInstance.getId());
     }
     model.setProcessInstanceId(processInstance.getId());
+    invalidateProcessInstanceId(model);
+  }
+
+  protected void invalidateProcessInstanceId(Model model) {
+    if (model.getId() != null) {
+      WkfCache.invalidateProcessInstanceId(
+          BpmTools.getCurentTenant(), EntityHelper.getEntityClass(model), model.getId());
+    }
   }
 
   @Override
@@ -360,8 +385,10 @@ public class WkfInstanceServiceImpl implements WkfInstanceService {
   }
 
   protected void addRelatedProcessInstanceId(Model model) {
+    addRelatedProcessInstanceId(model, wkfService.findCurrentProcessConfig(model));
+  }
 
-    WkfProcessConfig wkfProcessConfig = wkfService.findCurrentProcessConfig(model);
+  protected void addRelatedProcessInstanceId(Model model, WkfProcessConfig wkfProcessConfig) {
 
     //    if (wkfProcessConfig == null) {
     //      wkfProcessConfig = wkfService.findOldProcessConfig(model);
@@ -397,6 +424,7 @@ public class WkfInstanceServiceImpl implements WkfInstanceService {
           "Related instance found with processInstanceId: {}",
           relatedModel.get("processInstanceId"));
       model.setProcessInstanceId((String) relatedModel.get("processInstanceId"));
+      invalidateProcessInstanceId(model);
       return true;
     } else {
       WkfProcessConfig oldProcessConfig = wkfService.findOldProcessConfig(model);
@@ -445,6 +473,7 @@ public class WkfInstanceServiceImpl implements WkfInstanceService {
     } else {
       engine.getHistoryService().deleteHistoricProcessInstanceIfExists(processInstanceId);
     }
+    wkfInstanceNodeService.removeInstance(processInstanceId);
   }
 
   @Override
@@ -454,17 +483,7 @@ public class WkfInstanceServiceImpl implements WkfInstanceService {
       return false;
     }
 
-    long tasks =
-        engineService
-            .getEngine()
-            .getHistoryService()
-            .createHistoricActivityInstanceQuery()
-            .processInstanceId(processInstanceId)
-            .unfinished()
-            .activityId(taskId)
-            .count();
-
-    return tasks > 0;
+    return getActivities(processInstanceId).isActive(taskId);
   }
 
   @Override
@@ -474,9 +493,7 @@ public class WkfInstanceServiceImpl implements WkfInstanceService {
       return false;
     }
 
-    Model savedModel = JPA.find(EntityHelper.getEntityClass(model), model.getId());
-
-    return isActiveTask(savedModel.getProcessInstanceId(), taskId);
+    return isActiveTask(getProcessInstanceId(model), taskId);
   }
 
   @Override
@@ -486,16 +503,7 @@ public class WkfInstanceServiceImpl implements WkfInstanceService {
       return false;
     }
 
-    long tasks =
-        engineService
-            .getEngine()
-            .getHistoryService()
-            .createHistoricActivityInstanceQuery()
-            .processInstanceId(processInstanceId)
-            .activityId(taskId)
-            .count();
-
-    return tasks > 0;
+    return getActivities(processInstanceId).isVisited(taskId);
   }
 
   @Override
@@ -505,9 +513,46 @@ public class WkfInstanceServiceImpl implements WkfInstanceService {
       return false;
     }
 
-    Model savedModel = JPA.find(EntityHelper.getEntityClass(model), model.getId());
+    return isActivatedTask(getProcessInstanceId(model), taskId);
+  }
 
-    return isActivatedTask(savedModel.getProcessInstanceId(), taskId);
+  /** Activities of the instance, loaded once for all the conditions of a form. */
+  protected WkfCache.ActivitySnapshot getActivities(String processInstanceId) {
+    return WkfCache.getActivities(
+        BpmTools.getCurentTenant(), processInstanceId, this::loadActivities);
+  }
+
+  protected WkfCache.ActivitySnapshot loadActivities(String processInstanceId) {
+    Set<String> active = new HashSet<>();
+    Set<String> visited = new HashSet<>();
+    engineService
+        .getEngine()
+        .getHistoryService()
+        .createHistoricActivityInstanceQuery()
+        .processInstanceId(processInstanceId)
+        .list()
+        .forEach(
+            activity -> {
+              visited.add(activity.getActivityId());
+              if (activity.getEndTime() == null) {
+                active.add(activity.getActivityId());
+              }
+            });
+    return new WkfCache.ActivitySnapshot(active, visited);
+  }
+
+  protected String getProcessInstanceId(Model model) {
+    if (model.getId() == null) {
+      return null;
+    }
+    Class<? extends Model> modelClass = EntityHelper.getEntityClass(model);
+    String processInstanceId =
+        WkfCache.getProcessInstanceId(
+            BpmTools.getCurentTenant(),
+            modelClass,
+            model.getId(),
+            id -> JPA.find(modelClass, id).getProcessInstanceId());
+    return processInstanceId.isEmpty() ? null : processInstanceId;
   }
 
   @Override
@@ -975,15 +1020,18 @@ public class WkfInstanceServiceImpl implements WkfInstanceService {
     try {
       String result = "";
       if (instance.getLogFile() != null) {
-        BufferedReader reader =
-            new BufferedReader(new FileReader(MetaFiles.getPath(instance.getLogFile()).toString()));
-        StringBuilder logBuilder = new StringBuilder();
-        String line;
-        while ((line = reader.readLine()) != null) {
-          logBuilder.append(line).append(System.lineSeparator());
+        long maxSize = appSettingsStudioService.getBpmLogViewMaxSize();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long offset =
+            wkfLogService.copyLogTail(
+                MetaFiles.getPath(instance.getLogFile()), maxSize, 0, outputStream);
+        result = outputStream.toString(Charset.defaultCharset());
+        if (offset > 0) {
+          result =
+              String.format(I18n.get(BpmExceptionMessage.BPM_LOG_TRUNCATED), maxSize / 1024)
+                  + System.lineSeparator()
+                  + result;
         }
-        result = logBuilder.toString();
-        reader.close();
       }
       return result;
     } catch (Exception e) {
@@ -993,34 +1041,14 @@ public class WkfInstanceServiceImpl implements WkfInstanceService {
 
   public String getFilteredLogText(WkfInstance wkfInstance, LocalDateTime from, LocalDateTime to) {
     validate(from, to);
-    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
-    StringBuilder result = new StringBuilder();
     try {
+      String result = "";
       if (wkfInstance.getLogFile() != null) {
-        LocalDateTime lastValidDateTime = null;
-        BufferedReader reader =
-            new BufferedReader(
-                new FileReader(MetaFiles.getPath(wkfInstance.getLogFile()).toString()));
-        String line;
-        while ((line = reader.readLine()) != null) {
-          if (isLogDetails(line)) {
-            if (isLogDetailsIncluded(lastValidDateTime, from, to)) {
-              result.append(line).append(System.lineSeparator());
-            }
-            continue;
-          }
-          String logDateTimeStr = line.substring(0, 23);
-          LocalDateTime logDateTime = LocalDateTime.parse(logDateTimeStr, formatter);
-
-          if (logDateTime.isAfter(from) && logDateTime.isBefore(to)) {
-            result.append(line).append(System.lineSeparator());
-          }
-
-          lastValidDateTime = logDateTime;
-        }
-        reader.close();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        wkfLogService.copyLog(MetaFiles.getPath(wkfInstance.getLogFile()), from, to, outputStream);
+        result = outputStream.toString(Charset.defaultCharset());
       }
-      return result.toString();
+      return result;
 
     } catch (Exception e) {
       throw new IllegalStateException(e.getMessage());
@@ -1034,15 +1062,6 @@ public class WkfInstanceServiceImpl implements WkfInstanceService {
     }
   }
 
-  protected boolean isLogDetails(String line) {
-    return line.length() < 23 || !Character.isDigit(line.charAt(0));
-  }
-
-  protected boolean isLogDetailsIncluded(
-      LocalDateTime validDateTime, LocalDateTime inf, LocalDateTime sup) {
-    return validDateTime != null && validDateTime.isBefore(sup) && validDateTime.isAfter(inf);
-  }
-
   public List<String> getBlockedInstancesOnTimer() {
     ProcessEngine engine = engineService.getEngine();
     ManagementService managementService = engine.getManagementService();
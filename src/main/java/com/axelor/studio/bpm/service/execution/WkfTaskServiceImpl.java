@@ -23,6 +23,8 @@ import com.axelor.db.JpaRepository;
 import com.axelor.db.Model;
 import com.axelor.i18n.I18n;
 import com.axelor.meta.db.MetaJsonRecord;
+import com.axelor.studio.baml.tools.BpmTools;
+import com.axelor.studio.bpm.context.WkfCache;
 import com.axelor.studio.bpm.exception.BpmExceptionMessage;
 import com.axelor.studio.bpm.service.WkfCommonService;
 import com.axelor.studio.bpm.service.app.AppBpmService;
@@ -38,15 +40,22 @@ import com.google.inject.Inject;
 import java.lang.invoke.MethodHandles;
 import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.TaskService;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.persistence.entity.ExecutionEntity;
 import org.camunda.bpm.engine.runtime.Execution;
 import org.camunda.bpm.engine.runtime.ProcessInstance;
+import org.camunda.bpm.engine.runtime.VariableInstance;
 import org.camunda.bpm.engine.task.Task;
 import org.camunda.bpm.engine.variable.Variables;
 import org.slf4j.Logger;
@@ -106,9 +115,7 @@ public class WkfTaskServiceImpl implements WkfTaskService {
 
     Map<String, Object> context = getContext(instance, model);
     // TODO: Check if its required both variables from context and from processInstance, if
-    Map<String, Object> processVariables =
-        engine.getRuntimeService().getVariables(processInstance.getId());
-    processVariables.entrySet().removeIf(it -> Strings.isNullOrEmpty(it.getKey()));
+    TaskVariables taskVariables = new TaskVariables(engine, processInstance.getId());
 
     Map<String, Object> expressionVariables = null;
     Map<String, Object> ctxVariables = wkfService.createVariables(context);
@@ -116,16 +123,14 @@ public class WkfTaskServiceImpl implements WkfTaskService {
       ctxVariables.put(signal, Variables.objectValue(true, true));
     }
 
+    Map<String, Long> configIds =
+        WkfCache.getTaskConfigIds(BpmTools.getCurentTenant(), wkfProcess.getWkfModel().getId());
+    List<TaskCompletion> completions = new ArrayList<>();
+
     for (Task task : tasks) {
 
-      WkfTaskConfig config =
-          wkfTaskConfigRepository
-              .all()
-              .filter(
-                  "self.name = ? and self.wkfModel.id = ?",
-                  task.getTaskDefinitionKey(),
-                  wkfProcess.getWkfModel().getId())
-              .fetchOne();
+      Long configId = configIds.get(task.getTaskDefinitionKey());
+      WkfTaskConfig config = configId != null ? wkfTaskConfigRepository.find(configId) : null;
 
       if (config == null) {
         continue;
@@ -139,7 +144,7 @@ public class WkfTaskServiceImpl implements WkfTaskService {
 
       if (expressionVariables == null) {
         expressionVariables = new HashMap<>();
-        expressionVariables.putAll(processVariables);
+        expressionVariables.putAll(taskVariables.getProcessVariables());
         expressionVariables.putAll(context);
       }
 
@@ -154,7 +159,7 @@ public class WkfTaskServiceImpl implements WkfTaskService {
       variables.putAll(ctxVariables);
 
       if (config.getExpression() != null) {
-        expressionVariables.putAll(engine.getTaskService().getVariables(task.getId()));
+        expressionVariables.putAll(taskVariables.getVariables(task));
         expressionVariables.entrySet().removeIf(it -> Strings.isNullOrEmpty(it.getKey()));
         Boolean validExpr =
             (Boolean) wkfService.evalExpression(expressionVariables, config.getExpression());
@@ -169,12 +174,17 @@ public class WkfTaskServiceImpl implements WkfTaskService {
         log.debug("Valid expr: {}", config.getExpression());
       }
 
-      String userId =
-          Optional.ofNullable(AuthUtils.getUser()).map(Model::getId).orElse(0L).toString();
-      engine.getTaskService().setAssignee(task.getId(), userId);
+      completions.add(new TaskCompletion(task, config, variables));
+      // Set by the completion, for the expressions of the next tasks.
+      expressionVariables.putAll(btnVariables);
+    }
 
-      engine.getTaskService().complete(task.getId(), variables); // here to update the task aop
-      wkfUserActionService.updateUserAction(config, processInstance, engine, task.getId());
+    if (!completions.isEmpty()) {
+      completeTasks(engine, completions);
+      for (TaskCompletion completion : completions) {
+        wkfUserActionService.updateUserAction(
+            completion.config, processInstance, engine, completion.task.getId());
+      }
       taskExecuted = true;
     }
     Execution execution =
@@ -217,6 +227,29 @@ public class WkfTaskServiceImpl implements WkfTaskService {
     return helpText;
   }
 
+  /**
+   * Completes the tasks within a single engine command, so that the changes of all of them are
+   * flushed together.
+   */
+  protected void completeTasks(ProcessEngine engine, List<TaskCompletion> completions) {
+    String userId =
+        Optional.ofNullable(AuthUtils.getUser()).map(Model::getId).orElse(0L).toString();
+    TaskService taskService = engine.getTaskService();
+    ((ProcessEngineConfigurationImpl) engine.getProcessEngineConfiguration())
+        .getCommandExecutorTxRequired()
+        .execute(
+            (Command<Void>)
+                commandContext -> {
+                  for (TaskCompletion completion : completions) {
+                    String taskId = completion.task.getId();
+                    taskService.setAssignee(taskId, userId);
+                    taskService.complete(
+                        taskId, completion.variables); // here to update the task aop
+                  }
+                  return null;
+                });
+  }
+
   protected List<String> getValidButtons(String signal, String button) {
 
     if (button == null) {
@@ -283,4 +316,92 @@ public class WkfTaskServiceImpl implements WkfTaskService {
 
     return modelMap;
   }
+
+  protected static class TaskCompletion {
+    protected final Task task;
+    protected final WkfTaskConfig config;
+    protected final Map<String, Object> variables;
+
+    protected TaskCompletion(Task task, WkfTaskConfig config, Map<String, Object> variables) {
+      this.task = task;
+      this.config = config;
+      this.variables = variables;
+    }
+  }
+
+  /**
+   * Variables of a process instance, fetched once for all its tasks. The variables of a task are
+   * the ones of its execution and of the parent executions, the closest scope winning.
+   */
+  protected static class TaskVariables {
+    protected final ProcessEngine engine;
+    protected final String processInstanceId;
+    protected Map<String, String> parentIds;
+    protected Map<String, Map<String, Object>> executionVariables;
+    protected Map<String, Map<String, Object>> taskVariables;
+
+    protected TaskVariables(ProcessEngine engine, String processInstanceId) {
+      this.engine = engine;
+      this.processInstanceId = processInstanceId;
+    }
+
+    public Map<String, Object> getProcessVariables() {
+      load();
+      return new HashMap<>(executionVariables.getOrDefault(processInstanceId, Map.of()));
+    }
+
+    public Map<String, Object> getVariables(Task task) {
+      load();
+      Deque<String> executionIds = new ArrayDeque<>();
+      for (String executionId = task.getExecutionId();
+          executionId != null && !executionIds.contains(executionId);
+          executionId = parentIds.get(executionId)) {
+        executionIds.push(executionId);
+      }
+      Map<String, Object> variables = new HashMap<>();
+      executionIds.forEach(
+          executionId -> variables.putAll(executionVariables.getOrDefault(executionId, Map.of())));
+      variables.putAll(taskVariables.getOrDefault(task.getId(), Map.of()));
+      return variables;
+    }
+
+    protected void load() {
+      if (executionVariables != null) {
+        return;
+      }
+      parentIds = new HashMap<>();
+      engine
+          .getRuntimeService()
+          .createExecutionQuery()
+          .processInstanceId(processInstanceId)
+          .list()
+          .stream()
+          .filter(ExecutionEntity.class::isInstance)
+          .map(ExecutionEntity.class::cast)
+          .filter(execution -> execution.getParentId() != null)
+          .forEach(execution -> parentIds.put(execution.getId(), execution.getParentId()));
+
+      executionVariables = new HashMap<>();
+      taskVariables = new HashMap<>();
+      for (VariableInstance variable :
+          engine
+              .getRuntimeService()
+              .createVariableInstanceQuery()
+              .processInstanceIdIn(processInstanceId)
+              .list()) {
+        if (Strings.isNullOrEmpty(variable.getName())) {
+          continue;
+        }
+        Map<String, Map<String, Object>> scopes =
+            variable.getTaskId() != null ? taskVariables : executionVariables;
+        String scopeId =
+            variable.getTaskId() != null ? variable.getTaskId() : variable.getExecutionId();
+        if (scopeId != null) {
+          scopes
+              .computeIfAbsent(scopeId, key -> new HashMap<>())
+              .put(variable.getName(), variable.getValue());
+        }
+      }
+    }
+  }
 }
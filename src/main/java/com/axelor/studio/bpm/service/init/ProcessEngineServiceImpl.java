@@ -139,6 +139,9 @@ public class ProcessEngineServiceImpl implements ProcessEngineService {
     engineMap.remove(tenantId);
     WkfCache.WKF_BUTTON_CACHE.remove(tenantId);
     WkfCache.WKF_MODEL_CACHE.remove(tenantId);
+    WkfCache.WKF_PROCESS_CONFIG_CACHE.remove(tenantId);
+    WkfCache.WKF_TASK_CONFIG_CACHE.remove(tenantId);
+    WkfCache.WKF_CUSTOM_VARIABLE_CACHE.remove(tenantId);
   }
 
   @Override
@@ -18,59 +18,170 @@
 package com.axelor.studio.bpm.service.job;
 
 import com.axelor.db.JPA;
-import com.axelor.studio.bpm.service.log.WkfLogService;
-import com.axelor.studio.db.WkfInstance;
-import com.axelor.studio.db.repo.WkfInstanceRepository;
+import com.axelor.meta.MetaFiles;
+import com.axelor.studio.bpm.service.log.WkfLogIndex;
+import com.axelor.studio.bpm.service.log.WkfLoggerInitService;
+import com.axelor.studio.service.AppSettingsStudioService;
 import com.google.inject.Inject;
-import java.util.HashSet;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import javax.persistence.TypedQuery;
 import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Clears the logs of the process instances by batches of increasing ids. Each batch unlinks the log
+ * files and deletes their records in one transaction, then the files are deleted by a pool of
+ * workers while the next batch is processed.
+ */
 public class ClearLogJob implements Job {
 
-  protected WkfInstanceRepository wkfInstanceRepo;
-  protected WkfLogService logService;
+  protected static final Logger log = LoggerFactory.getLogger(ClearLogJob.class);
+
+  protected WkfLoggerInitService wkfLoggerInitService;
+  protected AppSettingsStudioService appSettingsStudioService;
 
   @Inject
-  public ClearLogJob(WkfInstanceRepository wkfInstanceRepo, WkfLogService logService) {
-    this.wkfInstanceRepo = wkfInstanceRepo;
-    this.logService = logService;
+  public ClearLogJob(
+      WkfLoggerInitService wkfLoggerInitService,
+      AppSettingsStudioService appSettingsStudioService) {
+    this.wkfLoggerInitService = wkfLoggerInitService;
+    this.appSettingsStudioService = appSettingsStudioService;
   }
 
-  protected static final int FETCH_LIMIT = 10;
-
   @Override
   public void execute(JobExecutionContext context) throws JobExecutionException {
+    int batchSize = Math.max(appSettingsStudioService.getBpmLogClearBatchSize(), 1);
+    int threads = Math.max(appSettingsStudioService.getBpmLogClearThreads(), 1);
+    int retentionDays = appSettingsStudioService.getBpmLogRetentionDays();
+    LocalDateTime before = retentionDays > 0 ? LocalDateTime.now().minusDays(retentionDays) : null;
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    Deque<Future<Integer>> deletions = new ArrayDeque<>();
+    long start = System.currentTimeMillis();
+    long cleared = 0;
+    long deleted = 0;
     try {
-      List<WkfInstance> wkfInstanceList;
-      Set<Long> processedIdSet = new HashSet<>();
-      int offset = 0;
-      wkfInstanceList =
-          wkfInstanceRepo
-              .all()
-              .filter("self.logFile IS NOT NULL")
-              .order("id")
-              .fetch(FETCH_LIMIT, offset);
-      while (!wkfInstanceList.isEmpty()) {
-        for (WkfInstance instance : wkfInstanceList) {
-          processedIdSet.add(instance.getId());
-          logService.clearLog(instance.getInstanceId());
-          offset++;
+      long lastId = 0;
+      List<LogEntry> batch;
+      while (!(batch = fetch(lastId, before, batchSize)).isEmpty()) {
+        lastId = batch.get(batch.size() - 1).id;
+        clear(batch);
+        cleared += batch.size();
+
+        // Bounds the batches waiting for their files to be deleted.
+        while (deletions.size() >= threads * 2) {
+          deleted += deletions.poll().get();
         }
-        JPA.clear();
-        wkfInstanceList =
-            wkfInstanceRepo
-                .all()
-                .filter("self.logFile IS NOT NULL AND self.id NOT IN (?1)", processedIdSet)
-                .order("id")
-                .fetch(FETCH_LIMIT, offset);
+        List<LogEntry> files = batch;
+        deletions.add(executor.submit(() -> deleteFiles(files)));
+
+        log.info(
+            "Cleared the logs of {} process instances ({} / s)", cleared, rate(cleared, start));
+      }
+      while (!deletions.isEmpty()) {
+        deleted += deletions.poll().get();
       }
+      log.info(
+          "Cleared the logs of {} process instances and deleted {} files in {} ms",
+          cleared,
+          deleted,
+          System.currentTimeMillis() - start);
 
     } catch (Exception e) {
       throw new JobExecutionException(e);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  protected List<LogEntry> fetch(long lastId, LocalDateTime before, int limit) {
+    String query =
+        "SELECT self.id, self.instanceId, logFile.id, logFile.filePath "
+            + "FROM WkfInstance self JOIN self.logFile logFile "
+            + "WHERE self.id > :lastId";
+    if (before != null) {
+      query += " AND COALESCE(self.updatedOn, self.createdOn) < :before";
+    }
+    TypedQuery<Object[]> typedQuery =
+        JPA.em()
+            .createQuery(query + " ORDER BY self.id", Object[].class)
+            .setParameter("lastId", lastId)
+            .setMaxResults(limit);
+    if (before != null) {
+      typedQuery.setParameter("before", before);
+    }
+    return typedQuery.getResultList().stream()
+        .map(row -> new LogEntry((Long) row[0], (String) row[1], (Long) row[2], (String) row[3]))
+        .collect(Collectors.toList());
+  }
+
+  protected void clear(List<LogEntry> batch) {
+    List<Long> ids = batch.stream().map(entry -> entry.id).collect(Collectors.toList());
+    List<Long> logFileIds =
+        batch.stream().map(entry -> entry.logFileId).collect(Collectors.toList());
+    JPA.runInTransaction(
+        () -> {
+          JPA.em()
+              .createQuery("UPDATE WkfInstance self SET self.logFile = NULL WHERE self.id IN :ids")
+              .setParameter("ids", ids)
+              .executeUpdate();
+          JPA.em()
+              .createQuery("DELETE FROM MetaFile self WHERE self.id IN :ids")
+              .setParameter("ids", logFileIds)
+              .executeUpdate();
+        });
+    JPA.clear();
+    batch.forEach(entry -> wkfLoggerInitService.remove(entry.instanceId));
+  }
+
+  protected int deleteFiles(List<LogEntry> batch) {
+    int deleted = 0;
+    for (LogEntry entry : batch) {
+      if (entry.filePath == null) {
+        continue;
+      }
+      Path logFile = MetaFiles.getPath(entry.filePath);
+      try {
+        Files.deleteIfExists(WkfLogIndex.getPath(logFile));
+        if (Files.deleteIfExists(logFile)) {
+          deleted++;
+        }
+      } catch (IOException e) {
+        log.warn("Unable to delete the log file {}", logFile, e);
+      }
+    }
+    return deleted;
+  }
+
+  protected long rate(long count, long start) {
+    long elapsed = System.currentTimeMillis() - start;
+    return elapsed > 0 ? count * 1000 / elapsed : count;
+  }
+
+  protected static class LogEntry {
+    protected final Long id;
+    protected final String instanceId;
+    protected final Long logFileId;
+    protected final String filePath;
+
+    protected LogEntry(Long id, String instanceId, Long logFileId, String filePath) {
+      this.id = id;
+      this.instanceId = instanceId;
+      this.logFileId = logFileId;
+      this.filePath = filePath;
     }
   }
 }
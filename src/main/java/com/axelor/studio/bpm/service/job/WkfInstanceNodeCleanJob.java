@@ -0,0 +1,48 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.bpm.service.job;
+
+import com.axelor.studio.bpm.service.execution.WkfInstanceNodeService;
+import com.google.inject.Inject;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Deletes the task menu rows of the process instances removed from the history. */
+public class WkfInstanceNodeCleanJob implements Job {
+
+  protected static final Logger log = LoggerFactory.getLogger(WkfInstanceNodeCleanJob.class);
+
+  protected WkfInstanceNodeService wkfInstanceNodeService;
+
+  @Inject
+  public WkfInstanceNodeCleanJob(WkfInstanceNodeService wkfInstanceNodeService) {
+    this.wkfInstanceNodeService = wkfInstanceNodeService;
+  }
+
+  @Override
+  public void execute(JobExecutionContext context) throws JobExecutionException {
+    try {
+      log.debug("Task menu rows deleted: {}", wkfInstanceNodeService.clean());
+    } catch (Exception e) {
+      throw new JobExecutionException(e);
+    }
+  }
+}
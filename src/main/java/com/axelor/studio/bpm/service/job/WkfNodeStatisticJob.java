@@ -0,0 +1,52 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.bpm.service.job;
+
+import com.axelor.studio.bpm.service.dashboard.WkfNodeStatisticService;
+import com.axelor.studio.service.AppSettingsStudioService;
+import com.google.inject.Inject;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+
+/** Recomputes the BPM node statistics from the process history, repairing their drift. */
+public class WkfNodeStatisticJob implements Job {
+
+  protected WkfNodeStatisticService wkfNodeStatisticService;
+  protected AppSettingsStudioService appSettingsStudioService;
+
+  @Inject
+  public WkfNodeStatisticJob(
+      WkfNodeStatisticService wkfNodeStatisticService,
+      AppSettingsStudioService appSettingsStudioService) {
+    this.wkfNodeStatisticService = wkfNodeStatisticService;
+    this.appSettingsStudioService = appSettingsStudioService;
+  }
+
+  @Override
+  public void execute(JobExecutionContext context) throws JobExecutionException {
+    if (!appSettingsStudioService.isBpmStatisticsEnabled()) {
+      return;
+    }
+    try {
+      wkfNodeStatisticService.reconcile();
+    } catch (Exception e) {
+      throw new JobExecutionException(e);
+    }
+  }
+}
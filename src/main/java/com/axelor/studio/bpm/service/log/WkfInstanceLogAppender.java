@@ -0,0 +1,318 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.bpm.service.log;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Single appender writing the events of the BPM loggers to the log file of the process instance
+ * found in the {@link #MDC_KEY} MDC property. Events are encoded by the logging thread, queued and
+ * written in batches by a writer thread: when the queue is full, events are dropped rather than
+ * slowing the process down. Files left idle are closed until their next event.
+ */
+public class WkfInstanceLogAppender extends AppenderBase<ILoggingEvent> {
+
+  public static final String MDC_KEY = "wkfInstanceId";
+
+  protected static final Logger log = LoggerFactory.getLogger(WkfInstanceLogAppender.class);
+
+  protected static final int BATCH_SIZE = 512;
+  protected static final long REPORT_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+  protected final Map<String, Path> logFiles = new ConcurrentHashMap<>();
+  protected final BlockingQueue<Line> queue;
+  protected final long idleTimeout;
+  protected Encoder<ILoggingEvent> encoder;
+
+  protected final AtomicLong queued = new AtomicLong();
+  protected final AtomicLong dropped = new AtomicLong();
+  protected volatile long written;
+  protected final Object writtenLock = new Object();
+
+  protected Thread writer;
+
+  public WkfInstanceLogAppender(int queueSize, long idleTimeout) {
+    this.queue = new ArrayBlockingQueue<>(Math.max(queueSize, 1));
+    this.idleTimeout = idleTimeout;
+    setName("wkf-instance-log");
+  }
+
+  public void setEncoder(Encoder<ILoggingEvent> encoder) {
+    this.encoder = encoder;
+  }
+
+  /** Routes the events of the given instance to its log file. */
+  public void register(String instanceId, Path logFile) {
+    logFiles.put(instanceId, logFile);
+  }
+
+  public boolean isRegistered(String instanceId) {
+    return logFiles.containsKey(instanceId);
+  }
+
+  public void unregister(String instanceId) {
+    logFiles.remove(instanceId);
+  }
+
+  @Override
+  public void start() {
+    if (encoder == null) {
+      addError("No encoder set for the appender named [" + name + "].");
+      return;
+    }
+    writer = new Thread(this::write, "wkf-instance-log-writer");
+    writer.setDaemon(true);
+    writer.start();
+    super.start();
+  }
+
+  @Override
+  public void stop() {
+    super.stop();
+    if (writer != null) {
+      writer.interrupt();
+    }
+  }
+
+  @Override
+  protected void append(ILoggingEvent event) {
+    String instanceId = event.getMDCPropertyMap().get(MDC_KEY);
+    if (instanceId == null || !logFiles.containsKey(instanceId)) {
+      return;
+    }
+    if (queue.offer(new Line(instanceId, event.getTimeStamp(), encoder.encode(event)))) {
+      queued.incrementAndGet();
+    } else {
+      dropped.incrementAndGet();
+    }
+  }
+
+  /** Waits until the events queued so far are written, at most the given time. */
+  public void flush(long timeoutMillis) {
+    long target = queued.get();
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    synchronized (writtenLock) {
+      long remaining;
+      while (written < target && (remaining = deadline - System.currentTimeMillis()) > 0) {
+        try {
+          writtenLock.wait(remaining);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  public Map<String, Long> getStats() {
+    return Map.of(
+        "queued",
+        queued.get(),
+        "written",
+        written,
+        "dropped",
+        dropped.get(),
+        "backlog",
+        (long) queue.size(),
+        "instances",
+        (long) logFiles.size());
+  }
+
+  protected void write() {
+    Map<String, Sink> sinks = new HashMap<>();
+    List<Line> batch = new ArrayList<>(BATCH_SIZE);
+    long lastReport = System.currentTimeMillis();
+    long reportedDrops = 0;
+
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        Line first = queue.poll(1, TimeUnit.SECONDS);
+        if (first != null) {
+          batch.add(first);
+          queue.drainTo(batch, BATCH_SIZE - 1);
+          writeBatch(sinks, batch);
+          batch.clear();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+
+      long now = System.currentTimeMillis();
+      closeIdleSinks(sinks, now);
+
+      long drops = dropped.get();
+      if (drops > reportedDrops && now - lastReport >= REPORT_INTERVAL) {
+        log.warn("{} BPM log events dropped, backlog: {}", drops - reportedDrops, queue.size());
+        reportedDrops = drops;
+        lastReport = now;
+      }
+    }
+    sinks.values().forEach(Sink::close);
+  }
+
+  protected void writeBatch(Map<String, Sink> sinks, List<Line> batch) {
+    long now = System.currentTimeMillis();
+    List<Sink> touched = new ArrayList<>();
+    for (Line line : batch) {
+      Sink sink = sinks.get(line.instanceId);
+      if (sink == null) {
+        Path logFile = logFiles.get(line.instanceId);
+        if (logFile == null) {
+          continue;
+        }
+        sink = new Sink(logFile);
+        sinks.put(line.instanceId, sink);
+      }
+      if (sink.write(line, now)) {
+        touched.add(sink);
+      }
+    }
+    touched.forEach(Sink::flush);
+
+    synchronized (writtenLock) {
+      written += batch.size();
+      writtenLock.notifyAll();
+    }
+  }
+
+  protected void closeIdleSinks(Map<String, Sink> sinks, long now) {
+    Iterator<Map.Entry<String, Sink>> iterator = sinks.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, Sink> entry = iterator.next();
+      Sink sink = entry.getValue();
+      if (now - sink.lastWrite >= idleTimeout
+          || !sink.logFile.equals(logFiles.get(entry.getKey()))) {
+        sink.close();
+        iterator.remove();
+      }
+    }
+  }
+
+  protected static class Line {
+    protected final String instanceId;
+    protected final long timeStamp;
+    protected final byte[] bytes;
+
+    protected Line(String instanceId, long timeStamp, byte[] bytes) {
+      this.instanceId = instanceId;
+      this.timeStamp = timeStamp;
+      this.bytes = bytes;
+    }
+  }
+
+  /** Log file of an instance with its index, see {@link WkfLogIndex}. */
+  protected class Sink {
+    protected final Path logFile;
+    protected OutputStream outputStream;
+    protected DataOutputStream indexStream;
+    protected long offset;
+    protected long lastIndexed;
+    protected long lastWrite;
+
+    protected Sink(Path logFile) {
+      this.logFile = logFile;
+    }
+
+    protected void open() throws IOException {
+      offset = Files.exists(logFile) ? Files.size(logFile) : 0;
+      long lastOffset = WkfLogIndex.lastOffset(logFile);
+      lastIndexed = lastOffset >= 0 && lastOffset < offset ? lastOffset : -WkfLogIndex.INTERVAL;
+      indexStream =
+          new DataOutputStream(
+              new BufferedOutputStream(
+                  Files.newOutputStream(
+                      WkfLogIndex.getPath(logFile),
+                      StandardOpenOption.CREATE,
+                      StandardOpenOption.APPEND)));
+      try {
+        outputStream =
+            new BufferedOutputStream(
+                Files.newOutputStream(
+                    logFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+      } catch (IOException e) {
+        indexStream.close();
+        indexStream = null;
+        throw e;
+      }
+    }
+
+    protected boolean write(Line line, long now) {
+      try {
+        if (outputStream == null) {
+          open();
+        }
+        if (offset - lastIndexed >= WkfLogIndex.INTERVAL) {
+          indexStream.writeLong(line.timeStamp);
+          indexStream.writeLong(offset);
+          lastIndexed = offset;
+        }
+        outputStream.write(line.bytes);
+        offset += line.bytes.length;
+        lastWrite = now;
+        return true;
+      } catch (IOException e) {
+        addError("Unable to write to " + logFile, e);
+        return false;
+      }
+    }
+
+    protected void flush() {
+      try {
+        outputStream.flush();
+        indexStream.flush();
+      } catch (IOException e) {
+        addError("Unable to flush " + logFile, e);
+      }
+    }
+
+    protected void close() {
+      if (outputStream == null) {
+        return;
+      }
+      try {
+        outputStream.close();
+        indexStream.close();
+      } catch (IOException e) {
+        addError("Unable to close " + logFile, e);
+      }
+      outputStream = null;
+      indexStream = null;
+    }
+  }
+}
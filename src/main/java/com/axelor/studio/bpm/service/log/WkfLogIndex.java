@@ -0,0 +1,95 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.bpm.service.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sparse index kept next to a process instance log file: every {@link #INTERVAL} bytes, the time of
+ * the logged event and the offset of its first line are appended as two longs.
+ */
+public class WkfLogIndex {
+
+  public static final String EXTENSION = ".idx";
+
+  public static final long INTERVAL = 64 * 1024L;
+
+  protected static final int ENTRY_SIZE = 2 * Long.BYTES;
+
+  private WkfLogIndex() {}
+
+  public static Path getPath(Path logFile) {
+    return logFile.resolveSibling(logFile.getFileName() + EXTENSION);
+  }
+
+  /**
+   * Offset of the last indexed event logged before the given time, 0 when there is none and -1 when
+   * the log file has no index.
+   */
+  public static long seek(Path logFile, long epochMillis) throws IOException {
+    Path indexFile = getPath(logFile);
+    if (!Files.exists(indexFile)) {
+      return -1;
+    }
+    try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+      long count = channel.size() / ENTRY_SIZE;
+      if (count == 0) {
+        return 0;
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, count * ENTRY_SIZE);
+      long offset = 0;
+      long low = 0;
+      long high = count - 1;
+      while (low <= high) {
+        long middle = (low + high) >>> 1;
+        int position = (int) (middle * ENTRY_SIZE);
+        if (buffer.getLong(position) < epochMillis) {
+          offset = buffer.getLong(position + Long.BYTES);
+          low = middle + 1;
+        } else {
+          high = middle - 1;
+        }
+      }
+      return offset;
+    }
+  }
+
+  /** Offset of the last indexed event, -1 when the log file has no index. */
+  public static long lastOffset(Path logFile) throws IOException {
+    Path indexFile = getPath(logFile);
+    if (!Files.exists(indexFile)) {
+      return -1;
+    }
+    try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+      long count = channel.size() / ENTRY_SIZE;
+      if (count == 0) {
+        return -1;
+      }
+      ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+      channel.read(buffer, (count - 1) * ENTRY_SIZE + Long.BYTES);
+      buffer.flip();
+      return buffer.getLong();
+    }
+  }
+}
@@ -18,13 +18,33 @@
 package com.axelor.studio.bpm.service.log;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.Appender;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 
 public interface WkfLogService {
 
-  OutputStreamAppender<ILoggingEvent> createOrAttachAppender(String processInstanceId);
+  /**
+   * Routes the BPM logs of the current thread to the log file of the given process instance, until
+   * another instance is set.
+   */
+  Appender<ILoggingEvent> createOrAttachAppender(String processInstanceId);
 
   void writeLog(String processInstanceId);
 
   void clearLog(String instanceId);
+
+  /** Copies the lines of the given log logged strictly between the given times. */
+  void copyLog(Path logFile, LocalDateTime from, LocalDateTime to, OutputStream outputStream)
+      throws IOException;
+
+  /**
+   * Copies a page of lines from the end of the given log, page 0 being the last one.
+   *
+   * @return the offset of the copied page, 0 when there is no page before it
+   */
+  long copyLogTail(Path logFile, long pageSize, int page, OutputStream outputStream)
+      throws IOException;
 }
@@ -18,7 +18,7 @@
 package com.axelor.studio.bpm.service.log;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.Appender;
 import com.axelor.i18n.I18n;
 import com.axelor.meta.MetaFiles;
 import com.axelor.meta.db.MetaFile;
@@ -26,17 +26,35 @@ import com.axelor.studio.bpm.exception.BpmExceptionMessage;
 import com.axelor.studio.db.WkfInstance;
 import com.axelor.studio.db.repo.WkfInstanceRepository;
 import com.axelor.studio.service.AppSettingsStudioService;
-import com.axelor.utils.helpers.ExceptionHelper;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
-import java.io.BufferedOutputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import org.slf4j.MDC;
 
 public class WkfLogServiceImpl implements WkfLogService {
 
+  protected static final long FLUSH_TIMEOUT = 1000;
+
+  protected static final int BUFFER = 64 * 1024;
+  protected static final int DATE_TIME_LENGTH = 23;
+
+  /** Events are not written in strict time order, the lines around a range are scanned too. */
+  protected static final Duration SEEK_MARGIN = Duration.ofSeconds(5);
+
   protected WkfLoggerInitService wkfLoggerInitServiceImpl;
 
   protected WkfInstanceRepository wkfInstanceRepository;
@@ -58,51 +76,33 @@ public class WkfLogServiceImpl implements WkfLogService {
   }
 
   @Override
-  public OutputStreamAppender<ILoggingEvent> createOrAttachAppender(String processInstanceId) {
-    OutputStreamAppender<ILoggingEvent> appender =
-        wkfLoggerInitServiceImpl.getAppender(processInstanceId);
-    WkfInstance wkfInstance = wkfInstanceRepository.findByInstanceId(processInstanceId);
-
-    if (wkfInstance == null) {
-      throw new IllegalArgumentException(
-          String.format(
-              I18n.get(BpmExceptionMessage.BPM_WKF_INSTANCE_NOT_FOUND), processInstanceId));
+  public Appender<ILoggingEvent> createOrAttachAppender(String processInstanceId) {
+    WkfInstanceLogAppender appender = wkfLoggerInitServiceImpl.getAppender();
+    if (appender == null) {
+      return null;
     }
 
-    try {
-      if (wkfInstance.getLogFile() == null) {
-        attachLogFile(wkfInstance);
-      }
+    if (!wkfLoggerInitServiceImpl.hasAppender(processInstanceId)) {
+      WkfInstance wkfInstance = wkfInstanceRepository.findByInstanceId(processInstanceId);
 
-      if (appender != null) {
-        wkfLoggerInitServiceImpl.attachAppender(appender);
-      } else {
-        appender = createNewAppender(processInstanceId, wkfInstance);
+      if (wkfInstance == null) {
+        throw new IllegalArgumentException(
+            String.format(
+                I18n.get(BpmExceptionMessage.BPM_WKF_INSTANCE_NOT_FOUND), processInstanceId));
       }
 
-      return appender;
-    } catch (IOException e) {
-      throw new IllegalStateException(e);
+      try {
+        if (wkfInstance.getLogFile() == null) {
+          attachLogFile(wkfInstance);
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      wkfLoggerInitServiceImpl.addAppender(
+          processInstanceId, MetaFiles.getPath(wkfInstance.getLogFile()));
     }
-  }
-
-  private OutputStreamAppender<ILoggingEvent> createNewAppender(
-      String processInstanceId, WkfInstance wkfInstance) throws FileNotFoundException {
-    MetaFile file = wkfInstance.getLogFile();
-    Path logFilePath = MetaFiles.getPath(file);
-
-    BufferedOutputStream logFileStream =
-        new BufferedOutputStream(new FileOutputStream(logFilePath.toString(), true));
-    OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
-    appender.setContext(wkfLoggerInitServiceImpl.getLoggerContext());
-    appender.setOutputStream(logFileStream);
-    appender.setName(processInstanceId);
-    appender.setEncoder(wkfLoggerInitServiceImpl.getEncoder());
-    appender.start();
-
-    wkfLoggerInitServiceImpl.attachAppender(appender);
-    wkfLoggerInitServiceImpl.addAppender(processInstanceId, appender);
 
+    MDC.put(WkfInstanceLogAppender.MDC_KEY, processInstanceId);
     return appender;
   }
 
@@ -120,23 +120,182 @@ public class WkfLogServiceImpl implements WkfLogService {
     if (wkfInstance != null) {
       wkfInstance.setLogFile(null);
       wkfLoggerInitServiceImpl.remove(processInstanceId);
+      if (processInstanceId.equals(MDC.get(WkfInstanceLogAppender.MDC_KEY))) {
+        MDC.remove(WkfInstanceLogAppender.MDC_KEY);
+      }
       wkfInstanceRepository.save(wkfInstance);
     }
   }
 
   @Override
   public void writeLog(String processInstanceId) {
-    OutputStreamAppender<ILoggingEvent> appender =
-        wkfLoggerInitServiceImpl.getAppender(processInstanceId);
     boolean isLog = appSettingsService.isAddBpmLog();
-    if (appender == null || !isLog) {
+    if (!isLog || !wkfLoggerInitServiceImpl.hasAppender(processInstanceId)) {
       return;
     }
+    wkfLoggerInitServiceImpl.getAppender().flush(FLUSH_TIMEOUT);
+  }
+
+  @Override
+  public void copyLog(Path logFile, LocalDateTime from, LocalDateTime to, OutputStream outputStream)
+      throws IOException {
+    LocalDateTime seekTime = from.minus(SEEK_MARGIN);
+    long start =
+        WkfLogIndex.seek(
+            logFile, seekTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+
+    try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+      if (start < 0) {
+        start = seekLog(channel, seekTime);
+      }
+      if (start > channel.size()) {
+        start = 0;
+      }
+      channel.position(start);
+
+      InputStream inputStream = new BufferedInputStream(Channels.newInputStream(channel), BUFFER);
+      LocalDateTime stopTime = to.plus(SEEK_MARGIN);
+      LocalDateTime lastDateTime = null;
+      LineBuffer line = new LineBuffer();
+      while (line.read(inputStream)) {
+        LocalDateTime dateTime = parseDateTime(line.bytes, 0, line.length);
+        if (dateTime == null) {
+          // Lines of the previous event, stack traces for instance.
+          if (lastDateTime != null && lastDateTime.isAfter(from) && lastDateTime.isBefore(to)) {
+            outputStream.write(line.bytes, 0, line.length);
+          }
+          continue;
+        }
+        if (dateTime.isAfter(stopTime)) {
+          break;
+        }
+        if (dateTime.isAfter(from) && dateTime.isBefore(to)) {
+          outputStream.write(line.bytes, 0, line.length);
+        }
+        lastDateTime = dateTime;
+      }
+    }
+  }
+
+  /** Binary search of an event logged before the given time, for logs without index. */
+  protected long seekLog(FileChannel channel, LocalDateTime dateTime) throws IOException {
+    long low = 0;
+    long high = channel.size();
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER);
+    while (high - low > BUFFER) {
+      long middle = (low + high) >>> 1;
+      buffer.clear();
+      channel.read(buffer, middle);
+      buffer.flip();
+
+      long found = -1;
+      LocalDateTime foundDateTime = null;
+      byte[] bytes = buffer.array();
+      for (int i = 0; i < buffer.limit() - 1; i++) {
+        if (bytes[i] == '\n') {
+          foundDateTime = parseDateTime(bytes, i + 1, buffer.limit() - i - 1);
+          if (foundDateTime != null) {
+            found = middle + i + 1;
+            break;
+          }
+        }
+      }
+
+      if (found < 0 || found >= high || !foundDateTime.isBefore(dateTime)) {
+        high = middle;
+      } else {
+        low = found;
+      }
+    }
+    return low;
+  }
+
+  @Override
+  public long copyLogTail(Path logFile, long pageSize, int page, OutputStream outputStream)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long end = nextLine(channel, size - page * pageSize);
+      long start = nextLine(channel, size - (page + 1) * pageSize);
+      WritableByteChannel target = Channels.newChannel(outputStream);
+      for (long position = start; position < end; ) {
+        position += channel.transferTo(position, end - position, target);
+      }
+      return start;
+    }
+  }
+
+  /** Offset of the first line starting at or after the given offset. */
+  protected long nextLine(FileChannel channel, long offset) throws IOException {
+    long size = channel.size();
+    if (offset <= 0) {
+      return 0;
+    }
+    if (offset >= size) {
+      return size;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER);
+    for (long position = offset - 1; position < size; position += buffer.limit()) {
+      buffer.clear();
+      channel.read(buffer, position);
+      buffer.flip();
+      for (int i = 0; i < buffer.limit(); i++) {
+        if (buffer.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+    }
+    return size;
+  }
+
+  /** Date time of a log line starting with {@code yyyy-MM-dd HH:mm:ss.SSS}, null otherwise. */
+  protected LocalDateTime parseDateTime(byte[] bytes, int offset, int length) {
+    if (length < DATE_TIME_LENGTH || !Character.isDigit(bytes[offset])) {
+      return null;
+    }
     try {
-      BufferedOutputStream outStream = (BufferedOutputStream) appender.getOutputStream();
-      outStream.flush();
-    } catch (IOException e) {
-      ExceptionHelper.trace(e);
+      return LocalDateTime.of(
+          parseNumber(bytes, offset, 4),
+          parseNumber(bytes, offset + 5, 2),
+          parseNumber(bytes, offset + 8, 2),
+          parseNumber(bytes, offset + 11, 2),
+          parseNumber(bytes, offset + 14, 2),
+          parseNumber(bytes, offset + 17, 2),
+          parseNumber(bytes, offset + 20, 3) * 1_000_000);
+    } catch (DateTimeException | NumberFormatException e) {
+      return null;
+    }
+  }
+
+  protected int parseNumber(byte[] bytes, int offset, int length) {
+    int number = 0;
+    for (int i = offset; i < offset + length; i++) {
+      if (bytes[i] < '0' || bytes[i] > '9') {
+        throw new NumberFormatException();
+      }
+      number = number * 10 + bytes[i] - '0';
+    }
+    return number;
+  }
+
+  /** Reusable buffer holding a line with its line feed. */
+  protected static class LineBuffer {
+    protected byte[] bytes = new byte[256];
+    protected int length;
+
+    protected boolean read(InputStream inputStream) throws IOException {
+      length = 0;
+      int read;
+      while ((read = inputStream.read()) != -1) {
+        if (length == bytes.length) {
+          bytes = Arrays.copyOf(bytes, length * 2);
+        }
+        bytes[length++] = (byte) read;
+        if (read == '\n') {
+          break;
+        }
+      }
+      return length > 0;
     }
   }
 }
@@ -2,8 +2,7 @@ package com.axelor.studio.bpm.service.log;
 
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
-import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.OutputStreamAppender;
+import java.nio.file.Path;
 
 public interface WkfLoggerInitService {
 
@@ -13,13 +12,11 @@ public interface WkfLoggerInitService {
 
   LoggerContext getLoggerContext();
 
-  void addAppender(String instanceId, OutputStreamAppender<ILoggingEvent> appender);
+  void addAppender(String instanceId, Path logFile);
 
   void remove(String instanceId);
 
-  OutputStreamAppender<ILoggingEvent> getAppender(String instanceId);
+  WkfInstanceLogAppender getAppender();
 
-  void attachAppender(OutputStreamAppender<ILoggingEvent> appender);
-
-  void detachAppender(OutputStreamAppender<ILoggingEvent> appender);
+  boolean hasAppender(String instanceId);
 }
@@ -21,8 +21,6 @@ import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
-import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.OutputStreamAppender;
 import ch.qos.logback.core.spi.ScanException;
 import ch.qos.logback.core.util.OptionHelper;
 import com.axelor.common.StringUtils;
@@ -31,10 +29,10 @@ import com.axelor.studio.service.AppSettingsStudioService;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.LoggerFactory;
 
 @Singleton
@@ -54,8 +52,7 @@ public class WkfLoggerInitServiceImpl implements WkfLoggerInitService {
           + "%clr(${PID:- }){magenta} %clr(---){faint} %clr([%15.15t]){faint} %clr(%-40.40logger{39}){cyan} "
           + "%clr(:){faint} %m%n";
 
-  private static final Map<String, OutputStreamAppender<ILoggingEvent>> appenderMap =
-      new ConcurrentHashMap<>();
+  private WkfInstanceLogAppender appender;
 
   protected AppSettingsStudioService appSettingsStudioService;
 
@@ -72,6 +69,8 @@ public class WkfLoggerInitServiceImpl implements WkfLoggerInitService {
     addLoggers();
 
     addEncoder();
+
+    addAppender();
   }
 
   @Override
@@ -85,43 +84,25 @@ public class WkfLoggerInitServiceImpl implements WkfLoggerInitService {
   }
 
   @Override
-  public void addAppender(String instanceId, OutputStreamAppender<ILoggingEvent> appender) {
-    appenderMap.put(instanceId, appender);
+  public void addAppender(String instanceId, Path logFile) {
+    appender.register(instanceId, logFile);
   }
 
   @Override
   public void remove(String instanceId) {
-    if (appenderMap.containsKey(instanceId)) {
-      OutputStreamAppender<ILoggingEvent> appender = appenderMap.get(instanceId);
-      detachAppender(appender);
-      appender.stop();
-      appenderMap.remove(instanceId);
+    if (appender != null) {
+      appender.unregister(instanceId);
     }
   }
 
   @Override
-  public OutputStreamAppender<ILoggingEvent> getAppender(String instanceId) {
-    return appenderMap.get(instanceId);
-  }
-
-  @Override
-  public void attachAppender(OutputStreamAppender<ILoggingEvent> appender) {
-
-    for (Logger logger : loggers) {
-      if (!logger.isAttached(appender)) {
-        logger.addAppender(appender);
-      }
-    }
+  public WkfInstanceLogAppender getAppender() {
+    return appender;
   }
 
   @Override
-  public void detachAppender(OutputStreamAppender<ILoggingEvent> appender) {
-
-    for (Logger logger : loggers) {
-      if (!logger.isAttached(appender)) {
-        logger.detachAppender(appender);
-      }
-    }
+  public boolean hasAppender(String instanceId) {
+    return appender != null && appender.isRegistered(instanceId);
   }
 
   private void addLoggers() {
@@ -151,6 +132,24 @@ public class WkfLoggerInitServiceImpl implements WkfLoggerInitService {
     }
   }
 
+  private void addAppender() {
+    if (appender == null) {
+      appender =
+          new WkfInstanceLogAppender(
+              appSettingsStudioService.getBpmLogQueueSize(),
+              TimeUnit.SECONDS.toMillis(appSettingsStudioService.getBpmLogIdleTimeout()));
+      appender.setContext(context);
+      appender.setEncoder(encoder);
+      appender.start();
+    }
+
+    for (Logger logger : loggers) {
+      if (!logger.isAttached(appender)) {
+        logger.addAppender(appender);
+      }
+    }
+  }
+
   private void addEncoder() {
     try {
       encoder = new PatternLayoutEncoder();
@@ -6,4 +6,11 @@ import org.camunda.bpm.engine.impl.pvm.runtime.PvmExecutionImpl;
 public interface BpmErrorMessageService {
   public void sendBpmErrorMessage(
       PvmExecutionImpl execution, String errorMessage, WkfModel model, String processInstanceId);
+
+  /**
+   * Sends the error notification asynchronously, along with the same errors reported during the
+   * notification window.
+   */
+  public void notifyBpmError(
+      PvmExecutionImpl execution, String errorMessage, WkfModel model, String processInstanceId);
 }
@@ -4,73 +4,163 @@ import com.axelor.auth.db.Role;
 import com.axelor.auth.db.User;
 import com.axelor.auth.db.repo.UserRepository;
 import com.axelor.db.Model;
+import com.axelor.db.tenants.TenantAware;
 import com.axelor.i18n.I18n;
 import com.axelor.message.service.MailMessageService;
+import com.axelor.studio.baml.tools.BpmTools;
 import com.axelor.studio.bpm.exception.BpmExceptionMessage;
 import com.axelor.studio.db.WkfInstance;
 import com.axelor.studio.db.WkfModel;
 import com.axelor.studio.db.repo.WkfInstanceRepository;
 import com.axelor.studio.db.repo.WkfModelRepository;
+import com.axelor.studio.service.AppSettingsStudioService;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import org.apache.commons.collections.CollectionUtils;
 import org.camunda.bpm.engine.impl.pvm.runtime.PvmExecutionImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Sends the BPM error notifications. Errors reported through {@link #notifyBpmError} are coalesced
+ * by model, node and message during the notification window, then sent as one notification by a
+ * single background thread.
+ */
 @Singleton
 public class BpmErrorMessageServiceImpl implements BpmErrorMessageService {
 
+  protected static final Logger log = LoggerFactory.getLogger(BpmErrorMessageServiceImpl.class);
+
+  protected static final int MAX_DIGEST_INSTANCES = 10;
+
   protected WkfInstanceRepository wkfInstanceRepository;
   protected MailMessageService mailMessageService;
   protected UserRepository userRepo;
   protected WkfModelRepository wkfModelRepo;
+  protected AppSettingsStudioService appSettingsStudioService;
+
+  protected final Cache<String, Set<Long>> recipientCache =
+      CacheBuilder.newBuilder().maximumSize(1000).expireAfterWrite(5, TimeUnit.MINUTES).build();
+
+  protected final Map<String, BpmErrorDigest> pendingErrors = new ConcurrentHashMap<>();
+  protected final AtomicLong droppedErrors = new AtomicLong();
+  protected final ScheduledExecutorService executor;
 
   @Inject
   public BpmErrorMessageServiceImpl(
       MailMessageService mailMessageService,
       WkfInstanceRepository wkfInstanceRepository,
       UserRepository userRepo,
-      WkfModelRepository wkfModelRepo) {
+      WkfModelRepository wkfModelRepo,
+      AppSettingsStudioService appSettingsStudioService) {
     this.mailMessageService = mailMessageService;
     this.wkfInstanceRepository = wkfInstanceRepository;
     this.userRepo = userRepo;
     this.wkfModelRepo = wkfModelRepo;
+    this.appSettingsStudioService = appSettingsStudioService;
+    this.executor =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("bpm-error-notifier-%d")
+                .setDaemon(true)
+                .build());
   }
 
   @Override
   public void sendBpmErrorMessage(
       PvmExecutionImpl execution, String errorMessage, WkfModel model, String processInstanceId) {
-    Long relatedId = null;
-    Class<? extends Model> relatedModel = WkfModel.class;
-    String body = errorMessage;
+    send(new BpmError(execution, errorMessage, model, processInstanceId), 1, List.of());
+  }
 
-    if (execution != null || !Strings.isNullOrEmpty(processInstanceId)) {
-      boolean isExecution = Strings.isNullOrEmpty(processInstanceId);
+  @Override
+  public void notifyBpmError(
+      PvmExecutionImpl execution, String errorMessage, WkfModel model, String processInstanceId) {
+    BpmError error = new BpmError(execution, errorMessage, model, processInstanceId);
+    String key = error.getKey();
+    int maxPending = appSettingsStudioService.getBpmErrorNotificationMaxPending();
+    boolean[] created = {false};
 
-      WkfInstance instance =
-          wkfInstanceRepository.findByInstanceId(
-              isExecution && execution != null
-                  ? execution.getProcessInstanceId()
-                  : processInstanceId);
+    BpmErrorDigest digest =
+        pendingErrors.compute(
+            key,
+            (k, pending) -> {
+              if (pending != null) {
+                pending.add(error);
+                return pending;
+              }
+              if (pendingErrors.size() >= maxPending) {
+                return null;
+              }
+              created[0] = true;
+              return new BpmErrorDigest(error);
+            });
 
-      if (instance == null) {
-        return;
+    if (digest == null) {
+      if (droppedErrors.getAndIncrement() % 1000 == 0) {
+        log.warn("Too many pending BPM error notifications, {} dropped", droppedErrors.get());
       }
+      return;
+    }
+    if (created[0]) {
+      executor.schedule(
+          () -> flush(key),
+          appSettingsStudioService.getBpmErrorNotificationWindow(),
+          TimeUnit.SECONDS);
+    }
+  }
 
+  protected void flush(String key) {
+    BpmErrorDigest digest = pendingErrors.remove(key);
+    if (digest == null) {
+      return;
+    }
+    try {
+      new TenantAware(() -> send(digest.error, digest.count, digest.instanceIds))
+          .withTransaction(false)
+          .tenantId(digest.error.tenantId)
+          .run();
+    } catch (Exception e) {
+      log.error("Unable to send the BPM error notification", e);
+    }
+  }
+
+  protected void send(BpmError error, int count, Collection<String> instanceIds) {
+    Long relatedId = null;
+    Class<? extends Model> relatedModel = WkfModel.class;
+    String body = error.message;
+    WkfModel model = error.modelId != null ? wkfModelRepo.find(error.modelId) : null;
+
+    WkfInstance instance = findInstance(error, instanceIds);
+
+    if (instance != null) {
       relatedId = instance.getId();
       relatedModel = WkfInstance.class;
 
       model = instance.getWkfProcess().getWkfModel();
       String activtyDetails =
-          isExecution && execution != null
+          error.activityId != null
               ? ("</br>"
                   + I18n.get(BpmExceptionMessage.NODE_IDS)
                   + " : "
-                  + execution.getActivityId()
+                  + error.activityId
                   + "("
-                  + execution.getCurrentActivityName()
+                  + error.activityName
                   + ")")
               : "";
       body =
@@ -83,18 +173,62 @@ public class BpmErrorMessageServiceImpl implements BpmErrorMessageService {
               + prepareUrl("#/ds/wkf.instance.all/edit/" + relatedId, instance.getInstanceId())
               + activtyDetails
               + "</br></br> "
-              + errorMessage;
+              + error.message;
     } else if (model != null) {
       relatedId = model.getId();
     }
 
+    if (count > 1) {
+      body +=
+          "</br></br>"
+              + String.format(
+                  I18n.get(BpmExceptionMessage.BPM_ERROR_OCCURRENCES),
+                  count,
+                  String.join(", ", instanceIds));
+    }
+
     for (User user : getRelatedUserSet(model)) {
       mailMessageService.sendNotification(
           user, I18n.get(BpmExceptionMessage.BPM_ERROR), body, relatedId, relatedModel);
     }
   }
 
+  /**
+   * First process instance of the error still existing, the failed instances being removed when
+   * evaluated again. Without any, the notification is sent for the model.
+   */
+  protected WkfInstance findInstance(BpmError error, Collection<String> instanceIds) {
+    Set<String> ids = new LinkedHashSet<>();
+    if (error.processInstanceId != null) {
+      ids.add(error.processInstanceId);
+    }
+    ids.addAll(instanceIds);
+    for (String id : ids) {
+      WkfInstance instance = wkfInstanceRepository.findByInstanceId(id);
+      if (instance != null) {
+        return instance;
+      }
+    }
+    return null;
+  }
+
   protected Set<User> getRelatedUserSet(WkfModel model) {
+    String key =
+        BpmTools.getCurentTenant()
+            + ":"
+            + (model == null ? "" : model.getId() + ":" + model.getVersion());
+    Set<Long> userIds = recipientCache.getIfPresent(key);
+    if (userIds == null) {
+      userIds = computeRelatedUserSet(model).stream().map(User::getId).collect(Collectors.toSet());
+      recipientCache.put(key, userIds);
+    }
+    if (userIds.isEmpty()) {
+      return new HashSet<>();
+    }
+    return new HashSet<>(userRepo.all().filter("self.id IN (?1)", userIds).fetch());
+  }
+
+  protected Set<User> computeRelatedUserSet(WkfModel model) {
     Set<User> relatedUserSet =
         new HashSet<>(userRepo.all().filter("self.group.code = 'admins'").fetch());
 
@@ -125,4 +259,63 @@ public class BpmErrorMessageServiceImpl implements BpmErrorMessageService {
   protected String prepareUrl(String viewUrl, String id) {
     return "<a href='" + viewUrl + "'>" + id + "</a> </br>";
   }
+
+  /** Error details read on the failing thread, the execution being unusable afterwards. */
+  protected static class BpmError {
+    protected final String tenantId;
+    protected final String message;
+    protected final Long modelId;
+    protected final String processDefinitionId;
+    protected final String processInstanceId;
+    protected final String activityId;
+    protected final String activityName;
+
+    protected BpmError(
+        PvmExecutionImpl execution, String message, WkfModel model, String processInstanceId) {
+      this.tenantId = BpmTools.getCurentTenant();
+      this.message = message;
+      this.modelId = model != null ? model.getId() : null;
+      if (Strings.isNullOrEmpty(processInstanceId) && execution != null) {
+        this.processDefinitionId =
+            execution.getProcessDefinition() != null
+                ? execution.getProcessDefinition().getId()
+                : null;
+        this.processInstanceId = execution.getProcessInstanceId();
+        this.activityId = execution.getActivityId();
+        this.activityName = execution.getCurrentActivityName();
+      } else {
+        this.processDefinitionId = null;
+        this.processInstanceId = Strings.emptyToNull(processInstanceId);
+        this.activityId = null;
+        this.activityName = null;
+      }
+    }
+
+    protected String getKey() {
+      return String.join(
+          "|",
+          tenantId,
+          String.valueOf(modelId != null ? modelId : processDefinitionId),
+          String.valueOf(activityId),
+          String.valueOf(message));
+    }
+  }
+
+  protected static class BpmErrorDigest {
+    protected final BpmError error;
+    protected final Set<String> instanceIds = new LinkedHashSet<>();
+    protected int count;
+
+    protected BpmErrorDigest(BpmError error) {
+      this.error = error;
+      add(error);
+    }
+
+    protected void add(BpmError error) {
+      count++;
+      if (error.processInstanceId != null && instanceIds.size() < MAX_DIGEST_INSTANCES) {
+        instanceIds.add(error.processInstanceId);
+      }
+    }
+  }
 }
@@ -313,23 +313,35 @@ public class WkfModelController {
     }
   }
 
+  @SuppressWarnings("unchecked")
   protected void openRecordView(
       ActionRequest request,
       ActionResponse response,
       String statusKey,
       String modelKey,
-      String recordKey) {
+      String recordKey,
+      String type) {
 
     Map<String, Object> ctx = getDataCtx(request);
 
     String status = statusKey != null ? MapHelper.get(ctx, String.class, "title") : "";
     String modelName = MapHelper.get(ctx, String.class, modelKey);
     boolean isMetaModel = MapHelper.get(ctx, Boolean.class, "isMetaModel");
-    List<Long> recordIds = MapHelper.getCollection(ctx, Long.class, recordKey);
+
+    WkfDashboardCommonService wkfDashboardCommonService =
+        Beans.get(WkfDashboardCommonService.class);
+
+    List<Long> recordIds =
+        ctx.containsKey(recordKey)
+            ? MapHelper.getCollection(ctx, Long.class, recordKey)
+            : wkfDashboardCommonService.findRecordIds(
+                (List<Map<String, Object>>) ctx.get(WkfDashboardCommonService.QUERIES),
+                modelName,
+                isMetaModel,
+                type);
 
     ActionViewBuilder actionViewBuilder =
-        Beans.get(WkfDashboardCommonService.class)
-            .computeActionView(status, modelName, isMetaModel);
+        wkfDashboardCommonService.computeActionView(status, modelName, isMetaModel);
 
     response.setView(actionViewBuilder.context("ids", recordIds.isEmpty() ? 0 : recordIds).map());
   }
@@ -341,7 +353,7 @@ public class WkfModelController {
 
   public void getStatusPerView(ActionRequest request, ActionResponse response) {
     try {
-      this.openRecordView(request, response, "title", "modelName", "statusRecordIds");
+      this.openRecordView(request, response, "title", "modelName", "statusRecordIds", null);
 
     } catch (Exception e) {
       ExceptionHelper.trace(response, e);
@@ -350,7 +362,7 @@ public class WkfModelController {
 
   public void getModelPerView(ActionRequest request, ActionResponse response) {
     try {
-      this.openRecordView(request, response, null, "modelName", "recordIdsPerModel");
+      this.openRecordView(request, response, null, "modelName", "recordIdsPerModel", null);
 
     } catch (Exception e) {
       ExceptionHelper.trace(response, e);
@@ -453,7 +465,13 @@ public class WkfModelController {
 
   public void openTaskToday(ActionRequest request, ActionResponse response) {
     try {
-      this.openRecordView(request, response, null, "modelName", "taskTodayIds");
+      this.openRecordView(
+          request,
+          response,
+          null,
+          "modelName",
+          "taskTodayIds",
+          WkfDashboardCommonService.TASK_TODAY);
 
     } catch (Exception e) {
       ExceptionHelper.trace(response, e);
@@ -462,7 +480,8 @@ public class WkfModelController {
 
   public void openTaskNext(ActionRequest request, ActionResponse response) {
     try {
-      this.openRecordView(request, response, null, "modelName", "taskNextIds");
+      this.openRecordView(
+          request, response, null, "modelName", "taskNextIds", WkfDashboardCommonService.TASK_NEXT);
 
     } catch (Exception e) {
       ExceptionHelper.trace(response, e);
@@ -471,7 +490,8 @@ public class WkfModelController {
 
   public void openLateTask(ActionRequest request, ActionResponse response) {
     try {
-      this.openRecordView(request, response, null, "modelName", "lateTaskIds");
+      this.openRecordView(
+          request, response, null, "modelName", "lateTaskIds", WkfDashboardCommonService.LATE_TASK);
 
     } catch (Exception e) {
       ExceptionHelper.trace(response, e);
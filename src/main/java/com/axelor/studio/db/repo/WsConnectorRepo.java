@@ -17,9 +17,13 @@
  */
 package com.axelor.studio.db.repo;
 
+import com.axelor.inject.Beans;
 import com.axelor.studio.db.StudioApp;
 import com.axelor.studio.db.WsConnector;
 import com.axelor.studio.db.WsRequestList;
+import com.axelor.studio.service.ws.WsClientService;
+import com.axelor.studio.service.ws.WsRequestLimiter;
+import com.axelor.studio.service.ws.WsResponseCache;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.commons.collections.CollectionUtils;
@@ -29,6 +33,7 @@ public class WsConnectorRepo extends WsConnectorRepository {
   @Override
   public WsConnector save(WsConnector connector) {
     connector = super.save(connector);
+    release(connector);
 
     List<WsRequestList> requests =
         connector.getWsRequestList() != null ? connector.getWsRequestList() : new ArrayList<>();
@@ -45,4 +50,18 @@ public class WsConnectorRepo extends WsConnectorRepository {
 
     return connector;
   }
+
+  @Override
+  public void remove(WsConnector connector) {
+    release(connector);
+    super.remove(connector);
+  }
+
+  protected void release(WsConnector connector) {
+    Beans.get(WsClientService.class).close(connector);
+    if (connector.getId() != null) {
+      Beans.get(WsRequestLimiter.class).invalidate(connector);
+      Beans.get(WsResponseCache.class).invalidate(connector);
+    }
+  }
 }
@@ -0,0 +1,267 @@
+package com.axelor.studio.ls;
+
+import com.axelor.studio.db.LinkScript;
+import com.axelor.studio.db.LinkScriptArc;
+import com.axelor.studio.ls.script.LinkScriptGroovyScriptHelper;
+import com.google.common.cache.Cache;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Snapshot of the link scripts reachable from a root script, with their arcs sorted once. It also
+ * tells which context keys an arc may read or write, so that independent arcs can run together.
+ * The keys of each script text are analyzed once and shared by the graphs.
+ */
+public class LinkScriptGraph {
+
+  protected static final Cache<String, Keys> VARIABLES =
+      LinkScriptGroovyScriptHelper.newCacheBuilder().build();
+
+  protected final Map<LinkScript, Node> nodes = new IdentityHashMap<>();
+  protected final Node root;
+
+  public LinkScriptGraph(LinkScript linkScript) {
+    this.root = node(linkScript);
+  }
+
+  public Node getRoot() {
+    return root;
+  }
+
+  protected Node node(LinkScript linkScript) {
+    Node node = nodes.get(linkScript);
+    if (node != null) {
+      return node;
+    }
+    node = new Node(linkScript);
+    nodes.put(linkScript, node);
+    node.dependencyArcs = arcs(linkScript.getDependencyArcs());
+    node.outputArcs = arcs(linkScript.getOutputArcs());
+    return node;
+  }
+
+  protected List<Arc> arcs(Collection<LinkScriptArc> arcs) {
+    if (arcs == null) {
+      return Collections.emptyList();
+    }
+    return arcs.stream()
+        .sorted(Comparator.comparing(LinkScriptArc::getSequence))
+        .map(arc -> new Arc(arc.getName(), arc.getConditionScript(), node(arc.getToLinkScript())))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Splits the given arcs into consecutive groups of arcs which can run together: no arc of a group
+   * reads a key written by a previous arc of the same group.
+   */
+  public static List<List<Arc>> independentGroups(List<Arc> arcs) {
+    List<List<Arc>> groups = new ArrayList<>();
+    List<Arc> group = new ArrayList<>();
+    Set<String> written = new HashSet<>();
+    boolean opaque = false;
+
+    for (Arc arc : arcs) {
+      if (!group.isEmpty() && (opaque || arc.getReads().readsAny(written))) {
+        groups.add(group);
+        group = new ArrayList<>();
+        written = new HashSet<>();
+        opaque = false;
+      }
+      group.add(arc);
+      Keys writes = arc.getWrites();
+      written.addAll(writes.names);
+      opaque |= writes.all;
+    }
+    if (!group.isEmpty()) {
+      groups.add(group);
+    }
+    return groups;
+  }
+
+  /** Context keys read or written by a script, {@code all} when they cannot be known upfront. */
+  public static class Keys {
+    protected final Set<String> names = new HashSet<>();
+    protected boolean all;
+
+    protected void add(Keys keys) {
+      names.addAll(keys.names);
+      all |= keys.all;
+    }
+
+    public boolean readsAny(Set<String> keys) {
+      return all ? !keys.isEmpty() : keys.stream().anyMatch(names::contains);
+    }
+  }
+
+  public static class Node {
+    protected final LinkScript linkScript;
+    protected List<Arc> dependencyArcs;
+    protected List<Arc> outputArcs;
+    protected List<List<Arc>> dependencyGroups;
+    protected Keys reads;
+    protected volatile Keys reachableReads;
+
+    protected Node(LinkScript linkScript) {
+      this.linkScript = linkScript;
+    }
+
+    public LinkScript getLinkScript() {
+      return linkScript;
+    }
+
+    public List<Arc> getDependencyArcs() {
+      return dependencyArcs;
+    }
+
+    public List<Arc> getOutputArcs() {
+      return outputArcs;
+    }
+
+    public synchronized List<List<Arc>> getDependencyGroups() {
+      if (dependencyGroups == null) {
+        dependencyGroups = independentGroups(dependencyArcs);
+      }
+      return dependencyGroups;
+    }
+
+    protected synchronized Keys getReads() {
+      if (reads == null) {
+        reads = variables(linkScript.getBody());
+      }
+      return reads;
+    }
+
+    /**
+     * Keys read by this script and by every script reachable from it, with their conditions. Not
+     * locked, as the walk locks the other nodes of a possible cycle.
+     */
+    protected Keys getReachableReads() {
+      Keys keys = reachableReads;
+      if (keys == null) {
+        keys = new Keys();
+        Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Arc.collectReads(this, visited, keys);
+        reachableReads = keys;
+      }
+      return keys;
+    }
+  }
+
+  public static class Arc {
+    protected final String name;
+    protected final String conditionScript;
+    protected final Node target;
+    protected Keys reads;
+    protected Keys writes;
+
+    protected Arc(String name, String conditionScript, Node target) {
+      this.name = name;
+      this.conditionScript = conditionScript;
+      this.target = target;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getConditionScript() {
+      return conditionScript;
+    }
+
+    public Node getTarget() {
+      return target;
+    }
+
+    /** Keys read by the condition and by every script reachable through this arc. */
+    public synchronized Keys getReads() {
+      if (reads == null) {
+        Keys keys = new Keys();
+        keys.add(variables(conditionScript));
+        keys.add(target.getReachableReads());
+        reads = keys;
+      }
+      return reads;
+    }
+
+    /**
+     * Keys written in the caller context: the arc result, the binding variables assigned by its
+     * target and the ones of the dependencies of its target, which share the same context. Unnamed
+     * arcs may spread a map result into it.
+     */
+    public synchronized Keys getWrites() {
+      if (writes == null) {
+        writes = new Keys();
+        Set<Arc> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        collectWrites(this, visited, writes);
+      }
+      return writes;
+    }
+
+    protected static void collectReads(Node node, Set<Node> visited, Keys keys) {
+      if (!visited.add(node)) {
+        return;
+      }
+      keys.add(node.getReads());
+      for (Arc arc : node.dependencyArcs) {
+        keys.add(variables(arc.conditionScript));
+        collectReads(arc.target, visited, keys);
+      }
+      for (Arc arc : node.outputArcs) {
+        keys.add(variables(arc.conditionScript));
+        collectReads(arc.target, visited, keys);
+      }
+    }
+
+    protected static void collectWrites(Arc arc, Set<Arc> visited, Keys keys) {
+      if (!visited.add(arc)) {
+        return;
+      }
+      keys.names.add(LinkScriptServiceImpl.VARIABLES_MAP_NAME);
+      keys.names.add(
+          StringUtils.isBlank(arc.name) ? LinkScriptServiceImpl.DEFAULT_RESULT_KEY : arc.name);
+      keys.all |= StringUtils.isBlank(arc.name);
+      keys.add(arc.target.getReads());
+      for (Arc dependency : arc.target.dependencyArcs) {
+        collectWrites(dependency, visited, keys);
+      }
+    }
+  }
+
+  protected static Keys variables(String script) {
+    if (StringUtils.isBlank(script)) {
+      return new Keys();
+    }
+    try {
+      return VARIABLES.get(script, () -> analyze(script));
+    } catch (ExecutionException e) {
+      Keys keys = new Keys();
+      keys.all = true;
+      return keys;
+    }
+  }
+
+  protected static Keys analyze(String script) {
+    Keys keys = new Keys();
+    // Nested runs receive the whole context.
+    if (script.contains("@\"")) {
+      keys.all = true;
+      return keys;
+    }
+    try {
+      keys.names.addAll(LinkScriptGroovyScriptHelper.analyzeScript(script).getDynamicVariables());
+    } catch (Exception e) {
+      keys.all = true;
+    }
+    return keys;
+  }
+}
@@ -20,6 +20,10 @@ public class LinkScriptResult implements Iterable<LinkScriptResult.Step> {
     finalResult = result;
   }
 
+  public void append(LinkScriptResult result) {
+    result.forEach(step -> step(step.getName(), step.getResult()));
+  }
+
   @Override
   @Nonnull
   public Iterator<Step> iterator() {
@@ -6,5 +6,8 @@ import java.util.LinkedHashMap;
 @LinkScriptBinding("__service__")
 public interface LinkScriptService {
 
+  String MODE_SEQUENTIAL = "sequential";
+  String MODE_PARALLEL = "parallel";
+
   LinkScriptResult run(String linkScriptName, LinkedHashMap<String, Object> context);
 }
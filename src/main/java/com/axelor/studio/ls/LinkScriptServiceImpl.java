@@ -1,18 +1,41 @@
 package com.axelor.studio.ls;
 
+import com.axelor.db.EntityHelper;
+import com.axelor.db.JPA;
+import com.axelor.db.Model;
+import com.axelor.db.tenants.TenantAware;
+import com.axelor.studio.baml.tools.BpmTools;
 import com.axelor.studio.db.LinkScript;
-import com.axelor.studio.db.LinkScriptArc;
 import com.axelor.studio.db.repo.LinkScriptRepository;
 import com.axelor.studio.ls.evaluator.LinkScriptEvaluator;
 import com.axelor.studio.ls.script.LinkScriptGroovyScriptHelper;
 import com.axelor.studio.service.AppSettingsStudioService;
+import com.google.common.base.Suppliers;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
-import java.util.Comparator;
+import com.google.inject.servlet.RequestScoper;
+import com.google.inject.servlet.ServletScopes;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,6 +47,7 @@ public class LinkScriptServiceImpl implements LinkScriptService {
   protected final LinkScriptEvaluator<LinkScriptGroovyScriptHelper> groovyEvaluator;
   protected final LinkScriptRepository repo;
   protected final AppSettingsStudioService appSettingsStudioService;
+  protected final Supplier<ThreadPoolExecutor> executor = Suppliers.memoize(this::createExecutor);
 
   @Inject
   public LinkScriptServiceImpl(
@@ -75,46 +99,344 @@ public class LinkScriptServiceImpl implements LinkScriptService {
       LinkScriptResult result,
       LinkScript linkScript,
       LinkedHashMap<String, Object> context) {
+    return run(new Execution(), depth, result, new LinkScriptGraph(linkScript).getRoot(), context);
+  }
+
+  protected Object run(
+      Execution execution,
+      int depth,
+      LinkScriptResult result,
+      LinkScriptGraph.Node node,
+      LinkedHashMap<String, Object> context) {
     if (depth > appSettingsStudioService.getMaximumRecursion()) {
       throw new IllegalStateException("Too many recursions.");
     }
 
     var gsh = groovyEvaluator.newHelper(context);
 
-    for (LinkScriptArc arc :
-        linkScript.getDependencyArcs().stream()
-            .sorted(Comparator.comparing(LinkScriptArc::getSequence))
-            .collect(Collectors.toList())) {
-      if (!groovyEvaluator.test(gsh, arc.getConditionScript())) {
-        continue;
+    if (execution.parallel) {
+      runDependenciesInParallel(execution, depth, result, node, context, gsh);
+    } else {
+      for (LinkScriptGraph.Arc arc : node.getDependencyArcs()) {
+        if (!groovyEvaluator.test(gsh, arc.getConditionScript())) {
+          continue;
+        }
+        valueContext(
+            context, arc.getName(), run(execution, depth + 1, result, arc.getTarget(), context));
       }
-      valueContext(context, arc.getName(), run(depth + 1, result, arc.getToLinkScript(), context));
     }
 
-    var initialResult = groovyEvaluator.eval(gsh, result, linkScript, context);
-    result.step(linkScript.getName(), initialResult);
+    var initialResult = groovyEvaluator.eval(gsh, result, node.getLinkScript(), context);
+    result.step(node.getLinkScript().getName(), initialResult);
+
+    if (execution.parallel) {
+      return runOutputsInParallel(execution, depth, result, node, context, gsh, initialResult);
+    }
 
     var finalResult = initialResult;
-    for (LinkScriptArc arc :
-        linkScript.getOutputArcs().stream()
-            .sorted(Comparator.comparing(LinkScriptArc::getSequence))
-            .collect(Collectors.toList())) {
+    for (LinkScriptGraph.Arc arc : node.getOutputArcs()) {
       if (!groovyEvaluator.test(gsh, arc.getConditionScript())) {
         continue;
       }
       var outputResult =
           run(
+              execution,
               depth + 1,
               result,
-              arc.getToLinkScript(),
+              arc.getTarget(),
               inject(context, arc.getName(), initialResult));
-      if (outputResult instanceof Map) {
-        finalResult = ((Map<?, ?>) outputResult).get(arc.getName());
-      } else {
-        finalResult = outputResult;
+      finalResult = outputResult(arc, outputResult);
+    }
+
+    return finalResult;
+  }
+
+  protected Object outputResult(LinkScriptGraph.Arc arc, Object outputResult) {
+    if (outputResult instanceof Map) {
+      return ((Map<?, ?>) outputResult).get(arc.getName());
+    }
+    return outputResult;
+  }
+
+  // Arcs of a group do not read what the others write, each one runs on its own copy of the
+  // context and the copies are merged back in sequence order.
+  protected void runDependenciesInParallel(
+      Execution execution,
+      int depth,
+      LinkScriptResult result,
+      LinkScriptGraph.Node node,
+      LinkedHashMap<String, Object> context,
+      LinkScriptGroovyScriptHelper gsh) {
+    for (List<LinkScriptGraph.Arc> group : node.getDependencyGroups()) {
+      List<LinkScriptGraph.Arc> arcs =
+          group.stream()
+              .filter(arc -> groovyEvaluator.test(gsh, arc.getConditionScript()))
+              .collect(Collectors.toList());
+      if (arcs.size() == 1) {
+        var arc = arcs.get(0);
+        valueContext(
+            context, arc.getName(), run(execution, depth + 1, result, arc.getTarget(), context));
+        continue;
+      }
+
+      var snapshot = new LinkedHashMap<>(context);
+      List<Branch> branches =
+          arcs.stream()
+              .map(arc -> branch(execution, depth, arc, copyContext(snapshot)))
+              .collect(Collectors.toList());
+      execute(execution, branches);
+
+      for (int i = 0; i < arcs.size(); i++) {
+        var branch = branches.get(i);
+        mergeContext(context, snapshot, branch.context);
+        result.append(branch.result);
+        valueContext(context, arcs.get(i).getName(), branch.value);
       }
     }
+  }
 
+  protected Object runOutputsInParallel(
+      Execution execution,
+      int depth,
+      LinkScriptResult result,
+      LinkScriptGraph.Node node,
+      LinkedHashMap<String, Object> context,
+      LinkScriptGroovyScriptHelper gsh,
+      Object initialResult) {
+    List<LinkScriptGraph.Arc> arcs =
+        node.getOutputArcs().stream()
+            .filter(arc -> groovyEvaluator.test(gsh, arc.getConditionScript()))
+            .collect(Collectors.toList());
+    List<Branch> branches =
+        arcs.stream()
+            .map(
+                arc -> branch(execution, depth, arc, inject(context, arc.getName(), initialResult)))
+            .collect(Collectors.toList());
+    execute(execution, branches);
+
+    var finalResult = initialResult;
+    for (int i = 0; i < arcs.size(); i++) {
+      var branch = branches.get(i);
+      result.append(branch.result);
+      finalResult = outputResult(arcs.get(i), branch.value);
+    }
     return finalResult;
   }
+
+  protected Branch branch(
+      Execution execution,
+      int depth,
+      LinkScriptGraph.Arc arc,
+      LinkedHashMap<String, Object> context) {
+    return new Branch(
+        context,
+        branch -> run(execution, depth + 1, branch.result, arc.getTarget(), branch.context));
+  }
+
+  protected LinkedHashMap<String, Object> copyContext(LinkedHashMap<String, Object> context) {
+    var copy = new LinkedHashMap<>(context);
+    if (context.get(VARIABLES_MAP_NAME) instanceof Map) {
+      copy.put(
+          VARIABLES_MAP_NAME, new LinkedHashMap<>((Map<?, ?>) context.get(VARIABLES_MAP_NAME)));
+    }
+    return copy;
+  }
+
+  protected void mergeContext(
+      LinkedHashMap<String, Object> context,
+      Map<String, Object> snapshot,
+      Map<String, Object> branchContext) {
+    branchContext.forEach(
+        (key, value) -> {
+          if (!VARIABLES_MAP_NAME.equals(key)
+              && (!snapshot.containsKey(key) || snapshot.get(key) != value)) {
+            context.put(key, value);
+          }
+        });
+    if (branchContext.get(VARIABLES_MAP_NAME) instanceof Map) {
+      @SuppressWarnings("unchecked")
+      var variables =
+          (Map<Object, Object>)
+              context.getOrDefault(VARIABLES_MAP_NAME, new LinkedHashMap<String, Object>());
+      variables.putAll((Map<?, ?>) branchContext.get(VARIABLES_MAP_NAME));
+      context.put(VARIABLES_MAP_NAME, variables);
+    }
+  }
+
+  /**
+   * Runs the branches on the shared pool, within the concurrency limit of the execution. The
+   * calling thread runs the first branch and every branch no worker has picked up yet, so a branch
+   * never waits on a task stuck in the pool.
+   *
+   * <p>Workers have their own session and cannot join the transaction of the caller: branches stay
+   * on the calling thread while it has a transaction or unsaved changes, or when their context
+   * holds entities a worker cannot load again.
+   */
+  protected void execute(Execution execution, List<Branch> branches) {
+    boolean useWorkers = canUseWorkers();
+    for (int i = 1; i < branches.size() && useWorkers; i++) {
+      var branch = branches.get(i);
+      if (!canRunInWorker(branch.context)) {
+        continue;
+      }
+      if (!execution.permits.tryAcquire()) {
+        break;
+      }
+      try {
+        executor.get().execute(() -> runInWorker(execution, branch));
+      } catch (RejectedExecutionException e) {
+        execution.permits.release();
+        break;
+      }
+    }
+
+    branches.forEach(Branch::run);
+
+    for (Branch branch : branches) {
+      try {
+        branch.done.join();
+      } catch (CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new IllegalStateException(cause);
+      }
+      if (branch.worker) {
+        attachContext(branch.context);
+        branch.value = attach(branch.value);
+      }
+    }
+  }
+
+  protected boolean canUseWorkers() {
+    EntityManager em = JPA.em();
+    return !em.getTransaction().isActive() && !em.unwrap(Session.class).isDirty();
+  }
+
+  protected boolean canRunInWorker(Map<String, Object> context) {
+    return context.entrySet().stream()
+        .allMatch(
+            entry ->
+                VARIABLES_MAP_NAME.equals(entry.getKey()) && entry.getValue() instanceof Map
+                    ? ((Map<?, ?>) entry.getValue()).values().stream().allMatch(this::isDetachable)
+                    : isDetachable(entry.getValue()));
+  }
+
+  /** Saved entities are loaded again by id, other entities cannot leave the calling thread. */
+  protected boolean isDetachable(Object value) {
+    if (value instanceof Model) {
+      return ((Model) value).getId() != null;
+    }
+    if (value instanceof Collection) {
+      return ((Collection<?>) value).stream().noneMatch(Model.class::isInstance);
+    }
+    if (value instanceof Map) {
+      return ((Map<?, ?>) value).values().stream().noneMatch(Model.class::isInstance);
+    }
+    return true;
+  }
+
+  /** Replaces the entities of a branch context with the ones of the current session. */
+  @SuppressWarnings("unchecked")
+  protected void attachContext(Map<String, Object> context) {
+    context.replaceAll(
+        (key, value) -> {
+          if (VARIABLES_MAP_NAME.equals(key) && value instanceof Map) {
+            ((Map<Object, Object>) value).replaceAll((name, variable) -> attach(variable));
+            return value;
+          }
+          return attach(value);
+        });
+  }
+
+  protected Object attach(Object value) {
+    if (value instanceof Model && ((Model) value).getId() != null) {
+      Model model = (Model) value;
+      return JPA.em().find(EntityHelper.getEntityClass(model), model.getId());
+    }
+    return value;
+  }
+
+  protected void runInWorker(Execution execution, Branch branch) {
+    try {
+      new TenantAware(
+              () -> {
+                RequestScoper scope = ServletScopes.scopeRequest(Collections.emptyMap());
+                try (RequestScoper.CloseableScope ignored = scope.open()) {
+                  branch.run(
+                      claimed -> {
+                        claimed.worker = true;
+                        attachContext(claimed.context);
+                      });
+                } finally {
+                  // The pooled thread keeps its session, the next branch must not see these.
+                  JPA.clear();
+                }
+              })
+          .withTransaction(false)
+          .tenantId(execution.tenantId)
+          .run();
+    } finally {
+      execution.permits.release();
+    }
+  }
+
+  protected ThreadPoolExecutor createExecutor() {
+    int poolSize = Math.max(1, appSettingsStudioService.getLinkScriptPoolSize());
+    var executor =
+        new ThreadPoolExecutor(
+            poolSize,
+            poolSize,
+            60L,
+            TimeUnit.SECONDS,
+            new SynchronousQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("link-script-%d").setDaemon(true).build());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /** State shared by all the nodes of a single run. */
+  protected class Execution {
+    protected final boolean parallel =
+        MODE_PARALLEL.equals(appSettingsStudioService.getLinkScriptExecutionMode());
+    protected final Semaphore permits =
+        new Semaphore(Math.max(0, appSettingsStudioService.getLinkScriptMaxConcurrency() - 1));
+    protected final String tenantId = BpmTools.getCurentTenant();
+  }
+
+  protected static class Branch {
+    protected final LinkedHashMap<String, Object> context;
+    protected final Function<Branch, Object> task;
+    protected final LinkScriptResult result = new LinkScriptResult();
+    protected final AtomicBoolean claimed = new AtomicBoolean();
+    protected final CompletableFuture<Void> done = new CompletableFuture<>();
+    protected Object value;
+    protected boolean worker;
+
+    protected Branch(LinkedHashMap<String, Object> context, Function<Branch, Object> task) {
+      this.context = context;
+      this.task = task;
+    }
+
+    protected void run() {
+      run(branch -> {});
+    }
+
+    protected void run(Consumer<Branch> onClaim) {
+      if (!claimed.compareAndSet(false, true)) {
+        return;
+      }
+      try {
+        onClaim.accept(this);
+        value = task.apply(this);
+        done.complete(null);
+      } catch (Throwable e) {
+        done.completeExceptionally(e);
+      }
+    }
+  }
 }
@@ -1,6 +1,8 @@
 package com.axelor.studio.ls.builtin;
 
+import com.axelor.inject.Beans;
 import com.axelor.studio.ls.annotation.LinkScriptFunction;
+import com.axelor.studio.service.AppSettingsStudioService;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpClient.Version;
@@ -9,16 +11,43 @@ import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpRequest.Builder;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class LinkScriptRequest implements Builder {
   private static final Logger LOG = LoggerFactory.getLogger(LinkScriptRequest.class);
+
   private final Builder delegate = HttpRequest.newBuilder();
+  private boolean timeoutSet;
 
   private LinkScriptRequest() {}
 
+  // Shared by all the requests so that connections are kept alive and reused between calls.
+  private static class ClientHolder {
+    private static final HttpClient CLIENT = newClient();
+
+    private static HttpClient newClient() {
+      var settings = Beans.get(AppSettingsStudioService.class);
+      return HttpClient.newBuilder()
+          .version(settings.isLinkScriptHttp2Enabled() ? Version.HTTP_2 : Version.HTTP_1_1)
+          .connectTimeout(Duration.ofSeconds(settings.getLinkScriptHttpConnectTimeout()))
+          .followRedirects(HttpClient.Redirect.NEVER)
+          .build();
+    }
+  }
+
+  public static HttpClient getClient() {
+    return ClientHolder.CLIENT;
+  }
+
   @LinkScriptFunction("request")
   public static LinkScriptRequest request(String url) {
     return new LinkScriptRequest().url(url);
@@ -50,13 +79,75 @@ public class LinkScriptRequest implements Builder {
 
   public HttpResponse<String> send() {
     try {
-      return HttpClient.newHttpClient().send(build(), HttpResponse.BodyHandlers.ofString());
+      return getClient().send(build(), HttpResponse.BodyHandlers.ofString());
     } catch (Exception e) {
       LOG.error(e.getMessage(), e);
       return null;
     }
   }
 
+  public CompletableFuture<HttpResponse<String>> sendAsync() {
+    CompletableFuture<HttpResponse<String>> future;
+    try {
+      future = getClient().sendAsync(build(), HttpResponse.BodyHandlers.ofString());
+    } catch (RuntimeException e) {
+      future = CompletableFuture.failedFuture(e);
+    }
+    return future.exceptionally(
+            e -> {
+              LOG.error(e.getMessage(), e);
+              return null;
+            });
+  }
+
+  @LinkScriptFunction("sendAll")
+  public static List<HttpResponse<String>> sendAll(Collection<LinkScriptRequest> requests) {
+    return sendAll(
+        requests, Beans.get(AppSettingsStudioService.class).getLinkScriptHttpMaxConcurrency());
+  }
+
+  /**
+   * Sends the given requests with at most {@code maxConcurrency} of them in flight, responses are
+   * returned in the order of the requests, {@code null} for failed ones.
+   */
+  public static List<HttpResponse<String>> sendAll(
+      Collection<LinkScriptRequest> requests, int maxConcurrency) {
+    var pending = List.copyOf(requests);
+    var responses = new AtomicReferenceArray<HttpResponse<String>>(pending.size());
+    var next = new AtomicInteger();
+
+    CompletableFuture.allOf(
+            IntStream.range(0, Math.min(Math.max(1, maxConcurrency), pending.size()))
+                .mapToObj(i -> sendNext(pending, responses, next))
+                .toArray(CompletableFuture[]::new))
+        .join();
+
+    @SuppressWarnings("unchecked")
+    HttpResponse<String>[] result = new HttpResponse[pending.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = responses.get(i);
+    }
+    return Arrays.asList(result);
+  }
+
+  private static CompletableFuture<Void> sendNext(
+      List<LinkScriptRequest> requests,
+      AtomicReferenceArray<HttpResponse<String>> responses,
+      AtomicInteger next) {
+    int index = next.getAndIncrement();
+    if (index >= requests.size()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return requests
+        .get(index)
+        .sendAsync()
+        .thenCompose(
+            response -> {
+              responses.set(index, response);
+              return sendNext(requests, responses, next);
+            });
+  }
+
   private BodyPublisher ofString(String body) {
     return StringUtils.isBlank(body)
         ? HttpRequest.BodyPublishers.noBody()
@@ -98,6 +189,7 @@ public class LinkScriptRequest implements Builder {
   @Override
   public LinkScriptRequest timeout(Duration duration) {
     delegate.timeout(duration);
+    timeoutSet = true;
     return this;
   }
 
@@ -139,6 +231,10 @@ public class LinkScriptRequest implements Builder {
 
   @Override
   public HttpRequest build() {
+    int readTimeout = Beans.get(AppSettingsStudioService.class).getLinkScriptHttpReadTimeout();
+    if (!timeoutSet && readTimeout > 0) {
+      timeout(Duration.ofSeconds(readTimeout));
+    }
     return delegate.build();
   }
 
@@ -5,8 +5,12 @@ import com.axelor.studio.db.LinkScript;
 import com.axelor.studio.helper.TransactionHelper;
 import com.axelor.studio.ls.LinkScriptBindingsService;
 import com.axelor.studio.ls.LinkScriptResult;
+import com.axelor.studio.ls.script.CompiledLinkScript;
+import com.axelor.studio.ls.script.GroovyScriptAnalysis;
 import com.axelor.studio.ls.script.LinkScriptGroovyScriptHelper;
+import com.google.common.cache.Cache;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.regex.Matcher;
@@ -16,14 +20,23 @@ import javax.script.Bindings;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 
+@Singleton
 public class LinkScriptGroovyEvaluator
     implements LinkScriptEvaluator<LinkScriptGroovyScriptHelper> {
 
+  protected static final Pattern RUN_PATTERN = Pattern.compile("@\"(.*?)\"");
+
   protected final LinkScriptBindingsService linkScriptBindingsService;
 
+  // Keyed by link script id and context keys, the preprocessed body depends on both.
+  protected final Cache<String, CompiledLinkScript> compiledScripts;
+
   @Inject
   public LinkScriptGroovyEvaluator(LinkScriptBindingsService linkScriptBindingsService) {
     this.linkScriptBindingsService = linkScriptBindingsService;
+    this.compiledScripts = LinkScriptGroovyScriptHelper.newCacheBuilder().build();
+    LinkScriptGroovyScriptHelper.addImportCustomizer(
+        linkScriptBindingsService.getImportCustomizer());
   }
 
   @Override
@@ -34,10 +47,12 @@ public class LinkScriptGroovyEvaluator
 
   @Override
   public String preProcess(String script, LinkedHashMap<String, Object> context) {
-    var gsh = newHelper(context);
-    String patternString = "@\"(.*?)\"";
-    Pattern pattern = Pattern.compile(patternString);
-    Matcher matcher = pattern.matcher(script);
+    script = replaceRuns(script, context);
+    return appendReturn(script, LinkScriptGroovyScriptHelper.analyzeScript(script), context);
+  }
+
+  protected String replaceRuns(String script, LinkedHashMap<String, Object> context) {
+    Matcher matcher = RUN_PATTERN.matcher(script);
 
     StringBuilder result = new StringBuilder();
     String arguments =
@@ -52,9 +67,11 @@ public class LinkScriptGroovyEvaluator
               + "])");
     }
     matcher.appendTail(result);
-    script = result.toString();
+    return result.toString();
+  }
 
-    var analysis = gsh.analyze(script);
+  protected String appendReturn(
+      String script, GroovyScriptAnalysis analysis, LinkedHashMap<String, Object> context) {
     var variables = new HashSet<>();
     variables.addAll(context.keySet());
     variables.addAll(analysis.getExpressionVariables());
@@ -71,6 +88,35 @@ public class LinkScriptGroovyEvaluator
     return script;
   }
 
+  public CompiledLinkScript compile(LinkScript linkScript, LinkedHashMap<String, Object> context)
+      throws Exception {
+    if (linkScript.getId() == null) {
+      return doCompile(linkScript, context);
+    }
+
+    String key = linkScript.getId() + "|" + String.join(",", context.keySet());
+    CompiledLinkScript compiled = compiledScripts.getIfPresent(key);
+    if (compiled == null || !compiled.isUpToDate(linkScript)) {
+      compiled = doCompile(linkScript, context);
+      compiledScripts.put(key, compiled);
+    }
+    return compiled;
+  }
+
+  protected CompiledLinkScript doCompile(
+      LinkScript linkScript, LinkedHashMap<String, Object> context) throws Exception {
+    String script = replaceRuns(linkScript.getBody(), context);
+    GroovyScriptAnalysis analysis = LinkScriptGroovyScriptHelper.analyzeScript(script);
+    script = appendReturn(script, analysis, context);
+    return new CompiledLinkScript(
+        linkScript, script, analysis, LinkScriptGroovyScriptHelper.compile(script));
+  }
+
+  public void invalidate(Long linkScriptId) {
+    String prefix = linkScriptId + "|";
+    compiledScripts.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+  }
+
   @Override
   public Object eval(
       LinkScriptGroovyScriptHelper scriptHelper,
@@ -79,7 +125,7 @@ public class LinkScriptGroovyEvaluator
       LinkedHashMap<String, Object> context) {
     return TransactionHelper.runInTransaction(
         linkScript.getTransactional(),
-        () -> scriptHelper.eval(preProcess(linkScript.getBody(), context)));
+        () -> scriptHelper.run(compile(linkScript, context).getScriptClass()));
   }
 
   protected Bindings bindings(LinkedHashMap<String, Object> context) {
@@ -0,0 +1,29 @@
+package com.axelor.studio.ls.script;
+
+import com.axelor.studio.db.LinkScript;
+import java.util.Objects;
+import lombok.Getter;
+
+/** Preprocessed body of a {@link LinkScript}, along with its analysis and compiled class. */
+@Getter
+public class CompiledLinkScript {
+  protected final Integer version;
+  protected final String body;
+  protected final String script;
+  protected final GroovyScriptAnalysis analysis;
+  protected final Class<?> scriptClass;
+
+  public CompiledLinkScript(
+      LinkScript linkScript, String script, GroovyScriptAnalysis analysis, Class<?> scriptClass) {
+    this.version = linkScript.getVersion();
+    this.body = linkScript.getBody();
+    this.script = script;
+    this.analysis = analysis;
+    this.scriptClass = scriptClass;
+  }
+
+  public boolean isUpToDate(LinkScript linkScript) {
+    return Objects.equals(version, linkScript.getVersion())
+        && Objects.equals(body, linkScript.getBody());
+  }
+}
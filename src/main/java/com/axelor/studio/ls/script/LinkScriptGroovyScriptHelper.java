@@ -10,6 +10,10 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.LoadingCache;
 import groovy.lang.GroovyClassLoader;
 import groovy.lang.Script;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import javax.persistence.EntityManager;
@@ -25,6 +29,10 @@ public class LinkScriptGroovyScriptHelper extends AbstractScriptHelper {
   protected static final int DEFAULT_CACHE_EXPIRE_TIME = 60;
   protected static final GroovyClassLoader GCL;
   protected static final LoadingCache<String, Class<?>> SCRIPT_CACHE;
+  protected static final Set<ImportCustomizer> IMPORT_CUSTOMIZERS =
+      Collections.newSetFromMap(new IdentityHashMap<>());
+  protected static final int CACHE_SIZE;
+  protected static final int CACHE_EXPIRE_TIME;
 
   static {
     config.getOptimizationOptions().put("indy", Boolean.TRUE);
@@ -42,18 +50,38 @@ public class LinkScriptGroovyScriptHelper extends AbstractScriptHelper {
 
     config.addCompilationCustomizers(importCustomizer);
 
-    int cacheSize = get(AvailableAppSettings.APPLICATION_SCRIPT_CACHE_SIZE, DEFAULT_CACHE_SIZE);
+    CACHE_SIZE = get(AvailableAppSettings.APPLICATION_SCRIPT_CACHE_SIZE, DEFAULT_CACHE_SIZE);
 
-    int cacheExpireTime =
+    CACHE_EXPIRE_TIME =
         get(AvailableAppSettings.APPLICATION_SCRIPT_CACHE_EXPIRE_TIME, DEFAULT_CACHE_EXPIRE_TIME);
 
     GCL = new GroovyClassLoader(JpaScanner.getClassLoader(), config);
 
-    SCRIPT_CACHE =
-        CacheBuilder.newBuilder()
-            .maximumSize(cacheSize)
-            .expireAfterAccess(cacheExpireTime, TimeUnit.MINUTES)
-            .build(new LinkScriptCacheLoader(GCL));
+    SCRIPT_CACHE = newCacheBuilder().build(new LinkScriptCacheLoader(GCL));
+  }
+
+  public static CacheBuilder<Object, Object> newCacheBuilder() {
+    return CacheBuilder.newBuilder()
+        .maximumSize(CACHE_SIZE)
+        .expireAfterAccess(CACHE_EXPIRE_TIME, TimeUnit.MINUTES);
+  }
+
+  /**
+   * Registers the given import customizer on the shared compiler configuration. A customizer is
+   * only added once, the imports it holds are read at compile time.
+   */
+  public static synchronized void addImportCustomizer(ImportCustomizer importCustomizer) {
+    if (importCustomizer != null && IMPORT_CUSTOMIZERS.add(importCustomizer)) {
+      config.addCompilationCustomizers(importCustomizer);
+    }
+  }
+
+  public static Class<?> compile(String code) throws ExecutionException {
+    return SCRIPT_CACHE.get(code);
+  }
+
+  public static GroovyScriptAnalysis analyzeScript(String script) {
+    return GroovyScriptAnalysis.analyze(script, config, GCL);
   }
 
   protected static int get(String property, int defaultValue) {
@@ -69,19 +97,26 @@ public class LinkScriptGroovyScriptHelper extends AbstractScriptHelper {
 
   public LinkScriptGroovyScriptHelper(Bindings bindings, ImportCustomizer importCustomizer) {
     this.setBindings(bindings);
-    config.addCompilationCustomizers(importCustomizer);
+    addImportCustomizer(importCustomizer);
   }
 
   @Override
   public Object eval(String expr, Bindings bindings) throws Exception {
-    Class<?> klass = SCRIPT_CACHE.get(expr);
+    return run(compile(expr), bindings);
+  }
+
+  public Object run(Class<?> klass) throws Exception {
+    return run(klass, getBindings());
+  }
+
+  protected Object run(Class<?> klass, Bindings bindings) throws Exception {
     Script script = (Script) klass.getDeclaredConstructor().newInstance();
     script.setBinding(new LinkScriptBinding(bindings));
     return script.run();
   }
 
   public GroovyScriptAnalysis analyze(String script) {
-    return GroovyScriptAnalysis.analyze(script, config, GCL);
+    return analyzeScript(script);
   }
 
   public static class Helpers {
@@ -0,0 +1,16 @@
+package com.axelor.studio.ls.script;
+
+import com.axelor.inject.Beans;
+import com.axelor.studio.db.LinkScript;
+import com.axelor.studio.ls.evaluator.LinkScriptGroovyEvaluator;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+public class LinkScriptListener {
+
+  @PostUpdate
+  @PostRemove
+  public void onChange(LinkScript linkScript) {
+    Beans.get(LinkScriptGroovyEvaluator.class).invalidate(linkScript.getId());
+  }
+}
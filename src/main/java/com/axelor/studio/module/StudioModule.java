@@ -60,8 +60,12 @@ import com.axelor.studio.bpm.service.dashboard.BpmManagerDashboardUserService;
 import com.axelor.studio.bpm.service.dashboard.BpmManagerDashboardUserServiceImpl;
 import com.axelor.studio.bpm.service.dashboard.WkfDashboardCommonService;
 import com.axelor.studio.bpm.service.dashboard.WkfDashboardCommonServiceImpl;
+import com.axelor.studio.bpm.service.dashboard.WkfDashboardQueryService;
+import com.axelor.studio.bpm.service.dashboard.WkfDashboardQueryServiceImpl;
 import com.axelor.studio.bpm.service.dashboard.WkfDashboardService;
 import com.axelor.studio.bpm.service.dashboard.WkfDashboardServiceImpl;
+import com.axelor.studio.bpm.service.dashboard.WkfNodeStatisticService;
+import com.axelor.studio.bpm.service.dashboard.WkfNodeStatisticServiceImpl;
 import com.axelor.studio.bpm.service.deployment.BpmDeploymentService;
 import com.axelor.studio.bpm.service.deployment.BpmDeploymentServiceImpl;
 import com.axelor.studio.bpm.service.deployment.BpmDeploymentWebSocket;
@@ -71,8 +75,12 @@ import com.axelor.studio.bpm.service.deployment.WkfMenuService;
 import com.axelor.studio.bpm.service.deployment.WkfMenuServiceImpl;
 import com.axelor.studio.bpm.service.deployment.WkfNodeService;
 import com.axelor.studio.bpm.service.deployment.WkfNodeServiceImpl;
+import com.axelor.studio.bpm.service.execution.WkfDispatchService;
+import com.axelor.studio.bpm.service.execution.WkfDispatchServiceImpl;
 import com.axelor.studio.bpm.service.execution.WkfEmailService;
 import com.axelor.studio.bpm.service.execution.WkfEmailServiceImpl;
+import com.axelor.studio.bpm.service.execution.WkfInstanceNodeService;
+import com.axelor.studio.bpm.service.execution.WkfInstanceNodeServiceImpl;
 import com.axelor.studio.bpm.service.execution.WkfInstanceService;
 import com.axelor.studio.bpm.service.execution.WkfInstanceServiceImpl;
 import com.axelor.studio.bpm.service.execution.WkfTaskService;
@@ -184,6 +192,8 @@ import com.axelor.studio.service.transformation.TransformationService;
 import com.axelor.studio.service.transformation.TransformationServiceImpl;
 import com.axelor.studio.service.ws.WsAuthenticatorService;
 import com.axelor.studio.service.ws.WsAuthenticatorServiceImpl;
+import com.axelor.studio.service.ws.WsClientService;
+import com.axelor.studio.service.ws.WsClientServiceImpl;
 import com.axelor.studio.service.ws.WsConnectorService;
 import com.axelor.studio.service.ws.WsConnectorServiceImpl;
 import com.google.inject.TypeLiteral;
@@ -213,6 +223,7 @@ public class StudioModule extends AxelorModule {
 
     bind(WsConnectorService.class).to(WsConnectorServiceImpl.class);
     bind(WsAuthenticatorService.class).to(WsAuthenticatorServiceImpl.class);
+    bind(WsClientService.class).to(WsClientServiceImpl.class);
     bind(WsConnectorRepository.class).to(WsConnectorRepo.class);
     bind(WsAuthenticatorRepository.class).to(WsAuthenticatorRepo.class);
     bind(TransformationService.class).to(TransformationServiceImpl.class);
@@ -239,7 +250,9 @@ public class StudioModule extends AxelorModule {
     bind(WkfEmailService.class).to(WkfEmailServiceImpl.class);
     bind(WkfInstanceService.class).to(WkfInstanceServiceImpl.class);
     bind(WkfTaskService.class).to(WkfTaskServiceImpl.class);
+    bind(WkfDispatchService.class).to(WkfDispatchServiceImpl.class);
     bind(WkfUserActionService.class).to(WkfUserActionServiceImpl.class);
+    bind(WkfInstanceNodeService.class).to(WkfInstanceNodeServiceImpl.class);
     bind(DmnDeploymentService.class).to(DmnDeploymentServiceImpl.class);
     bind(DmnService.class).to(DmnServiceImpl.class);
     bind(BamlService.class).to(BamlServiceImpl.class);
@@ -250,6 +263,8 @@ public class StudioModule extends AxelorModule {
     bind(AppLoaderExportServiceImpl.class).to(AppLoaderExportBpmServiceImpl.class);
     bind(WkfDashboardService.class).to(WkfDashboardServiceImpl.class);
     bind(WkfDashboardCommonService.class).to(WkfDashboardCommonServiceImpl.class);
+    bind(WkfDashboardQueryService.class).to(WkfDashboardQueryServiceImpl.class);
+    bind(WkfNodeStatisticService.class).to(WkfNodeStatisticServiceImpl.class);
     bind(BpmManagerDashboardService.class).to(BpmManagerDashboardServiceImpl.class);
     bind(BpmManagerDashboardUserService.class).to(BpmManagerDashboardUserServiceImpl.class);
     bind(BpmManagerDashboardTaskService.class).to(BpmManagerDashboardTaskServiceImpl.class);
@@ -22,12 +22,62 @@ public interface AppSettingsStudioService extends AppSettingsMessageService {
 
   public boolean isAddBpmLog();
 
+  int getBpmLogQueueSize();
+
+  int getBpmLogIdleTimeout();
+
+  long getBpmLogViewMaxSize();
+
+  int getBpmLogClearBatchSize();
+
+  int getBpmLogClearThreads();
+
+  int getBpmLogRetentionDays();
+
+  int getBpmErrorNotificationWindow();
+
+  int getBpmErrorNotificationMaxPending();
+
+  boolean isBpmStatisticsEnabled();
+
+  int getBpmStatisticsWindowDays();
+
   int serializationDepth();
 
   String[] getPackagesToScan();
 
   int getMaximumRecursion();
 
+  String getLinkScriptExecutionMode();
+
+  int getLinkScriptPoolSize();
+
+  int getLinkScriptMaxConcurrency();
+
+  boolean isLinkScriptHttp2Enabled();
+
+  int getLinkScriptHttpConnectTimeout();
+
+  int getLinkScriptHttpReadTimeout();
+
+  int getLinkScriptHttpMaxConcurrency();
+
+  int getWsClientMaxConnections();
+
+  int getWsClientConnectTimeout();
+
+  int getWsClientReadTimeout();
+
+  int getWsClientConnectionRequestTimeout();
+
+  int getWsClientKeepAlive();
+
+  int getWsSessionMaxAge();
+
+  long getWsResponseSpillThreshold();
+
+  int getWsResponseCacheSize();
+
   int processEngineMaxIdleConnections();
 
   int processEngineMaxActiveConnections();
@@ -37,4 +87,12 @@ public interface AppSettingsStudioService extends AppSettingsMessageService {
   String getCamundaEngineScriptLogLevel();
 
   String getCamundaEngineContextLogLevel();
+
+  String getWkfDispatchMode();
+
+  int getWkfDispatchPoolSize();
+
+  int getWkfDispatchQueueCapacity();
+
+  int getWkfDispatchBatchSize();
 }
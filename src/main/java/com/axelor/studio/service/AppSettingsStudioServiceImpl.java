@@ -60,6 +60,56 @@ public class AppSettingsStudioServiceImpl extends AppSettingsMessageServiceImpl
     return appSettings.getBoolean("studio.bpm.logging", false);
   }
 
+  @Override
+  public int getBpmLogQueueSize() {
+    return appSettings.getInt("studio.bpm.logging.queue.size", 10000);
+  }
+
+  @Override
+  public int getBpmLogIdleTimeout() {
+    return appSettings.getInt("studio.bpm.logging.idle.timeout", 60);
+  }
+
+  @Override
+  public long getBpmLogViewMaxSize() {
+    return appSettings.getInt("studio.bpm.logging.view.max.size", 1048576);
+  }
+
+  @Override
+  public int getBpmLogClearBatchSize() {
+    return appSettings.getInt("studio.bpm.logging.clear.batch.size", 1000);
+  }
+
+  @Override
+  public int getBpmLogClearThreads() {
+    return appSettings.getInt("studio.bpm.logging.clear.threads", 4);
+  }
+
+  @Override
+  public int getBpmLogRetentionDays() {
+    return appSettings.getInt("studio.bpm.logging.retention.days", 0);
+  }
+
+  @Override
+  public int getBpmErrorNotificationWindow() {
+    return appSettings.getInt("studio.bpm.error.notification.window", 30);
+  }
+
+  @Override
+  public int getBpmErrorNotificationMaxPending() {
+    return appSettings.getInt("studio.bpm.error.notification.max.pending", 1000);
+  }
+
+  @Override
+  public boolean isBpmStatisticsEnabled() {
+    return appSettings.getBoolean("studio.bpm.statistics", false);
+  }
+
+  @Override
+  public int getBpmStatisticsWindowDays() {
+    return appSettings.getInt("studio.bpm.statistics.window.days", 30);
+  }
+
   @Override
   public int serializationDepth() {
     return appSettings.getInt("studio.bpm.serialization.depth", 5);
@@ -90,6 +140,26 @@ public class AppSettingsStudioServiceImpl extends AppSettingsMessageServiceImpl
     return getLoggerLogLevel("org.camunda.bpm.engine.context");
   }
 
+  @Override
+  public String getWkfDispatchMode() {
+    return appSettings.get("studio.bpm.dispatch.mode", "sync");
+  }
+
+  @Override
+  public int getWkfDispatchPoolSize() {
+    return appSettings.getInt("studio.bpm.dispatch.pool.size", 4);
+  }
+
+  @Override
+  public int getWkfDispatchQueueCapacity() {
+    return appSettings.getInt("studio.bpm.dispatch.queue.capacity", 1000);
+  }
+
+  @Override
+  public int getWkfDispatchBatchSize() {
+    return appSettings.getInt("studio.bpm.dispatch.batch.size", 50);
+  }
+
   private String getLoggerLogLevel(String loggerPrefix) {
     String[] logLevels = {
       "logging.level." + loggerPrefix,
@@ -119,4 +189,79 @@ public class AppSettingsStudioServiceImpl extends AppSettingsMessageServiceImpl
   public int getMaximumRecursion() {
     return appSettings.getInt("studio.link.script.maximum.recursion", 100);
   }
+
+  @Override
+  public String getLinkScriptExecutionMode() {
+    return appSettings.get("studio.link.script.execution.mode", "sequential");
+  }
+
+  @Override
+  public int getLinkScriptPoolSize() {
+    return appSettings.getInt("studio.link.script.pool.size", 8);
+  }
+
+  @Override
+  public int getLinkScriptMaxConcurrency() {
+    return appSettings.getInt("studio.link.script.max.concurrency", 4);
+  }
+
+  @Override
+  public boolean isLinkScriptHttp2Enabled() {
+    return appSettings.getBoolean("studio.link.script.http.http2", true);
+  }
+
+  @Override
+  public int getLinkScriptHttpConnectTimeout() {
+    return appSettings.getInt("studio.link.script.http.connect.timeout", 10);
+  }
+
+  @Override
+  public int getLinkScriptHttpReadTimeout() {
+    return appSettings.getInt("studio.link.script.http.read.timeout", 0);
+  }
+
+  @Override
+  public int getLinkScriptHttpMaxConcurrency() {
+    return appSettings.getInt("studio.link.script.http.max.concurrency", 10);
+  }
+
+  @Override
+  public int getWsClientMaxConnections() {
+    return appSettings.getInt("studio.ws.client.max.connections", 20);
+  }
+
+  @Override
+  public int getWsClientConnectTimeout() {
+    return appSettings.getInt("studio.ws.client.connect.timeout", 10);
+  }
+
+  @Override
+  public int getWsClientReadTimeout() {
+    return appSettings.getInt("studio.ws.client.read.timeout", 0);
+  }
+
+  @Override
+  public int getWsClientConnectionRequestTimeout() {
+    return appSettings.getInt("studio.ws.client.connection.request.timeout", 5);
+  }
+
+  @Override
+  public int getWsClientKeepAlive() {
+    return appSettings.getInt("studio.ws.client.keep.alive", 60);
+  }
+
+  @Override
+  public int getWsSessionMaxAge() {
+    return appSettings.getInt("studio.ws.session.max.age", 1800);
+  }
+
+  @Override
+  public long getWsResponseSpillThreshold() {
+    return appSettings.getInt("studio.ws.response.spill.threshold", 10485760);
+  }
+
+  @Override
+  public int getWsResponseCacheSize() {
+    return appSettings.getInt("studio.ws.response.cache.size", 1000);
+  }
 }
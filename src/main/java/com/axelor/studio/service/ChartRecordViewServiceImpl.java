@@ -44,11 +44,12 @@ import com.axelor.meta.schema.views.Selection.Option;
 import com.axelor.script.ScriptBindings;
 import com.axelor.studio.db.Filter;
 import com.axelor.studio.db.StudioChart;
+import com.axelor.studio.db.StudioChartRecord;
 import com.axelor.studio.db.repo.StudioChartRepository;
 import com.axelor.studio.service.filter.FilterSqlService;
 import com.google.common.base.Strings;
 import com.google.inject.Inject;
-import java.math.BigInteger;
+import com.google.inject.persist.Transactional;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Year;
@@ -61,7 +62,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.UUID;
 import javax.persistence.Query;
 import org.apache.commons.beanutils.ConvertUtils;
 
@@ -75,6 +76,7 @@ public class ChartRecordViewServiceImpl implements ChartRecordViewService {
       Arrays.asList("bar", "hbar", "scatter");
   protected static final List<String> TARGET_DATE_TYPES =
       Arrays.asList("DATE", "DATETIME", "LOCALDATE", "LOCALDATETIME", "ZONNEDDATETIME");
+  protected static final long RECORD_RETENTION_HOURS = 24;
   protected StudioChartRepository studioChartRepository;
   protected MetaJsonModelRepository metaJsonModelRepository;
   protected MetaModelRepository metaModelRepository;
@@ -146,24 +148,53 @@ public class ChartRecordViewServiceImpl implements ChartRecordViewService {
         .map();
   }
 
-  @SuppressWarnings("unchecked")
+  /**
+   * Domain of the records of the clicked chart value. Their ids are copied by the database into
+   * {@link StudioChartRecord} rows under a new handle, which the domain selects with a subquery.
+   */
   protected String getDomainFilter(StudioChart studioChart, Map<String, Object> context) {
     ChartView chart = (ChartView) XMLViews.findView(studioChart.getName(), "chart");
     Map<String, Object> params = getQueryParams(context, chart);
     String queryString = prepareQuery(studioChart, params);
-    Query query = JPA.em().createNativeQuery(queryString);
+
+    String handle = UUID.randomUUID().toString();
+    saveRecords(handle, queryString, params);
+
+    return "self.id IN (SELECT record.recordId FROM StudioChartRecord record "
+        + "WHERE record.handle = '"
+        + handle
+        + "')";
+  }
+
+  @Transactional(rollbackOn = Exception.class)
+  protected void saveRecords(String handle, String queryString, Map<String, Object> params) {
+    LocalDateTime now = LocalDateTime.now();
+    JPA.em()
+        .createQuery("DELETE FROM StudioChartRecord self WHERE self.expiresOn < :now")
+        .setParameter("now", now)
+        .executeUpdate();
+
+    String tableName =
+        metaModelRepository.findByName(StudioChartRecord.class.getSimpleName()).getTableName();
+    Query query =
+        JPA.em()
+            .createNativeQuery(
+                String.format(
+                    "insert into %1$s (id, version, handle, record_id, expires_on, created_on) "
+                        + "select nextval('%1$s_seq'), 0, :chartRecordHandle, records.id, "
+                        + ":chartRecordExpiresOn, :chartRecordNow "
+                        + "from (select distinct filtered.id from (%2$s) filtered) records",
+                    tableName, queryString));
     params.forEach(query::setParameter);
+    query.setParameter("chartRecordHandle", handle);
+    query.setParameter("chartRecordExpiresOn", now.plusHours(RECORD_RETENTION_HOURS));
+    query.setParameter("chartRecordNow", now);
 
     QueryBinder queryBinder = QueryBinder.of(query);
     ScriptBindings binding = new ScriptBindings(null); // handle special variables
     binding.keySet().forEach(key -> queryBinder.bind(key, binding.get(key)));
 
-    List<BigInteger> resultList = queryBinder.getQuery().getResultList();
-
-    resultList.add(BigInteger.ZERO);
-    return resultList.parallelStream()
-        .map(String::valueOf)
-        .collect(Collectors.joining(",", "self.id in (", ")"));
+    queryBinder.getQuery().executeUpdate();
   }
 
   protected Map<String, Object> getQueryParams(Map<String, Object> context, ChartView chart) {
@@ -199,7 +230,8 @@ public class ChartRecordViewServiceImpl implements ChartRecordViewService {
 
   protected String prepareQuery(StudioChart studioChart, Map<String, Object> params) {
     ArrayList<String> joins = new ArrayList<>();
-    List<Filter> filterList = studioChart.getFilterList();
+    // Copied so that the click filters are not saved with the chart.
+    List<Filter> filterList = new ArrayList<>(studioChart.getFilterList());
 
     List<Filter> filterForGroups = getFilters(studioChart, params, true);
     filterList.addAll(filterForGroups);
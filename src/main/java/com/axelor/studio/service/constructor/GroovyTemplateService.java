@@ -1,7 +1,16 @@
 package com.axelor.studio.service.constructor;
 
+import com.axelor.text.Template;
 import java.util.Map;
 
 public interface GroovyTemplateService {
   String createXmlWithGroovyTemplate(String templatePath, Map<String, Object> binding);
+
+  /** Compiled template of the given text, cached by text. */
+  Template fromText(String text);
+
+  /** Renders the given text, values without placeholders are returned as is. */
+  String render(String text, Map<String, Object> binding);
+
+  boolean isLiteral(String text);
 }
@@ -1,17 +1,31 @@
 package com.axelor.studio.service.constructor;
 
 import com.axelor.text.GroovyTemplates;
+import com.axelor.text.Template;
 import com.axelor.utils.helpers.ExceptionHelper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.io.Resources;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+@Singleton
 public class GroovyTemplateServiceImpl implements GroovyTemplateService {
+  protected static final int TEMPLATE_CACHE_SIZE = 2000;
+
   protected GroovyTemplates templates;
 
+  protected final Cache<String, Template> templateCache =
+      CacheBuilder.newBuilder()
+          .maximumSize(TEMPLATE_CACHE_SIZE)
+          .expireAfterAccess(1, TimeUnit.HOURS)
+          .build();
+
   @Inject
   public GroovyTemplateServiceImpl(GroovyTemplates templates) {
     this.templates = templates;
@@ -31,6 +45,36 @@ public class GroovyTemplateServiceImpl implements GroovyTemplateService {
     return removeEmptyLines(xml);
   }
 
+  @Override
+  public Template fromText(String text) {
+    if (text == null) {
+      return templates.fromText(text);
+    }
+    Template template = templateCache.getIfPresent(text);
+    if (template == null) {
+      template = templates.fromText(text);
+      templateCache.put(text, template);
+    }
+    return template;
+  }
+
+  @Override
+  public String render(String text, Map<String, Object> binding) {
+    if (isLiteral(text)) {
+      return text;
+    }
+    return fromText(text).make(binding).render();
+  }
+
+  @Override
+  public boolean isLiteral(String text) {
+    return text != null
+        && text.indexOf('$') < 0
+        && text.indexOf('\\') < 0
+        && !text.contains("<%")
+        && !text.contains("{{");
+  }
+
   protected String removeEmptyLines(String xml) {
     return xml.replaceAll("(?m)^[ \t]*\r?\n", "");
   }
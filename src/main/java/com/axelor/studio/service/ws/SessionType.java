@@ -1,6 +1,7 @@
 package com.axelor.studio.service.ws;
 
 import com.axelor.studio.db.WsAuthenticator;
+import java.time.Instant;
 import javax.ws.rs.client.Invocation;
 import javax.ws.rs.core.Response;
 
@@ -9,4 +10,9 @@ public interface SessionType {
   void extractSessionData(Response response, WsAuthenticator wsAuthenticator);
 
   public void injectSessionData(Invocation.Builder request);
+
+  /** Expiry of the extracted session data, {@code null} when unknown or not expiring. */
+  default Instant getExpiry() {
+    return null;
+  }
 }
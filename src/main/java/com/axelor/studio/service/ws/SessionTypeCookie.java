@@ -1,18 +1,39 @@
 package com.axelor.studio.service.ws;
 
 import com.axelor.studio.db.WsAuthenticator;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import javax.ws.rs.client.Invocation;
 import javax.ws.rs.core.NewCookie;
 import javax.ws.rs.core.Response;
 
 public class SessionTypeCookie implements SessionType {
   protected Map<String, NewCookie> cookies = new HashMap<>();
+  protected Instant expiry;
 
   @Override
   public void extractSessionData(Response response, WsAuthenticator wsAuthenticator) {
     this.cookies = response.getCookies();
+    this.expiry =
+        cookies.values().stream()
+            .map(this::getExpiry)
+            .filter(Objects::nonNull)
+            .min(Instant::compareTo)
+            .orElse(null);
+  }
+
+  protected Instant getExpiry(NewCookie cookie) {
+    if (cookie.getMaxAge() >= 0) {
+      return Instant.now().plusSeconds(cookie.getMaxAge());
+    }
+    return cookie.getExpiry() != null ? cookie.getExpiry().toInstant() : null;
+  }
+
+  @Override
+  public Instant getExpiry() {
+    return expiry;
   }
 
   @Override
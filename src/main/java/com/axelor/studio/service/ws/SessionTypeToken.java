@@ -4,11 +4,13 @@ import com.axelor.studio.db.WsAuthenticator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Instant;
 import javax.ws.rs.client.Invocation;
 import javax.ws.rs.core.Response;
 
 public class SessionTypeToken implements SessionType {
   protected String token;
+  protected Instant expiry;
 
   @Override
   public void extractSessionData(Response response, WsAuthenticator wsAuthenticator) {
@@ -18,6 +20,9 @@ public class SessionTypeToken implements SessionType {
     try {
       jsonNode = objectMapper.readTree(responseBody);
       this.token = jsonNode.get(wsAuthenticator.getTokenName()).asText();
+      if (jsonNode.hasNonNull("expires_in")) {
+        this.expiry = Instant.now().plusSeconds(jsonNode.get("expires_in").asLong());
+      }
     } catch (JsonProcessingException e) {
       throw new RuntimeException(e);
     }
@@ -27,4 +32,9 @@ public class SessionTypeToken implements SessionType {
   public void injectSessionData(Invocation.Builder request) {
     request.header("Authorization", "Bearer " + this.token);
   }
+
+  @Override
+  public Instant getExpiry() {
+    return expiry;
+  }
 }
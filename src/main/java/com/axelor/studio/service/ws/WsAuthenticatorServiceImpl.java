@@ -32,7 +32,6 @@ import java.net.URISyntaxException;
 import java.util.HashMap;
 import java.util.Map;
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.core.Response;
 import org.apache.http.client.utils.URIBuilder;
 
@@ -43,17 +42,20 @@ public class WsAuthenticatorServiceImpl implements WsAuthenticatorService {
   protected WsAuthenticatorRepository wsAuthenticatorRepository;
   protected AppSettingsStudioService appSettingsStudioService;
   protected GroovyTemplates templates;
+  protected WsClientService wsClientService;
 
   @Inject
   public WsAuthenticatorServiceImpl(
       WsConnectorService wsConnectorService,
       WsAuthenticatorRepository wsAuthenticatorRepository,
       AppSettingsStudioService appSettingsStudioService,
-      GroovyTemplates templates) {
+      GroovyTemplates templates,
+      WsClientService wsClientService) {
     this.wsConnectorService = wsConnectorService;
     this.wsAuthenticatorRepository = wsAuthenticatorRepository;
     this.appSettingsStudioService = appSettingsStudioService;
     this.templates = templates;
+    this.wsClientService = wsClientService;
   }
 
   @Override
@@ -62,31 +64,34 @@ public class WsAuthenticatorServiceImpl implements WsAuthenticatorService {
 
     String authType = wsAuthenticator.getAuthTypeSelect();
     Map<String, Object> ctx = new HashMap<>();
-    Client client = ClientBuilder.newClient();
+    Client client = wsClientService.getAuthClient();
 
     Response response = null;
-    if (wsAuthenticator.getAuthWsRequest() != null) {
-      if (authType.equals("basic")) {
-        response =
-            wsConnectorService.callRequest(
-                wsAuthenticator.getAuthWsRequest(),
-                wsAuthenticator.getAuthWsRequest().getWsUrl(),
-                client,
-                templates,
-                ctx);
-
-      } else {
-        response = performOAuth2(wsAuthenticator, client, templates, ctx);
+    try {
+      if (wsAuthenticator.getAuthWsRequest() != null) {
+        if (authType.equals("basic")) {
+          response =
+              wsConnectorService.callRequest(
+                  wsAuthenticator.getAuthWsRequest(),
+                  wsAuthenticator.getAuthWsRequest().getWsUrl(),
+                  client,
+                  templates,
+                  ctx);
+
+        } else {
+          response = performOAuth2(wsAuthenticator, client, templates, ctx);
+        }
       }
-    }
 
-    if (response != null) {
-      if (response.getStatus() == 200) {
+      if (response != null && response.getStatus() == 200) {
         wsAuthenticator.setIsAuthenticated(true);
         wsAuthenticator.setRefreshTokenResponse(null);
         wsAuthenticatorRepository.save(wsAuthenticator);
       }
-      response.close();
+    } finally {
+      if (response != null) {
+        response.close();
+      }
     }
   }
 
@@ -159,8 +164,13 @@ public class WsAuthenticatorServiceImpl implements WsAuthenticatorService {
             templates,
             ctx);
 
-    if (response.hasEntity()) {
-      wsAuthenticator.setTokenResponse(response.readEntity(String.class));
+    try {
+      if (response.hasEntity()) {
+        wsAuthenticator.setTokenResponse(response.readEntity(String.class));
+      }
+    } catch (RuntimeException e) {
+      response.close();
+      throw e;
     }
 
     return response;
@@ -177,7 +187,7 @@ public class WsAuthenticatorServiceImpl implements WsAuthenticatorService {
     }
 
     Map<String, Object> ctx = new HashMap<>();
-    Client client = ClientBuilder.newClient();
+    Client client = wsClientService.getAuthClient();
     ObjectMapper mapper = new ObjectMapper();
 
     try {
@@ -203,13 +213,21 @@ public class WsAuthenticatorServiceImpl implements WsAuthenticatorService {
             templates,
             ctx);
 
-    if (response.hasEntity()) {
-      if (response.getStatus() == 401 || response.getStatus() == 400) {
-        wsAuthenticator.setIsAuthenticated(false);
-      } else {
-        wsAuthenticator.setRefreshTokenResponse(response.readEntity(String.class));
+    // The body is read on every path, the pooled connection is released even if the caller does
+    // not close the response.
+    try {
+      response.bufferEntity();
+      if (response.hasEntity()) {
+        if (response.getStatus() == 401 || response.getStatus() == 400) {
+          wsAuthenticator.setIsAuthenticated(false);
+        } else {
+          wsAuthenticator.setRefreshTokenResponse(response.readEntity(String.class));
+        }
+        wsAuthenticatorRepository.save(wsAuthenticator);
       }
-      wsAuthenticatorRepository.save(wsAuthenticator);
+    } catch (RuntimeException e) {
+      response.close();
+      throw e;
     }
 
     return response;
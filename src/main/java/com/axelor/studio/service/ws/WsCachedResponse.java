@@ -0,0 +1,247 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.service.ws;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.lang.annotation.Annotation;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.Link;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.NewCookie;
+import javax.ws.rs.core.Response;
+
+/**
+ * Response served from {@link WsResponseCache}. Its entity can be read as an input stream, a byte
+ * array or a string, the other response details come from the cached headers.
+ *
+ * <p>A response too large to be cached is made of the bytes already read followed by the rest of
+ * the original response, which is closed with this one.
+ */
+public class WsCachedResponse extends Response {
+
+  protected final Response metadata;
+  protected byte[] body;
+  protected InputStream remainder;
+  protected Response source;
+  protected boolean closed;
+
+  public WsCachedResponse(int status, MultivaluedMap<String, Object> headers, byte[] body) {
+    this.metadata = Response.status(status).replaceAll(headers).build();
+    this.body = body;
+  }
+
+  public WsCachedResponse(
+      int status,
+      MultivaluedMap<String, Object> headers,
+      byte[] body,
+      InputStream remainder,
+      Response source) {
+    this(status, headers, body);
+    this.remainder = remainder;
+    this.source = source;
+  }
+
+  @Override
+  public int getStatus() {
+    return metadata.getStatus();
+  }
+
+  @Override
+  public StatusType getStatusInfo() {
+    return metadata.getStatusInfo();
+  }
+
+  @Override
+  public Object getEntity() {
+    return body;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T readEntity(Class<T> entityType) {
+    if (closed) {
+      throw new IllegalStateException("Response closed");
+    }
+    if (entityType == InputStream.class) {
+      if (remainder == null) {
+        return (T) new ByteArrayInputStream(body);
+      }
+      InputStream stream = new SequenceInputStream(new ByteArrayInputStream(body), remainder);
+      body = new byte[0];
+      remainder = null;
+      return (T) stream;
+    }
+    if (entityType == byte[].class) {
+      return (T) readBody();
+    }
+    if (entityType == String.class) {
+      return (T) new String(readBody(), getCharset());
+    }
+    throw new ProcessingException("Unsupported entity type: " + entityType);
+  }
+
+  protected byte[] readBody() {
+    if (remainder != null) {
+      InputStream stream = new SequenceInputStream(new ByteArrayInputStream(body), remainder);
+      try (stream) {
+        body = stream.readAllBytes();
+      } catch (IOException e) {
+        throw new ProcessingException(e);
+      } finally {
+        remainder = null;
+      }
+    }
+    return body;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T readEntity(GenericType<T> entityType) {
+    return (T) readEntity(entityType.getRawType());
+  }
+
+  @Override
+  public <T> T readEntity(Class<T> entityType, Annotation[] annotations) {
+    return readEntity(entityType);
+  }
+
+  @Override
+  public <T> T readEntity(GenericType<T> entityType, Annotation[] annotations) {
+    return readEntity(entityType);
+  }
+
+  protected Charset getCharset() {
+    MediaType mediaType = getMediaType();
+    String charset = mediaType != null ? mediaType.getParameters().get("charset") : null;
+    return charset != null ? Charset.forName(charset) : StandardCharsets.UTF_8;
+  }
+
+  @Override
+  public boolean hasEntity() {
+    return body.length > 0 || remainder != null;
+  }
+
+  @Override
+  public boolean bufferEntity() {
+    if (!closed) {
+      readBody();
+    }
+    return true;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    if (source != null) {
+      source.close();
+    }
+  }
+
+  @Override
+  public MediaType getMediaType() {
+    return metadata.getMediaType();
+  }
+
+  @Override
+  public Locale getLanguage() {
+    return metadata.getLanguage();
+  }
+
+  @Override
+  public int getLength() {
+    return source != null ? metadata.getLength() : body.length;
+  }
+
+  @Override
+  public Set<String> getAllowedMethods() {
+    return metadata.getAllowedMethods();
+  }
+
+  @Override
+  public Map<String, NewCookie> getCookies() {
+    return metadata.getCookies();
+  }
+
+  @Override
+  public EntityTag getEntityTag() {
+    return metadata.getEntityTag();
+  }
+
+  @Override
+  public Date getDate() {
+    return metadata.getDate();
+  }
+
+  @Override
+  public Date getLastModified() {
+    return metadata.getLastModified();
+  }
+
+  @Override
+  public URI getLocation() {
+    return metadata.getLocation();
+  }
+
+  @Override
+  public Set<Link> getLinks() {
+    return metadata.getLinks();
+  }
+
+  @Override
+  public boolean hasLink(String relation) {
+    return metadata.hasLink(relation);
+  }
+
+  @Override
+  public Link getLink(String relation) {
+    return metadata.getLink(relation);
+  }
+
+  @Override
+  public Link.Builder getLinkBuilder(String relation) {
+    return metadata.getLinkBuilder(relation);
+  }
+
+  @Override
+  public MultivaluedMap<String, Object> getMetadata() {
+    return metadata.getMetadata();
+  }
+
+  @Override
+  public MultivaluedMap<String, String> getStringHeaders() {
+    return metadata.getStringHeaders();
+  }
+
+  @Override
+  public String getHeaderString(String name) {
+    return metadata.getHeaderString(name);
+  }
+}
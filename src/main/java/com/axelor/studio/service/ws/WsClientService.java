@@ -0,0 +1,40 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.service.ws;
+
+import com.axelor.studio.db.WsConnector;
+import java.util.Map;
+import javax.ws.rs.client.Client;
+
+public interface WsClientService {
+
+  /** Pooled client of the given connector, created on first use and kept until closed. */
+  Client getClient(WsConnector wsConnector);
+
+  /** Pooled client shared by the calls which are not bound to a connector. */
+  Client getDefaultClient();
+
+  /** Pooled client of the authenticator calls, apart from the connector ones. */
+  Client getAuthClient();
+
+  void close(WsConnector wsConnector);
+
+  void closeAll();
+
+  Map<String, Object> getMetrics();
+}
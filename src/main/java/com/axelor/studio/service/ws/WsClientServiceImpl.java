@@ -0,0 +1,224 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.service.ws;
+
+import com.axelor.event.Observes;
+import com.axelor.events.ShutdownEvent;
+import com.axelor.studio.baml.tools.BpmTools;
+import com.axelor.studio.db.WsConnector;
+import com.axelor.studio.service.AppSettingsStudioService;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.lang.invoke.MethodHandles;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps one pooled client per connector and tenant. Clients of updated connectors are retired and
+ * only closed once their requests are done, or after the read timeout when one is set.
+ */
+@Singleton
+public class WsClientServiceImpl implements WsClientService {
+
+  protected static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  protected static final String DEFAULT_CLIENT = "default";
+  protected static final String AUTH_CLIENT = "auth";
+
+  protected final AppSettingsStudioService appSettingsStudioService;
+
+  protected final Map<String, PooledClient> clients = new ConcurrentHashMap<>();
+  protected final Queue<PooledClient> retiredClients = new ConcurrentLinkedQueue<>();
+
+  @Inject
+  public WsClientServiceImpl(AppSettingsStudioService appSettingsStudioService) {
+    this.appSettingsStudioService = appSettingsStudioService;
+  }
+
+  @Override
+  public Client getClient(WsConnector wsConnector) {
+    if (wsConnector == null || wsConnector.getId() == null) {
+      return getDefaultClient();
+    }
+    return getClient(getKey(wsConnector));
+  }
+
+  @Override
+  public Client getDefaultClient() {
+    return getClient(BpmTools.getCurentTenant() + ":" + DEFAULT_CLIENT);
+  }
+
+  @Override
+  public Client getAuthClient() {
+    return getClient(BpmTools.getCurentTenant() + ":" + AUTH_CLIENT);
+  }
+
+  protected Client getClient(String key) {
+    closeRetiredClients(false);
+    return clients.computeIfAbsent(key, this::createClient).client;
+  }
+
+  @Override
+  public void close(WsConnector wsConnector) {
+    if (wsConnector == null || wsConnector.getId() == null) {
+      return;
+    }
+    retire(getKey(wsConnector));
+    closeRetiredClients(false);
+  }
+
+  @Override
+  public void closeAll() {
+    clients.keySet().forEach(this::retire);
+    closeRetiredClients(true);
+  }
+
+  protected void retire(String key) {
+    PooledClient pooledClient = clients.remove(key);
+    if (pooledClient != null) {
+      pooledClient.retiredAt = System.nanoTime();
+      retiredClients.add(pooledClient);
+    }
+  }
+
+  public void onShutdown(@Observes ShutdownEvent event) {
+    closeAll();
+  }
+
+  @Override
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    clients.forEach(
+        (key, pooledClient) -> {
+          PoolStats stats = pooledClient.connectionManager.getTotalStats();
+          Map<String, Object> poolMetrics = new LinkedHashMap<>();
+          poolMetrics.put("max", stats.getMax());
+          poolMetrics.put("leased", stats.getLeased());
+          poolMetrics.put("available", stats.getAvailable());
+          poolMetrics.put("pending", stats.getPending());
+          poolMetrics.put(
+              "utilisation", stats.getMax() == 0 ? 0 : (double) stats.getLeased() / stats.getMax());
+          metrics.put(key, poolMetrics);
+        });
+    metrics.put("retired", retiredClients.size());
+    return metrics;
+  }
+
+  protected String getKey(WsConnector wsConnector) {
+    return BpmTools.getCurentTenant() + ":" + wsConnector.getId();
+  }
+
+  protected PooledClient createClient(String key) {
+    int maxConnections = Math.max(1, appSettingsStudioService.getWsClientMaxConnections());
+    long connectTimeout =
+        TimeUnit.SECONDS.toMillis(appSettingsStudioService.getWsClientConnectTimeout());
+    long readTimeout = TimeUnit.SECONDS.toMillis(appSettingsStudioService.getWsClientReadTimeout());
+    long connectionRequestTimeout =
+        TimeUnit.SECONDS.toMillis(appSettingsStudioService.getWsClientConnectionRequestTimeout());
+    long keepAlive = TimeUnit.SECONDS.toMillis(appSettingsStudioService.getWsClientKeepAlive());
+
+    PoolingHttpClientConnectionManager connectionManager =
+        new PoolingHttpClientConnectionManager(keepAlive, TimeUnit.MILLISECONDS);
+    connectionManager.setMaxTotal(maxConnections);
+    connectionManager.setDefaultMaxPerRoute(maxConnections);
+
+    RequestConfig requestConfig =
+        RequestConfig.custom()
+            .setConnectTimeout((int) connectTimeout)
+            .setSocketTimeout((int) readTimeout)
+            .setConnectionRequestTimeout((int) connectionRequestTimeout)
+            .build();
+
+    CloseableHttpClient httpClient =
+        HttpClientBuilder.create()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .disableCookieManagement()
+            .setKeepAliveStrategy(
+                (response, context) -> {
+                  long duration =
+                      DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(
+                          response, context);
+                  return duration > 0 ? Math.min(duration, keepAlive) : keepAlive;
+                })
+            .evictExpiredConnections()
+            .evictIdleConnections(keepAlive, TimeUnit.MILLISECONDS)
+            .build();
+
+    log.debug("Create web service client {} with {} connection(s)", key, maxConnections);
+
+    Client client =
+        ((ResteasyClientBuilder) ClientBuilder.newBuilder())
+            .httpEngine(new ApacheHttpClient43Engine(httpClient, true))
+            .build();
+    return new PooledClient(client, connectionManager, readTimeout);
+  }
+
+  protected void closeRetiredClients(boolean force) {
+    retiredClients.removeIf(
+        pooledClient -> {
+          if (!force && !pooledClient.isIdle()) {
+            return false;
+          }
+          try {
+            pooledClient.client.close();
+          } catch (RuntimeException e) {
+            log.warn("Error while closing web service client", e);
+          }
+          return true;
+        });
+  }
+
+  protected static class PooledClient {
+    protected final Client client;
+    protected final PoolingHttpClientConnectionManager connectionManager;
+    protected final long readTimeout;
+    protected volatile long retiredAt;
+
+    protected PooledClient(
+        Client client, PoolingHttpClientConnectionManager connectionManager, long readTimeout) {
+      this.client = client;
+      this.connectionManager = connectionManager;
+      this.readTimeout = readTimeout;
+    }
+
+    protected boolean isIdle() {
+      if (connectionManager.getTotalStats().getLeased() == 0) {
+        return true;
+      }
+      return readTimeout > 0
+          && TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - retiredAt) > readTimeout;
+    }
+  }
+}
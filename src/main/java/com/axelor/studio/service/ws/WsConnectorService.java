@@ -38,6 +38,14 @@ public interface WsConnectorService {
   public Response callRequest(
       WsRequest wsRequest, String url, Client client, Templates templates, Map<String, Object> ctx);
 
+  Response callRequest(
+      WsRequest wsRequest,
+      String url,
+      Client client,
+      Templates templates,
+      Map<String, Object> ctx,
+      SessionType sessionType);
+
   void addAttachement(
       Map<String, Object> ctx,
       WsRequest wsRequest,
@@ -21,13 +21,17 @@ import com.axelor.common.StringUtils;
 import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
 import com.axelor.meta.MetaFiles;
+import com.axelor.studio.db.LinkScript;
 import com.axelor.studio.db.WsAuthenticator;
 import com.axelor.studio.db.WsConnector;
 import com.axelor.studio.db.WsKeyValue;
 import com.axelor.studio.db.WsKeyValueSelectionHeader;
 import com.axelor.studio.db.WsRequest;
 import com.axelor.studio.db.WsRequestList;
+import com.axelor.studio.ls.LinkScriptService;
+import com.axelor.studio.service.AppSettingsStudioService;
 import com.axelor.studio.service.app.AppStudioService;
+import com.axelor.studio.service.constructor.GroovyTemplateService;
 import com.axelor.text.GroovyTemplates;
 import com.axelor.text.Templates;
 import com.axelor.utils.helpers.ExceptionHelper;
@@ -46,17 +50,20 @@ import java.io.InputStream;
 import java.lang.invoke.MethodHandles;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.Invocation.Builder;
 import javax.ws.rs.core.Form;
 import javax.ws.rs.core.MultivaluedHashMap;
@@ -74,8 +81,12 @@ public class WsConnectorServiceImpl implements WsConnectorService {
 
   protected final SessionTypeFactory sessionTypeFactory;
   protected WsAuthenticatorService wsAuthenticatorService;
+  protected WsClientService wsClientService;
   protected GroovyTemplates templates;
-  protected SessionType sessionType = null;
+  protected WsSessionCache wsSessionCache;
+  protected GroovyTemplateService groovyTemplateService;
+  protected WsRequestLimiter wsRequestLimiter;
+  protected WsResponseCache wsResponseCache;
 
   protected final MetaFiles metaFiles;
 
@@ -84,36 +95,56 @@ public class WsConnectorServiceImpl implements WsConnectorService {
       SessionTypeFactory sessionTypeFactory,
       WsAuthenticatorService wsAuthenticatorService,
       GroovyTemplates templates,
-      MetaFiles metaFiles) {
+      MetaFiles metaFiles,
+      WsClientService wsClientService,
+      WsSessionCache wsSessionCache,
+      GroovyTemplateService groovyTemplateService,
+      WsRequestLimiter wsRequestLimiter,
+      WsResponseCache wsResponseCache) {
     this.sessionTypeFactory = sessionTypeFactory;
     this.wsAuthenticatorService = wsAuthenticatorService;
+    this.wsClientService = wsClientService;
+    this.wsSessionCache = wsSessionCache;
+    this.groovyTemplateService = groovyTemplateService;
+    this.wsRequestLimiter = wsRequestLimiter;
+    this.wsResponseCache = wsResponseCache;
     this.templates = templates;
     this.metaFiles = metaFiles;
   }
 
-  private void authenticationVerify(
+  protected SessionType getSession(
       WsAuthenticator authenticator, Client client, Map<String, Object> ctx) {
-    if (authenticator != null && authenticator.getAuthTypeSelect().equals("basic")) {
-      WsRequest wsRequest = authenticator.getAuthWsRequest();
-      var defaultType =
-          authenticator.getUsername() != null && authenticator.getPassword() != null
-              ? "Standard"
-              : null;
-      this.sessionType =
-          this.sessionTypeFactory.get(
-              wsRequest != null ? authenticator.getResponseType() : defaultType);
-      if (wsRequest == null && this.sessionType != null) {
-        this.sessionType.extractSessionData(null, authenticator);
-      } else if (this.sessionType != null) {
-        Response wsResponse = callRequest(wsRequest, wsRequest.getWsUrl(), client, templates, ctx);
+    if (authenticator == null || !authenticator.getAuthTypeSelect().equals("basic")) {
+      return null;
+    }
+    return wsSessionCache.get(authenticator, () -> openSession(authenticator, client, ctx));
+  }
+
+  protected SessionType openSession(
+      WsAuthenticator authenticator, Client client, Map<String, Object> ctx) {
+    WsRequest wsRequest = authenticator.getAuthWsRequest();
+    var defaultType =
+        authenticator.getUsername() != null && authenticator.getPassword() != null
+            ? "Standard"
+            : null;
+    SessionType sessionType =
+        this.sessionTypeFactory.get(
+            wsRequest != null ? authenticator.getResponseType() : defaultType);
+    if (wsRequest == null && sessionType != null) {
+      sessionType.extractSessionData(null, authenticator);
+    } else if (sessionType != null) {
+      Response wsResponse =
+          callRequest(wsRequest, wsRequest.getWsUrl(), client, templates, ctx, null);
+      try {
         if (wsResponse.getStatus() == 401) {
           throw new IllegalStateException(I18n.get("Error in authorization"));
-        } else {
-          this.sessionType.extractSessionData(wsResponse, authenticator);
         }
+        sessionType.extractSessionData(wsResponse, authenticator);
+      } finally {
         wsResponse.close();
       }
     }
+    return sessionType;
   }
 
   @Override
@@ -133,14 +164,14 @@ public class WsConnectorServiceImpl implements WsConnectorService {
       ctx = new HashMap<>();
     }
 
-    Client client = ClientBuilder.newClient();
+    Client client = wsClientService.getClient(wsConnector);
 
     HashMap<String, Object> resultContext = new HashMap<>();
 
     ctx.putAll(createContext(wsConnector, authenticator));
 
     // verify authentication and extract cookies
-    authenticationVerify(authenticator, client, ctx);
+    SessionType sessionType = getSession(authenticator, client, ctx);
 
     String lastRepeatIf = null;
     int repeatRequestCount = 0;
@@ -159,8 +190,7 @@ public class WsConnectorServiceImpl implements WsConnectorService {
       try {
         ctx.put("_repeatIndex", repeatIndex);
 
-        if (lastRepeatIf != null
-            && !Boolean.parseBoolean(templates.fromText(lastRepeatIf).make(ctx).render())) {
+        if (lastRepeatIf != null && !Boolean.parseBoolean(render(templates, lastRepeatIf, ctx))) {
           lastRepeatIf =
               null; // here is a problem here , will skip the next request if the repeat  is false
           count++;
@@ -177,7 +207,7 @@ public class WsConnectorServiceImpl implements WsConnectorService {
 
         String callIf = wsRequest.getCallIf();
         if (callIf != null) {
-          callIf = templates.fromText(callIf).make(ctx).render();
+          callIf = render(templates, callIf, ctx);
           if (!Boolean.parseBoolean(callIf)) {
             count++;
             continue;
@@ -186,15 +216,32 @@ public class WsConnectorServiceImpl implements WsConnectorService {
 
         String url = wsConnector.getBaseUrl() + "/" + wsRequest.getWsUrl();
 
-        wsResponse = callRequest(wsRequest, url, client, templates, ctx);
+        wsResponse =
+            callRequest(wsConnector, authenticator, wsRequest, url, client, ctx, sessionType);
 
         if (wsResponse.getStatus() == 401) {
 
           if (authenticator != null && authenticator.getAuthTypeSelect().equals("oauth2")) {
-            wsAuthenticatorService.refereshToken(authenticator).close();
+            Response refreshResponse = wsAuthenticatorService.refereshToken(authenticator);
+            if (refreshResponse != null) {
+              refreshResponse.close();
+            }
             ctx.putAll(createContext(wsConnector, authenticator));
             wsResponse.close();
-            wsResponse = callRequest(wsRequest, url, client, templates, ctx);
+            wsResponse =
+                callRequest(wsConnector, authenticator, wsRequest, url, client, ctx, sessionType);
+          } else if (sessionType != null) {
+            // The session was rejected, log in again unless a concurrent call already did.
+            WsAuthenticator rejectedAuthenticator = authenticator;
+            Map<String, Object> loginCtx = ctx;
+            sessionType =
+                wsSessionCache.refresh(
+                    authenticator,
+                    sessionType,
+                    () -> openSession(rejectedAuthenticator, client, loginCtx));
+            wsResponse.close();
+            wsResponse =
+                callRequest(wsConnector, authenticator, wsRequest, url, client, ctx, sessionType);
           }
 
           if (wsResponse == null || wsResponse.getStatus() == 401) {
@@ -251,9 +298,26 @@ public class WsConnectorServiceImpl implements WsConnectorService {
 
         log.debug("Request{}: {} ", count, ctx.get("_" + count));
 
+        if (isPrefetched(wsConnector, wsRequest, count, lastRepeatIf)
+            && Boolean.parseBoolean(render(templates, repeatIf, ctx))) {
+          fetchPages(
+              wsConnector,
+              authenticator,
+              wsRequest,
+              url,
+              client,
+              ctx,
+              sessionType,
+              count,
+              res,
+              resultContext);
+          count++;
+          continue;
+        }
+
         if (lastRepeatIf != null
             && (!lastRepeatIf.equals(repeatIf))
-            && (Boolean.parseBoolean(templates.fromText(lastRepeatIf).make(ctx).render()))) {
+            && (Boolean.parseBoolean(render(templates, lastRepeatIf, ctx)))) {
           count = repeatRequestCount;
           repeatIndex++;
         }
@@ -265,7 +329,7 @@ public class WsConnectorServiceImpl implements WsConnectorService {
 
         if (count == (wsConnector.getWsRequestList().size() + 1)
             && lastRepeatIf != null
-            && (Boolean.parseBoolean(templates.fromText(lastRepeatIf).make(ctx).render()))) {
+            && (Boolean.parseBoolean(render(templates, lastRepeatIf, ctx)))) {
           count = repeatRequestCount;
           repeatIndex++;
         }
@@ -274,6 +338,11 @@ public class WsConnectorServiceImpl implements WsConnectorService {
           addAttachement(resultContext, wsRequest, wsResponse, wsConnector, e);
         }
         throw new IllegalArgumentException(e.getMessage());
+      } finally {
+        // Hands the connection back to the pool when the entity was not fully read.
+        if (wsResponse != null) {
+          wsResponse.close();
+        }
       }
     }
     // success
@@ -283,6 +352,145 @@ public class WsConnectorServiceImpl implements WsConnectorService {
     return ctx;
   }
 
+  /**
+   * Pages of the last request of a connector can be requested ahead when it repeats on its own: the
+   * next pages only depend on {@code _repeatIndex}, not on the content of the previous ones.
+   */
+  protected boolean isPrefetched(
+      WsConnector wsConnector, WsRequest wsRequest, int count, String lastRepeatIf) {
+    return lastRepeatIf == null
+        && wsRequest.getRepeatIf() != null
+        && wsRequest.getPrefetchPages() > 0
+        && count == wsConnector.getWsRequestList().size();
+  }
+
+  /**
+   * Fetches the pages following the first one, keeping up to {@code prefetchPages} requests in
+   * flight. Pages are handled in order and the repeat condition is checked after each of them, the
+   * requests already sent past the last page are dropped.
+   */
+  protected void fetchPages(
+      WsConnector wsConnector,
+      WsAuthenticator authenticator,
+      WsRequest wsRequest,
+      String url,
+      Client client,
+      Map<String, Object> ctx,
+      SessionType sessionType,
+      int count,
+      Map<String, Object> res,
+      Map<String, Object> resultContext)
+      throws Exception {
+
+    String key = "_" + count;
+    LinkScript pageLinkScript = wsRequest.getPageLinkScript();
+    int prefetchPages =
+        Math.min(
+            wsRequest.getPrefetchPages(),
+            Beans.get(AppSettingsStudioService.class).getWsClientMaxConnections());
+
+    List<Object> responseData = null;
+    if (pageLinkScript != null) {
+      runPageLinkScript(pageLinkScript, ctx, ctx.get(key));
+    } else {
+      responseData = new ArrayList<>();
+      responseData.add(ctx.get(key));
+    }
+
+    Deque<PendingPage> pending = new ArrayDeque<>();
+    int nextIndex = 1;
+    try {
+      for (int repeatIndex = 1; ; repeatIndex++) {
+        while (pending.size() < prefetchPages) {
+          // Only waits for the connector limits when no page is in flight, so that concurrent
+          // callers holding permits for their pages cannot block each other.
+          WsRequestLimiter.Permit permit =
+              pending.isEmpty()
+                  ? wsRequestLimiter.acquire(wsConnector, authenticator)
+                  : wsRequestLimiter.tryAcquire(wsConnector, authenticator);
+          if (permit == null) {
+            break;
+          }
+          Map<String, Object> pageCtx = new HashMap<>(ctx);
+          pageCtx.put("_repeatIndex", nextIndex++);
+          pending.add(
+              new PendingPage(
+                  prepareRequest(wsRequest, url, templates, pageCtx)
+                      .build(client, sessionType)
+                      .submit(),
+                  permit));
+        }
+
+        Object page;
+        try (PendingPage pendingPage = pending.poll();
+            Response wsResponse = pendingPage.response.get()) {
+          if (wsResponse.getStatus() == 401) {
+            throw new IllegalArgumentException(I18n.get("Error in authorization"));
+          }
+          page = readResponse(wsResponse);
+        }
+
+        ctx.put("_repeatIndex", repeatIndex);
+        if (pageLinkScript != null) {
+          runPageLinkScript(pageLinkScript, ctx, page);
+          ctx.put(key, page);
+          res.put("body", page);
+        } else {
+          responseData.add(page);
+          ctx.put(key, responseData);
+          res.put("body", responseData);
+        }
+        resultContext.put(key, res);
+
+        log.debug("Request{} page {}", count, repeatIndex);
+
+        if (!Boolean.parseBoolean(render(templates, wsRequest.getRepeatIf(), ctx))) {
+          break;
+        }
+      }
+    } finally {
+      for (PendingPage pendingPage : pending) {
+        try (pendingPage) {
+          pendingPage.response.get().close();
+        } catch (Exception e) {
+          log.debug(e.getMessage());
+        }
+      }
+    }
+  }
+
+  protected static class PendingPage implements AutoCloseable {
+    protected final Future<Response> response;
+    protected final WsRequestLimiter.Permit permit;
+
+    protected PendingPage(Future<Response> response, WsRequestLimiter.Permit permit) {
+      this.response = response;
+      this.permit = permit;
+    }
+
+    @Override
+    public void close() {
+      permit.close();
+    }
+  }
+
+  protected void runPageLinkScript(
+      LinkScript pageLinkScript, Map<String, Object> ctx, Object page) {
+    LinkedHashMap<String, Object> context = new LinkedHashMap<>(ctx);
+    context.put("_page", page);
+    Beans.get(LinkScriptService.class).run(pageLinkScript.getName(), context);
+  }
+
+  protected Object readResponse(Response wsResponse) throws IOException {
+    if (wsResponse.getMediaType() != null) {
+      MediaType mediaType = new MediaTypeFactory().get(wsResponse.getMediaType().getSubtype());
+      if (mediaType != null) {
+        return mediaType.parseResponse(wsResponse);
+      }
+    }
+    return wsResponse.readEntity(byte[].class);
+  }
+
   @Override
   public Response callRequest(
       WsRequest wsRequest,
@@ -290,8 +498,55 @@ public class WsConnectorServiceImpl implements WsConnectorService {
       Client client,
       Templates templates,
       Map<String, Object> ctx) {
+    return callRequest(wsRequest, url, client, templates, ctx, null);
+  }
+
+  @Override
+  public Response callRequest(
+      WsRequest wsRequest,
+      String url,
+      Client client,
+      Templates templates,
+      Map<String, Object> ctx,
+      SessionType sessionType) {
+    return prepareRequest(wsRequest, url, templates, ctx).build(client, sessionType).invoke();
+  }
 
-    url = templates.fromText(url).make(ctx).render();
+  /**
+   * Sends a request of a connector within the limits of the connector, GET responses being served
+   * from the response cache when the connector enables it.
+   */
+  protected Response callRequest(
+      WsConnector wsConnector,
+      WsAuthenticator authenticator,
+      WsRequest wsRequest,
+      String url,
+      Client client,
+      Map<String, Object> ctx,
+      SessionType sessionType) {
+
+    PreparedRequest request = prepareRequest(wsRequest, url, templates, ctx);
+
+    String cacheKey = null;
+    if (wsResponseCache.isCacheable(wsConnector, request.method)) {
+      cacheKey = wsResponseCache.getKey(wsConnector, authenticator, request.url, request.headers);
+      Response cached = wsResponseCache.get(cacheKey);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    try (WsRequestLimiter.Permit permit = wsRequestLimiter.acquire(wsConnector, authenticator)) {
+      Response response = request.build(client, sessionType).invoke();
+      return cacheKey != null ? wsResponseCache.put(cacheKey, wsConnector, response) : response;
+    }
+  }
+
+  /** Renders the request against the context, so that it can be sent from another thread. */
+  protected PreparedRequest prepareRequest(
+      WsRequest wsRequest, String url, Templates templates, Map<String, Object> ctx) {
+
+    url = render(templates, url, ctx);
     url = UrlEscapers.urlFragmentEscaper().escape(url);
 
     MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
@@ -303,14 +558,13 @@ public class WsConnectorServiceImpl implements WsConnectorService {
                   && !wsKeyValue.getSubWsKeyValueList().isEmpty()) {
                 Map<String, Object> subHeaders = new HashMap<>();
                 for (WsKeyValueSelectionHeader key : wsKeyValue.getSubWsKeyValueList()) {
-                  subHeaders.put(
-                      key.getWsKey(), templates.fromText(key.getWsValue()).make(ctx).render());
+                  subHeaders.put(key.getWsKey(), render(templates, key.getWsValue(), ctx));
                 }
                 headers.add(wsKeyValue.getWsKey(), subHeaders);
               } else {
                 String value = wsKeyValue.getWsValue();
                 if (!Strings.isNullOrEmpty(value)) {
-                  value = templates.fromText(wsKeyValue.getWsValue()).make(ctx).render();
+                  value = render(templates, wsKeyValue.getWsValue(), ctx);
                   if (!StringUtils.isBlank(value)
                       && value.startsWith("Basic ")
                       && wsKeyValue.getWsKey().equals("Authorization")) {
@@ -342,15 +596,10 @@ public class WsConnectorServiceImpl implements WsConnectorService {
                   wsKeyValue.getWsKey(),
                   new String(
                       Base64.encodeBase64(
-                          templates
-                              .fromText(wsKeyValue.getWsValue())
-                              .make(ctx)
-                              .render()
-                              .getBytes())));
+                          render(templates, wsKeyValue.getWsValue(), ctx).getBytes())));
             } else {
               uriBuilder.addParameter(
-                  wsKeyValue.getWsKey(),
-                  templates.fromText(wsKeyValue.getWsValue()).make(ctx).render());
+                  wsKeyValue.getWsKey(), render(templates, wsKeyValue.getWsValue(), ctx));
             }
           }
         }
@@ -365,12 +614,37 @@ public class WsConnectorServiceImpl implements WsConnectorService {
 
     log.debug("URL: {}", url);
 
-    Builder request = client.target(url).request().headers(headers);
-    if (this.sessionType != null) {
-      this.sessionType.injectSessionData(request);
+    return new PreparedRequest(requestType, url, headers, entity);
+  }
+
+  protected static class PreparedRequest {
+    protected final String method;
+    protected final String url;
+    protected final MultivaluedMap<String, Object> headers;
+    protected final Entity<?> entity;
+
+    protected PreparedRequest(
+        String method, String url, MultivaluedMap<String, Object> headers, Entity<?> entity) {
+      this.method = method;
+      this.url = url;
+      this.headers = headers;
+      this.entity = entity;
     }
 
-    return request.method(wsRequest.getRequestTypeSelect(), entity);
+    protected Invocation build(Client client, SessionType sessionType) {
+      Builder request = client.target(url).request().headers(headers);
+      if (sessionType != null) {
+        sessionType.injectSessionData(request);
+      }
+      return request.build(method, entity);
+    }
+  }
+
+  protected String render(Templates templates, String text, Map<String, Object> ctx) {
+    if (templates instanceof GroovyTemplates) {
+      return groovyTemplateService.render(text, ctx);
+    }
+    return templates.fromText(text).make(ctx).render();
   }
 
   @Override
@@ -431,7 +705,7 @@ public class WsConnectorServiceImpl implements WsConnectorService {
     if (key.equals("eval")) {
       obj = ctx.get(value);
     } else {
-      text = templates.fromText(value).make(ctx).render();
+      text = render(templates, value, ctx);
     }
 
     switch (payLoadType) {
@@ -632,7 +906,7 @@ public class WsConnectorServiceImpl implements WsConnectorService {
             subPayLoad.add(createPayload(templates, ctx, subKeyValue));
           } else if (subKeyValue.getWsKey() == null) {
 
-            Object jsonSubVal = templates.fromText(subKeyValue.getWsValue()).make(ctx).render();
+            Object jsonSubVal = render(templates, subKeyValue.getWsValue(), ctx);
 
             if (jsonSubVal != null && jsonSubVal.equals("null")) {
               jsonSubVal = null;
@@ -661,7 +935,7 @@ public class WsConnectorServiceImpl implements WsConnectorService {
         jsonVal = subPayLoad;
       }
     } else {
-      jsonVal = templates.fromText(wsKeyValue.getWsValue()).make(ctx).render();
+      jsonVal = render(templates, wsKeyValue.getWsValue(), ctx);
 
       if (jsonVal != null && jsonVal.equals("null")) {
         jsonVal = null;
@@ -685,8 +959,7 @@ public class WsConnectorServiceImpl implements WsConnectorService {
 
     MultivaluedHashMap<String, String> payLoads = new MultivaluedHashMap<>();
     for (WsKeyValue wsKeyValue : wsRequest.getPayLoadWsKeyValueList()) {
-      payLoads.add(
-          wsKeyValue.getWsKey(), templates.fromText(wsKeyValue.getWsValue()).make(ctx).render());
+      payLoads.add(wsKeyValue.getWsKey(), render(templates, wsKeyValue.getWsValue(), ctx));
     }
 
     return Entity.form(payLoads);
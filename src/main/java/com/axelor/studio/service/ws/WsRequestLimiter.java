@@ -0,0 +1,148 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.service.ws;
+
+import com.axelor.i18n.I18n;
+import com.axelor.studio.baml.tools.BpmTools;
+import com.axelor.studio.db.WsAuthenticator;
+import com.axelor.studio.db.WsConnector;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.inject.Singleton;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limits the requests sent by a connector with a given authenticator: at most {@code
+ * maxConcurrentRequests} requests in flight and {@code requestsPerSecond} requests started per
+ * second. Callers wait up to {@code queueTimeout} seconds for their turn.
+ */
+@Singleton
+public class WsRequestLimiter {
+
+  protected static final Permit NO_PERMIT = () -> {};
+
+  protected final Map<String, Limits> limits = new ConcurrentHashMap<>();
+
+  public Permit acquire(WsConnector wsConnector, WsAuthenticator authenticator) {
+    Limits connectorLimits = getLimits(wsConnector, authenticator);
+    if (connectorLimits == null) {
+      return NO_PERMIT;
+    }
+    Permit permit = connectorLimits.acquire(TimeUnit.SECONDS.toNanos(connectorLimits.timeout));
+    if (permit == null) {
+      throw new IllegalStateException(
+          String.format(
+              I18n.get("Too many pending requests for connector: %s"), wsConnector.getName()));
+    }
+    return permit;
+  }
+
+  /** Same as {@link #acquire} without waiting, returns {@code null} when the limits are reached. */
+  public Permit tryAcquire(WsConnector wsConnector, WsAuthenticator authenticator) {
+    Limits connectorLimits = getLimits(wsConnector, authenticator);
+    return connectorLimits == null ? NO_PERMIT : connectorLimits.acquire(0);
+  }
+
+  protected Limits getLimits(WsConnector wsConnector, WsAuthenticator authenticator) {
+    if (wsConnector.getId() == null
+        || (wsConnector.getMaxConcurrentRequests() <= 0
+            && wsConnector.getRequestsPerSecond().signum() <= 0)) {
+      return null;
+    }
+    return limits.compute(
+        getKey(wsConnector, authenticator),
+        (key, current) ->
+            current != null && Objects.equals(current.version, wsConnector.getVersion())
+                ? current
+                : new Limits(wsConnector));
+  }
+
+  public void invalidate(WsConnector wsConnector) {
+    String prefix = BpmTools.getCurentTenant() + ":" + wsConnector.getId() + ":";
+    limits.keySet().removeIf(key -> key.startsWith(prefix));
+  }
+
+  protected String getKey(WsConnector wsConnector, WsAuthenticator authenticator) {
+    return BpmTools.getCurentTenant()
+        + ":"
+        + wsConnector.getId()
+        + ":"
+        + (authenticator != null ? authenticator.getId() : null);
+  }
+
+  @FunctionalInterface
+  public interface Permit extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  protected static class Limits {
+    protected final Integer version;
+    protected final Semaphore semaphore;
+    protected final RateLimiter rateLimiter;
+    protected final long timeout;
+
+    protected Limits(WsConnector wsConnector) {
+      this.version = wsConnector.getVersion();
+      this.semaphore =
+          wsConnector.getMaxConcurrentRequests() > 0
+              ? new Semaphore(wsConnector.getMaxConcurrentRequests(), true)
+              : null;
+      BigDecimal requestsPerSecond = wsConnector.getRequestsPerSecond();
+      this.rateLimiter =
+          requestsPerSecond.signum() > 0
+              ? RateLimiter.create(requestsPerSecond.doubleValue())
+              : null;
+      this.timeout = Math.max(wsConnector.getQueueTimeout(), 0);
+    }
+
+    protected Permit acquire(long timeoutNanos) {
+      long deadline = System.nanoTime() + timeoutNanos;
+      try {
+        if (semaphore != null && !semaphore.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+          return null;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+      long remaining = Math.max(deadline - System.nanoTime(), 0);
+      if (rateLimiter != null && !rateLimiter.tryAcquire(remaining, TimeUnit.NANOSECONDS)) {
+        release();
+        return null;
+      }
+      AtomicBoolean released = new AtomicBoolean();
+      return () -> {
+        if (released.compareAndSet(false, true)) {
+          release();
+        }
+      };
+    }
+
+    protected void release() {
+      if (semaphore != null) {
+        semaphore.release();
+      }
+    }
+  }
+}
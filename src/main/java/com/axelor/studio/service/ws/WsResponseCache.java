@@ -0,0 +1,163 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.service.ws;
+
+import com.axelor.studio.baml.tools.BpmTools;
+import com.axelor.studio.db.WsAuthenticator;
+import com.axelor.studio.db.WsConnector;
+import com.axelor.studio.service.AppSettingsStudioService;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+/**
+ * Successful GET responses of the connectors having a cache duration, by rendered URL, headers and
+ * authenticator. The least recently used responses are evicted above {@code
+ * studio.ws.response.cache.size} entries.
+ */
+@Singleton
+public class WsResponseCache {
+
+  protected final AppSettingsStudioService appSettingsStudioService;
+  protected final Cache<String, Entry> cache;
+  protected final AtomicLong hits = new AtomicLong();
+  protected final AtomicLong misses = new AtomicLong();
+
+  @Inject
+  public WsResponseCache(AppSettingsStudioService appSettingsStudioService) {
+    this.appSettingsStudioService = appSettingsStudioService;
+    this.cache =
+        CacheBuilder.newBuilder()
+            .maximumSize(appSettingsStudioService.getWsResponseCacheSize())
+            .build();
+  }
+
+  public boolean isCacheable(WsConnector wsConnector, String method) {
+    return "GET".equals(method) && wsConnector.getCacheDuration() > 0;
+  }
+
+  public String getKey(
+      WsConnector wsConnector,
+      WsAuthenticator authenticator,
+      String url,
+      MultivaluedMap<String, Object> headers) {
+    return BpmTools.getCurentTenant()
+        + ":"
+        + wsConnector.getId()
+        + ":"
+        + wsConnector.getVersion()
+        + ":"
+        + (authenticator != null ? authenticator.getId() : null)
+        + ":"
+        + url
+        + ":"
+        + new TreeMap<>(headers);
+  }
+
+  /** Copy of the cached response, {@code null} when missing or expired. */
+  public Response get(String key) {
+    Entry entry = cache.getIfPresent(key);
+    if (entry == null || entry.expiry < System.currentTimeMillis()) {
+      if (entry != null) {
+        cache.asMap().remove(key, entry);
+      }
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return new WsCachedResponse(entry.status, entry.headers, entry.body);
+  }
+
+  /**
+   * Caches the given response when successful and not larger than the spill threshold of the
+   * responses. The returned response replaces the given one, whose entity has been read up to the
+   * threshold, even when its length is unknown.
+   */
+  public Response put(String key, WsConnector wsConnector, Response response) {
+    long maxSize = appSettingsStudioService.getWsResponseSpillThreshold();
+    if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL
+        || (maxSize > 0 && response.getLength() > maxSize)) {
+      return response;
+    }
+
+    MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+    response.getStringHeaders().forEach((name, values) -> headers.addAll(name, values.toArray()));
+    byte[] body = new byte[0];
+    try {
+      if (response.hasEntity()) {
+        InputStream stream = response.readEntity(InputStream.class);
+        int limit =
+            maxSize > 0 ? (int) Math.min(maxSize + 1, Integer.MAX_VALUE) : Integer.MAX_VALUE;
+        body = stream.readNBytes(limit);
+        if (maxSize > 0 && body.length > maxSize) {
+          return new WsCachedResponse(response.getStatus(), headers, body, stream, response);
+        }
+      }
+      response.close();
+    } catch (IOException e) {
+      response.close();
+      throw new ProcessingException(e);
+    } catch (RuntimeException e) {
+      response.close();
+      throw e;
+    }
+
+    Entry entry =
+        new Entry(
+            response.getStatus(),
+            headers,
+            body,
+            System.currentTimeMillis() + wsConnector.getCacheDuration() * 1000L);
+    cache.put(key, entry);
+    return new WsCachedResponse(entry.status, entry.headers, entry.body);
+  }
+
+  /** Drops the responses of the given connector, whatever its version. */
+  public void invalidate(WsConnector wsConnector) {
+    String prefix = BpmTools.getCurentTenant() + ":" + wsConnector.getId() + ":";
+    cache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+  }
+
+  public Map<String, Long> getStats() {
+    return Map.of("hits", hits.get(), "misses", misses.get(), "size", cache.size());
+  }
+
+  protected static class Entry {
+    protected final int status;
+    protected final MultivaluedMap<String, Object> headers;
+    protected final byte[] body;
+    protected final long expiry;
+
+    protected Entry(int status, MultivaluedMap<String, Object> headers, byte[] body, long expiry) {
+      this.status = status;
+      this.headers = headers;
+      this.body = body;
+      this.expiry = expiry;
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.service.ws;
+
+import com.axelor.inject.Beans;
+import com.axelor.studio.service.AppSettingsStudioService;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import javax.ws.rs.core.Response;
+
+/**
+ * Reads web service responses as streams: the body is decoded according to its content encoding,
+ * large bodies are spilled to a temporary file and JSON is parsed straight from the stream.
+ */
+public class WsResponseStreams {
+
+  protected static final JsonMapper JSON_MAPPER = new JsonMapper();
+
+  protected static final int BUFFER_SIZE = 8192;
+
+  private WsResponseStreams() {}
+
+  /** Response body, decoded and spilled to a temporary file when above the configured size. */
+  public static Body open(Response response) throws IOException {
+    InputStream inputStream = decode(response, response.readEntity(InputStream.class));
+    long threshold = Beans.get(AppSettingsStudioService.class).getWsResponseSpillThreshold();
+    if (threshold <= 0) {
+      return new Body(new BufferedInputStream(inputStream, BUFFER_SIZE), false);
+    }
+
+    byte[] head = inputStream.readNBytes((int) Math.min(threshold, Integer.MAX_VALUE - 8));
+    if (head.length < threshold) {
+      inputStream.close();
+      return new Body(new BufferedInputStream(new ByteArrayInputStream(head)), false);
+    }
+
+    Path file = Files.createTempFile("ws-response-", ".tmp");
+    try (InputStream source = new SequenceInputStream(new ByteArrayInputStream(head), inputStream);
+        OutputStream target = Files.newOutputStream(file)) {
+      source.transferTo(target);
+    } catch (IOException e) {
+      Files.deleteIfExists(file);
+      throw e;
+    }
+    return new Body(
+        new BufferedInputStream(
+            Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE), BUFFER_SIZE),
+        true);
+  }
+
+  protected static InputStream decode(Response response, InputStream inputStream)
+      throws IOException {
+    String encoding = response.getHeaderString("Content-Encoding");
+    if ("gzip".equalsIgnoreCase(encoding) || "x-gzip".equalsIgnoreCase(encoding)) {
+      return new GZIPInputStream(inputStream, BUFFER_SIZE);
+    }
+    if ("deflate".equalsIgnoreCase(encoding)) {
+      return new InflaterInputStream(inputStream);
+    }
+    return inputStream;
+  }
+
+  /** Parses a JSON body, the temporary file of a spilled body is removed once parsed. */
+  public static Object readJson(Response response) throws IOException {
+    try (BufferedInputStream inputStream = open(response).inputStream) {
+      return JSON_MAPPER.readValue(inputStream, getJsonType(peek(inputStream)));
+    }
+  }
+
+  /** Decoded body as text, in the charset of the response or UTF-8. */
+  public static String readText(Response response) throws IOException {
+    try (InputStream inputStream = open(response).inputStream) {
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      inputStream.transferTo(outputStream);
+      return outputStream.toString(getCharset(response));
+    }
+  }
+
+  protected static Charset getCharset(Response response) {
+    String charset =
+        response.getMediaType() != null
+            ? response.getMediaType().getParameters().get("charset")
+            : null;
+    try {
+      return charset != null ? Charset.forName(charset) : StandardCharsets.UTF_8;
+    } catch (IllegalArgumentException e) {
+      return StandardCharsets.UTF_8;
+    }
+  }
+
+  /** First significant byte of the stream, without consuming it. */
+  protected static int peek(BufferedInputStream inputStream) throws IOException {
+    inputStream.mark(BUFFER_SIZE);
+    try {
+      int read;
+      int skipped = 0;
+      while ((read = inputStream.read()) != -1 && skipped++ < BUFFER_SIZE - 1) {
+        // Skips whitespaces and the UTF-8 byte order mark.
+        if (!Character.isWhitespace(read) && read != 0xEF && read != 0xBB && read != 0xBF) {
+          return read;
+        }
+      }
+      return -1;
+    } finally {
+      inputStream.reset();
+    }
+  }
+
+  protected static Class<?> getJsonType(int first) {
+    if (first == '[') {
+      return List.class;
+    } else if (first == '{') {
+      return Map.class;
+    }
+    return Object.class;
+  }
+
+  public static class Body {
+    protected final BufferedInputStream inputStream;
+    protected final boolean spilled;
+
+    protected Body(BufferedInputStream inputStream, boolean spilled) {
+      this.inputStream = inputStream;
+      this.spilled = spilled;
+    }
+
+    public InputStream getInputStream() {
+      return inputStream;
+    }
+
+    public boolean isSpilled() {
+      return spilled;
+    }
+  }
+}
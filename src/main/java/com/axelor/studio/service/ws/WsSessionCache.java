@@ -0,0 +1,108 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.service.ws;
+
+import com.axelor.studio.baml.tools.BpmTools;
+import com.axelor.studio.db.WsAuthenticator;
+import com.axelor.studio.service.AppSettingsStudioService;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Live sessions by authenticator, shared by the connector calls. A session is only opened again
+ * once it expires or gets rejected, and a single caller logs in while the others wait for it.
+ */
+@Singleton
+public class WsSessionCache {
+
+  protected final AppSettingsStudioService appSettingsStudioService;
+  protected final Map<String, Entry> sessions = new ConcurrentHashMap<>();
+
+  @Inject
+  public WsSessionCache(AppSettingsStudioService appSettingsStudioService) {
+    this.appSettingsStudioService = appSettingsStudioService;
+  }
+
+  public SessionType get(WsAuthenticator authenticator, Supplier<SessionType> login) {
+    return refresh(authenticator, null, login);
+  }
+
+  /** Opens a new session unless another caller already replaced the given rejected one. */
+  public SessionType refresh(
+      WsAuthenticator authenticator, SessionType rejected, Supplier<SessionType> login) {
+    if (authenticator.getId() == null) {
+      return login.get();
+    }
+    Entry entry =
+        sessions.compute(
+            getKey(authenticator),
+            (key, current) ->
+                current != null && Objects.equals(current.version, authenticator.getVersion())
+                    ? current
+                    : new Entry(authenticator.getVersion()));
+    return entry.get(rejected, login);
+  }
+
+  public void invalidate(WsAuthenticator authenticator) {
+    sessions.remove(getKey(authenticator));
+  }
+
+  protected String getKey(WsAuthenticator authenticator) {
+    return BpmTools.getCurentTenant() + ":" + authenticator.getId();
+  }
+
+  protected class Entry {
+    protected final Integer version;
+    protected volatile SessionType session;
+    protected volatile Instant expiry;
+
+    protected Entry(Integer version) {
+      this.version = version;
+    }
+
+    protected SessionType get(SessionType rejected, Supplier<SessionType> login) {
+      SessionType current = session;
+      if (isLive(current, rejected)) {
+        return current;
+      }
+      synchronized (this) {
+        current = session;
+        if (isLive(current, rejected)) {
+          return current;
+        }
+        current = login.get();
+        Instant maxExpiry =
+            Instant.now().plusSeconds(appSettingsStudioService.getWsSessionMaxAge());
+        Instant sessionExpiry = current != null ? current.getExpiry() : null;
+        expiry =
+            sessionExpiry != null && sessionExpiry.isBefore(maxExpiry) ? sessionExpiry : maxExpiry;
+        session = current;
+        return current;
+      }
+    }
+
+    protected boolean isLive(SessionType current, SessionType rejected) {
+      return current != null && current != rejected && Instant.now().isBefore(expiry);
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.web;
+
+import com.axelor.auth.AuthUtils;
+import com.axelor.inject.Beans;
+import com.axelor.studio.bpm.service.execution.WkfDispatchService;
+import com.axelor.studio.service.ws.WsClientService;
+import com.axelor.studio.service.ws.WsResponseCache;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/** Exposes the runtime metrics of the studio worker pools to administrators. */
+@Path("/studio/metrics")
+@Produces(MediaType.APPLICATION_JSON)
+public class StudioMetricsResource {
+
+  @GET
+  @Path("/bpm-dispatch")
+  public Response bpmDispatch() {
+    if (!AuthUtils.isAdmin(AuthUtils.getUser())) {
+      return Response.status(Response.Status.FORBIDDEN).build();
+    }
+    return Response.ok(Beans.get(WkfDispatchService.class).getMetrics()).build();
+  }
+
+  @GET
+  @Path("/ws-client")
+  public Response wsClient() {
+    if (!AuthUtils.isAdmin(AuthUtils.getUser())) {
+      return Response.status(Response.Status.FORBIDDEN).build();
+    }
+    return Response.ok(Beans.get(WsClientService.class).getMetrics()).build();
+  }
+
+  @GET
+  @Path("/ws-response-cache")
+  public Response wsResponseCache() {
+    if (!AuthUtils.isAdmin(AuthUtils.getUser())) {
+      return Response.status(Response.Status.FORBIDDEN).build();
+    }
+    return Response.ok(Beans.get(WsResponseCache.class).getStats()).build();
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.web;
+
+import com.axelor.db.JpaSecurity;
+import com.axelor.inject.Beans;
+import com.axelor.meta.MetaFiles;
+import com.axelor.studio.bpm.service.log.WkfLogService;
+import com.axelor.studio.db.WkfInstance;
+import com.axelor.studio.db.repo.WkfInstanceRepository;
+import com.axelor.studio.service.AppSettingsStudioService;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Streams the log of a process instance: the lines logged between {@code from} and {@code to} (ISO
+ * local date times), the ones of the last {@code minutes}, or else a {@code page} of its end.
+ */
+@Path("/bpm/instance-log")
+public class WkfInstanceLogResource {
+
+  @GET
+  @Path("/{id}")
+  @Produces(MediaType.TEXT_PLAIN)
+  public Response read(
+      @PathParam("id") Long id,
+      @QueryParam("from") String from,
+      @QueryParam("to") String to,
+      @QueryParam("minutes") String minutes,
+      @QueryParam("page") String page) {
+
+    LocalDateTime start;
+    LocalDateTime end;
+    Integer minuteCount;
+    Integer pageNumber;
+    try {
+      start = from != null ? LocalDateTime.parse(from) : null;
+      end = to != null ? LocalDateTime.parse(to) : null;
+      minuteCount = minutes != null ? Integer.valueOf(minutes) : null;
+      pageNumber = page != null ? Integer.valueOf(page) : 0;
+    } catch (DateTimeParseException | NumberFormatException e) {
+      return Response.status(Response.Status.BAD_REQUEST).build();
+    }
+    if ((start == null) != (end == null)
+        || (start != null && start.isAfter(end))
+        || (minuteCount != null && minuteCount < 0)
+        || pageNumber < 0) {
+      return Response.status(Response.Status.BAD_REQUEST).build();
+    }
+
+    if (!Beans.get(JpaSecurity.class).isPermitted(JpaSecurity.CAN_READ, WkfInstance.class, id)) {
+      return Response.status(Response.Status.FORBIDDEN).build();
+    }
+
+    WkfInstance instance = Beans.get(WkfInstanceRepository.class).find(id);
+    if (instance == null || instance.getLogFile() == null) {
+      return Response.status(Response.Status.NOT_FOUND).build();
+    }
+    java.nio.file.Path logFile = MetaFiles.getPath(instance.getLogFile());
+    if (!Files.exists(logFile)) {
+      return Response.status(Response.Status.NOT_FOUND).build();
+    }
+
+    WkfLogService wkfLogService = Beans.get(WkfLogService.class);
+    StreamingOutput output;
+    if (start != null) {
+      output = outputStream -> wkfLogService.copyLog(logFile, start, end, outputStream);
+    } else if (minuteCount != null) {
+      LocalDateTime now = LocalDateTime.now();
+      output =
+          outputStream ->
+              wkfLogService.copyLog(logFile, now.minusMinutes(minuteCount), now, outputStream);
+    } else {
+      long pageSize = Beans.get(AppSettingsStudioService.class).getBpmLogViewMaxSize();
+      output =
+          outputStream -> wkfLogService.copyLogTail(logFile, pageSize, pageNumber, outputStream);
+    }
+
+    return Response.ok(output).build();
+  }
+}
@@ -0,0 +1,249 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.bpm.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.axelor.db.JPA;
+import com.axelor.db.Model;
+import com.axelor.studio.bpm.service.execution.WkfDispatchService;
+import com.axelor.studio.bpm.service.execution.WkfDispatchServiceImpl;
+import com.axelor.studio.db.WkfInstanceNode;
+import com.axelor.studio.service.AppSettingsStudioServiceImpl;
+import com.axelor.studio.test.TestModule;
+import com.axelor.test.GuiceExtension;
+import com.axelor.test.GuiceModules;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(GuiceExtension.class)
+@GuiceModules(TestModule.class)
+class TestWkfDispatchService {
+
+  protected TestDispatchService service;
+
+  @AfterEach
+  void tearDown() {
+    if (service != null) {
+      service.shutdownNow();
+    }
+  }
+
+  @Test
+  void testSyncDispatchWaitsForWorker() {
+    service = new TestDispatchService(WkfDispatchService.MODE_SYNC, 1, 10, 50);
+
+    service.dispatch(newModel(1L));
+
+    assertEquals(1, service.threads.size());
+    assertTrue(service.threads.get(0).startsWith("wkf-dispatch-"));
+    assertEquals(1L, service.getMetrics().get("completed"));
+  }
+
+  @Test
+  void testSyncNestedWriteIsEvaluatedInline() {
+    service = new TestDispatchService(WkfDispatchService.MODE_SYNC, 1, 10, 50);
+    // The first evaluation writes another record, as a workflow script would.
+    service.onEvaluate = models -> {
+      service.onEvaluate = nested -> {};
+      service.dispatch(newModel(2L));
+    };
+
+    service.dispatch(newModel(1L));
+
+    assertEquals(2, service.threads.size());
+    assertEquals(service.threads.get(0), service.threads.get(1));
+    assertEquals(2L, service.getMetrics().get("completed"));
+  }
+
+  @Test
+  void testAsyncWritesAreCoalescedAndBatched() throws InterruptedException {
+    service = new TestDispatchService(WkfDispatchService.MODE_ASYNC, 2, 10, 2);
+    service.batches = new CountDownLatch(2);
+
+    JPA.runInTransaction(
+        () -> {
+          service.dispatch(newModel(1L));
+          service.dispatch(newModel(2L));
+          service.dispatch(newModel(1L));
+          service.dispatch(newModel(3L));
+          // Nothing is evaluated before commit.
+          assertTrue(service.batchSizes.isEmpty());
+        });
+
+    assertTrue(service.batches.await(10, TimeUnit.SECONDS));
+    assertEquals(3, service.batchSizes.stream().mapToInt(Integer::intValue).sum());
+    assertTrue(service.batchSizes.stream().allMatch(size -> size <= 2));
+    assertEquals(1L, service.getMetrics().get("coalesced"));
+  }
+
+  @Test
+  void testAsyncWritesAreDroppedOnRollback() {
+    service = new TestDispatchService(WkfDispatchService.MODE_ASYNC, 1, 10, 50);
+
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            JPA.runInTransaction(
+                () -> {
+                  service.dispatch(newModel(1L));
+                  throw new IllegalStateException();
+                }));
+
+    assertTrue(service.batchSizes.isEmpty());
+    assertEquals(0L, service.getMetrics().get("submitted"));
+  }
+
+  @Test
+  void testQueueFullBlocksCaller() throws Exception {
+    service = new TestDispatchService(WkfDispatchService.MODE_SYNC, 1, 1, 50);
+    CountDownLatch release = new CountDownLatch(1);
+    service.execute(() -> await(release));
+    service.execute(() -> {});
+
+    CompletableFuture<Void> caller =
+        CompletableFuture.runAsync(() -> service.execute(() -> {}));
+    Thread.sleep(200);
+    assertFalse(caller.isDone());
+
+    release.countDown();
+    caller.get(10, TimeUnit.SECONDS);
+    assertEquals(0L, service.getMetrics().get("overflow"));
+  }
+
+  @Test
+  void testQueueFullOnWorkerRunsAside() throws Exception {
+    service = new TestDispatchService(WkfDispatchService.MODE_SYNC, 1, 1, 50);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch ranAside = new CountDownLatch(1);
+    service.execute(() -> await(release));
+    service.execute(() -> {});
+
+    service.onWorker(() -> service.execute(ranAside::countDown));
+
+    assertTrue(ranAside.await(10, TimeUnit.SECONDS));
+    assertEquals(1L, service.getMetrics().get("overflow"));
+    release.countDown();
+  }
+
+  @Test
+  void testShutdownRejects() {
+    service = new TestDispatchService(WkfDispatchService.MODE_SYNC, 1, 1, 50);
+    service.shutdown();
+
+    assertThrows(RejectedExecutionException.class, () -> service.execute(() -> {}));
+  }
+
+  protected Model newModel(Long id) {
+    WkfInstanceNode model = new WkfInstanceNode();
+    model.setId(id);
+    return model;
+  }
+
+  protected void await(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  protected static class TestDispatchService extends WkfDispatchServiceImpl {
+
+    protected final List<String> threads = new CopyOnWriteArrayList<>();
+    protected final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    protected volatile Consumer<Set<Model>> onEvaluate = models -> {};
+    protected volatile CountDownLatch batches = new CountDownLatch(0);
+
+    protected TestDispatchService(String mode, int poolSize, int queueCapacity, int batchSize) {
+      super(
+          new AppSettingsStudioServiceImpl() {
+            @Override
+            public String getWkfDispatchMode() {
+              return mode;
+            }
+
+            @Override
+            public int getWkfDispatchPoolSize() {
+              return poolSize;
+            }
+
+            @Override
+            public int getWkfDispatchQueueCapacity() {
+              return queueCapacity;
+            }
+
+            @Override
+            public int getWkfDispatchBatchSize() {
+              return batchSize;
+            }
+          });
+    }
+
+    protected void execute(Runnable task) {
+      executor.execute(task);
+    }
+
+    protected void shutdown() {
+      executor.shutdown();
+    }
+
+    protected void shutdownNow() {
+      executor.shutdownNow();
+    }
+
+    protected void onWorker(Runnable task) {
+      WORKER_THREAD.set(true);
+      try {
+        task.run();
+      } finally {
+        WORKER_THREAD.remove();
+      }
+    }
+
+    @Override
+    protected boolean isWkfModel(Model model, String tenantId) {
+      return true;
+    }
+
+    @Override
+    protected Set<Model> findModels(List<EntityRef> refs) {
+      batchSizes.add(refs.size());
+      batches.countDown();
+      return Set.of();
+    }
+
+    @Override
+    protected void callWkfProcess(Set<Model> updated) {
+      threads.add(Thread.currentThread().getName());
+      onEvaluate.accept(updated);
+    }
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.bpm.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.axelor.db.JPA;
+import com.axelor.meta.db.repo.MetaModelRepository;
+import com.axelor.studio.bpm.service.execution.WkfInstanceNodeServiceImpl;
+import com.axelor.studio.db.WkfInstanceNode;
+import com.axelor.studio.db.repo.WkfInstanceNodeRepository;
+import com.axelor.studio.test.TestModule;
+import com.axelor.test.GuiceExtension;
+import com.axelor.test.GuiceModules;
+import com.google.inject.Inject;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.camunda.bpm.engine.impl.cfg.TransactionContext;
+import org.camunda.bpm.engine.impl.cfg.TransactionListener;
+import org.camunda.bpm.engine.impl.cfg.TransactionState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(GuiceExtension.class)
+@GuiceModules(TestModule.class)
+class TestWkfInstanceNodeService {
+
+  protected static final String PROCESS_ID = "Process_1:1:1";
+
+  @Inject protected WkfInstanceNodeRepository wkfInstanceNodeRepo;
+  @Inject protected MetaModelRepository metaModelRepo;
+
+  protected TestInstanceNodeService service;
+
+  /** Every node has a menu, the process engine is not needed. */
+  protected static class TestInstanceNodeService extends WkfInstanceNodeServiceImpl {
+    protected TransactionContext transactionContext;
+
+    protected TestInstanceNodeService(
+        WkfInstanceNodeRepository wkfInstanceNodeRepo, MetaModelRepository metaModelRepo) {
+      super(wkfInstanceNodeRepo, null, metaModelRepo);
+    }
+
+    @Override
+    protected boolean isMenuNode(String processId, String node) {
+      return true;
+    }
+
+    @Override
+    protected TransactionContext getTransactionContext() {
+      return transactionContext;
+    }
+
+    protected void await() throws Exception {
+      executor.submit(() -> {}).get();
+    }
+  }
+
+  /** Engine transaction only calling its listeners. */
+  protected static class TestTransactionContext implements TransactionContext {
+    protected final Map<TransactionState, List<TransactionListener>> listeners =
+        new EnumMap<>(TransactionState.class);
+
+    @Override
+    public void commit() {
+      fire(TransactionState.COMMITTED);
+    }
+
+    @Override
+    public void rollback() {
+      fire(TransactionState.ROLLED_BACK);
+    }
+
+    @Override
+    public void addTransactionListener(
+        TransactionState transactionState, TransactionListener transactionListener) {
+      listeners
+          .computeIfAbsent(transactionState, state -> new ArrayList<>())
+          .add(transactionListener);
+    }
+
+    @Override
+    public boolean isTransactionActive() {
+      return true;
+    }
+
+    protected void fire(TransactionState state) {
+      listeners.getOrDefault(state, List.of()).forEach(listener -> listener.execute(null));
+    }
+  }
+
+  @BeforeEach
+  void setUp() {
+    service = new TestInstanceNodeService(wkfInstanceNodeRepo, metaModelRepo);
+    JPA.runInTransaction(
+        () -> JPA.em().createQuery("DELETE FROM WkfInstanceNode self").executeUpdate());
+  }
+
+  @Test
+  void testNodeStartedAndEndedInOneTransaction() throws Exception {
+    TestTransactionContext transaction = begin();
+    service.onNodeStart("instance1", PROCESS_ID, "EndEvent_1");
+    service.onNodeEnd("instance1", PROCESS_ID, "EndEvent_1");
+    service.onProcessEnd("instance1", PROCESS_ID);
+    commit(transaction);
+
+    WkfInstanceNode instanceNode = findOne("instance1", "EndEvent_1");
+    assertEquals(0, instanceNode.getActiveCount());
+    assertEquals(true, instanceNode.getFinished());
+  }
+
+  @Test
+  void testParallelExecutionsInOneTransaction() throws Exception {
+    TestTransactionContext transaction = begin();
+    service.onNodeStart("instance2", PROCESS_ID, "UserTask_1");
+    service.onNodeStart("instance2", PROCESS_ID, "UserTask_1");
+    service.onNodeEnd("instance2", PROCESS_ID, "UserTask_1");
+    commit(transaction);
+
+    assertEquals(1, findOne("instance2", "UserTask_1").getActiveCount());
+  }
+
+  @Test
+  void testRolledBackTransaction() throws Exception {
+    TestTransactionContext transaction = begin();
+    service.onNodeStart("instance3", PROCESS_ID, "UserTask_1");
+    commit(transaction);
+
+    // A task completion whose engine transaction fails, then is retried and succeeds.
+    transaction = begin();
+    service.onNodeEnd("instance3", PROCESS_ID, "UserTask_1");
+    service.onNodeStart("instance3", PROCESS_ID, "UserTask_2");
+    transaction.rollback();
+    service.await();
+    assertEquals(1, findOne("instance3", "UserTask_1").getActiveCount());
+    assertEquals(0, count("instance3", "UserTask_2"));
+
+    transaction = begin();
+    service.onNodeEnd("instance3", PROCESS_ID, "UserTask_1");
+    service.onNodeStart("instance3", PROCESS_ID, "UserTask_2");
+    commit(transaction);
+    assertEquals(0, findOne("instance3", "UserTask_1").getActiveCount());
+    assertEquals(1, findOne("instance3", "UserTask_2").getActiveCount());
+  }
+
+  @Test
+  void testChangesOutsideOfTransaction() throws Exception {
+    service.onNodeStart("instance4", PROCESS_ID, "UserTask_1");
+    service.await();
+
+    assertEquals(1, findOne("instance4", "UserTask_1").getActiveCount());
+  }
+
+  @Test
+  void testRemoveInstance() throws Exception {
+    TestTransactionContext transaction = begin();
+    service.onNodeStart("instance5", PROCESS_ID, "UserTask_1");
+    commit(transaction);
+    service.removeInstance("instance5");
+    service.await();
+
+    assertEquals(0, count("instance5", "UserTask_1"));
+  }
+
+  protected TestTransactionContext begin() {
+    TestTransactionContext transaction = new TestTransactionContext();
+    service.transactionContext = transaction;
+    return transaction;
+  }
+
+  protected void commit(TestTransactionContext transaction) throws Exception {
+    service.transactionContext = null;
+    transaction.commit();
+    service.await();
+  }
+
+  protected long count(String processInstanceId, String node) {
+    JPA.clear();
+    return wkfInstanceNodeRepo
+        .all()
+        .filter("self.processInstanceId = ?1 AND self.node = ?2", processInstanceId, node)
+        .count();
+  }
+
+  protected WkfInstanceNode findOne(String processInstanceId, String node) {
+    // The rows are written by another session.
+    JPA.clear();
+    List<WkfInstanceNode> instanceNodes =
+        wkfInstanceNodeRepo
+            .all()
+            .filter("self.processInstanceId = ?1 AND self.node = ?2", processInstanceId, node)
+            .fetch();
+    assertEquals(1, instanceNodes.size());
+    return instanceNodes.get(0);
+  }
+}
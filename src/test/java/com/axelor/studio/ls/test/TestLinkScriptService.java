@@ -0,0 +1,153 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.ls.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.axelor.db.JPA;
+import com.axelor.studio.db.WkfInstanceNode;
+import com.axelor.studio.ls.LinkScriptService;
+import com.axelor.studio.ls.LinkScriptServiceImpl;
+import com.axelor.studio.service.AppSettingsStudioServiceImpl;
+import com.axelor.studio.test.TestModule;
+import com.axelor.test.GuiceExtension;
+import com.axelor.test.GuiceModules;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(GuiceExtension.class)
+@GuiceModules(TestModule.class)
+class TestLinkScriptService {
+
+  @Test
+  void testBranchesRunOnWorkers() {
+    var service = new TestService(4);
+    // The first branch runs on the caller and waits for the others, which only workers can run.
+    var started = new CountDownLatch(2);
+
+    List<String> threads = service.schedule(3, new LinkedHashMap<>(), started);
+
+    assertEquals(Thread.currentThread().getName(), threads.get(0));
+    assertTrue(threads.get(1).startsWith("link-script-"));
+    assertTrue(threads.get(2).startsWith("link-script-"));
+  }
+
+  @Test
+  void testBranchesStayOnCallerInTransaction() {
+    var service = new TestService(4);
+    List<List<String>> threads = new ArrayList<>();
+
+    JPA.runInTransaction(() -> threads.add(service.schedule(3, new LinkedHashMap<>(), null)));
+
+    assertTrue(
+        threads.get(0).stream().allMatch(name -> name.equals(Thread.currentThread().getName())));
+  }
+
+  @Test
+  void testBranchesWithUnsavedEntityStayOnCaller() {
+    var service = new TestService(4);
+    var context = new LinkedHashMap<String, Object>();
+    context.put("record", new WkfInstanceNode());
+
+    List<String> threads = service.schedule(3, context, null);
+
+    assertTrue(threads.stream().allMatch(name -> name.equals(Thread.currentThread().getName())));
+  }
+
+  @Test
+  void testConcurrencyLimit() {
+    var service = new TestService(2);
+    var started = new CountDownLatch(1);
+
+    List<String> threads = service.schedule(3, new LinkedHashMap<>(), started);
+
+    // A single worker is allowed, the third branch is left to the caller.
+    assertNotEquals(threads.get(0), threads.get(1));
+    assertEquals(threads.get(0), threads.get(2));
+  }
+
+  protected static class TestService extends LinkScriptServiceImpl {
+
+    protected TestService(int maxConcurrency) {
+      super(
+          null,
+          null,
+          new AppSettingsStudioServiceImpl() {
+            @Override
+            public String getLinkScriptExecutionMode() {
+              return LinkScriptService.MODE_PARALLEL;
+            }
+
+            @Override
+            public int getLinkScriptPoolSize() {
+              return 4;
+            }
+
+            @Override
+            public int getLinkScriptMaxConcurrency() {
+              return maxConcurrency;
+            }
+          });
+    }
+
+    /**
+     * Runs the given number of branches, each one records its thread. When a latch is given, the
+     * first branch waits for it while the other ones count it down.
+     */
+    protected List<String> schedule(
+        int count, LinkedHashMap<String, Object> context, CountDownLatch started) {
+      String[] threads = new String[count];
+      List<Branch> branches = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        int index = i;
+        branches.add(
+            new Branch(
+                new LinkedHashMap<>(context),
+                branch -> {
+                  threads[index] = Thread.currentThread().getName();
+                  if (started == null) {
+                    return null;
+                  }
+                  if (index > 0) {
+                    started.countDown();
+                  } else {
+                    await(started);
+                  }
+                  return null;
+                }) {});
+      }
+      execute(new Execution() {}, branches);
+      return List.of(threads);
+    }
+
+    protected void await(CountDownLatch latch) {
+      try {
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
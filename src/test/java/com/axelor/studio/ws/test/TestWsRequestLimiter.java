@@ -0,0 +1,101 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.ws.test;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.axelor.studio.db.WsConnector;
+import com.axelor.studio.service.ws.WsRequestLimiter;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestWsRequestLimiter {
+
+  protected WsRequestLimiter limiter;
+  protected WsConnector connector;
+
+  @BeforeEach
+  void setUp() {
+    limiter = new WsRequestLimiter();
+    connector = new WsConnector();
+    connector.setId(1L);
+    connector.setVersion(0);
+    connector.setName("connector");
+    connector.setRequestsPerSecond(BigDecimal.ZERO);
+  }
+
+  @Test
+  void testNoLimits() {
+    for (int i = 0; i < 10; i++) {
+      assertNotNull(limiter.tryAcquire(connector, null));
+    }
+  }
+
+  @Test
+  void testMaxConcurrentRequests() {
+    connector.setMaxConcurrentRequests(1);
+
+    WsRequestLimiter.Permit permit = limiter.tryAcquire(connector, null);
+    assertNotNull(permit);
+    assertNull(limiter.tryAcquire(connector, null));
+
+    permit.close();
+    // A permit released twice does not let two requests in.
+    permit.close();
+    assertNotNull(limiter.tryAcquire(connector, null));
+    assertNull(limiter.tryAcquire(connector, null));
+  }
+
+  @Test
+  void testQueueTimeout() {
+    connector.setMaxConcurrentRequests(1);
+    connector.setQueueTimeout(0);
+
+    limiter.acquire(connector, null);
+    assertThrows(IllegalStateException.class, () -> limiter.acquire(connector, null));
+  }
+
+  @Test
+  void testRequestsPerSecond() {
+    connector.setRequestsPerSecond(BigDecimal.ONE);
+
+    assertNotNull(limiter.tryAcquire(connector, null));
+    assertNull(limiter.tryAcquire(connector, null));
+  }
+
+  @Test
+  void testUpdatedConnectorGetsNewLimits() {
+    connector.setMaxConcurrentRequests(1);
+    limiter.tryAcquire(connector, null);
+
+    connector.setVersion(1);
+    assertNotNull(limiter.tryAcquire(connector, null));
+  }
+
+  @Test
+  void testInvalidate() {
+    connector.setMaxConcurrentRequests(1);
+    limiter.tryAcquire(connector, null);
+
+    limiter.invalidate(connector);
+    assertNotNull(limiter.tryAcquire(connector, null));
+  }
+}
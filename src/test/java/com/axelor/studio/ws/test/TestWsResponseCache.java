@@ -0,0 +1,111 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2022 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.axelor.studio.ws.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.axelor.studio.db.WsConnector;
+import com.axelor.studio.service.AppSettingsStudioServiceImpl;
+import com.axelor.studio.service.ws.WsCachedResponse;
+import com.axelor.studio.service.ws.WsResponseCache;
+import java.nio.charset.StandardCharsets;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestWsResponseCache {
+
+  protected WsResponseCache cache;
+  protected WsConnector connector;
+  protected String key;
+
+  @BeforeEach
+  void setUp() {
+    cache =
+        new WsResponseCache(
+            new AppSettingsStudioServiceImpl() {
+              @Override
+              public int getWsResponseCacheSize() {
+                return 10;
+              }
+
+              @Override
+              public long getWsResponseSpillThreshold() {
+                return 10;
+              }
+            });
+    connector = new WsConnector();
+    connector.setId(1L);
+    connector.setVersion(0);
+    connector.setCacheDuration(60);
+    key = cache.getKey(connector, null, "http://localhost/api", new MultivaluedHashMap<>());
+  }
+
+  @Test
+  void testPutAndGet() {
+    Response response = cache.put(key, connector, response(200, "small", false));
+    assertEquals("small", response.readEntity(String.class));
+
+    Response cached = cache.get(key);
+    assertNotNull(cached);
+    assertEquals(200, cached.getStatus());
+    assertEquals("small", cached.readEntity(String.class));
+    assertEquals(1L, cache.getStats().get("hits"));
+  }
+
+  @Test
+  void testFailedResponseIsNotCached() {
+    cache.put(key, connector, response(500, "error", false));
+
+    assertNull(cache.get(key));
+    assertEquals(1L, cache.getStats().get("misses"));
+  }
+
+  @Test
+  void testLargeResponseWithoutLengthIsNotCached() {
+    String body = "a body larger than the threshold";
+
+    Response response = cache.put(key, connector, response(200, body, true));
+
+    assertArrayEquals(body.getBytes(StandardCharsets.UTF_8), response.readEntity(byte[].class));
+    assertNull(cache.get(key));
+  }
+
+  @Test
+  void testInvalidate() {
+    cache.put(key, connector, response(200, "small", false));
+
+    cache.invalidate(connector);
+    assertNull(cache.get(key));
+  }
+
+  /** Response of the given body, whose length is unknown as for a chunked response. */
+  protected Response response(int status, String body, boolean chunked) {
+    return new WsCachedResponse(
+        status, new MultivaluedHashMap<>(), body.getBytes(StandardCharsets.UTF_8)) {
+      @Override
+      public int getLength() {
+        return chunked ? -1 : super.getLength();
+      }
+    };
+  }
+}